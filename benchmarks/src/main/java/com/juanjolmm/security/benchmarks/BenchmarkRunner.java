@@ -0,0 +1,45 @@
+package com.juanjolmm.security.benchmarks;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Main class of the benchmarks jar. It accepts the same arguments as the JMH
+ * main class and always adds the GC profiler, so the allocation rate is
+ * reported with the throughput and latency of every benchmark. The help and
+ * list options are handled as in the JMH main class, without running the
+ * benchmarks.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(final String[] args) throws RunnerException, CommandLineOptionException, IOException {
+		final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		if (commandLineOptions.shouldHelp()) {
+			commandLineOptions.showHelp();
+			return;
+		}
+		if (commandLineOptions.shouldList() || commandLineOptions.shouldListWithParams()) {
+			new Runner(commandLineOptions).list();
+			return;
+		}
+		final ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+		if (!commandLineOptions.getProfilers().stream()
+				.anyMatch(profiler -> GCProfiler.class.getName().equals(profiler.getKlass()))) {
+			options.addProfiler(GCProfiler.class);
+		}
+		new Runner(options.build()).run();
+	}
+}
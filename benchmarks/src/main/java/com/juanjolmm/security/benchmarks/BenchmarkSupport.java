@@ -0,0 +1,100 @@
+package com.juanjolmm.security.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.io.FileUtils;
+
+import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+
+/**
+ * Class with helper methods shared by the benchmarks.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class BenchmarkSupport {
+
+	/**
+	 * Storage folder configured in the benchmarks
+	 * secure-file-upload_config.properties.
+	 */
+	public static final String STORAGE_FOLDER = "target/benchmark-uploads";
+	private static final String SYNTHETIC_FOLDER = "target/benchmark-synthetic";
+	private static final byte[] TEXT_LINE = "Secure file upload synthetic benchmark line 0123456789.\n"
+			.getBytes(StandardCharsets.US_ASCII);
+
+	private BenchmarkSupport() {
+	}
+
+	/**
+	 * Method to remove all the files uploaded by the benchmarks.
+	 */
+	public static void cleanStorageFolder() {
+		FileUtils.deleteQuietly(new File(STORAGE_FOLDER));
+	}
+
+	/**
+	 * Method to get (creating it if needed) a plain text file with the
+	 * provided size. Plain text is used so the files pass the whitelist.
+	 * 
+	 * @param size
+	 *            The size in bytes of the file.
+	 * @return The synthetic file.
+	 * @throws IOException
+	 *             If the file can not be created.
+	 */
+	@Nonnull
+	public static File getSyntheticTextFile(final long size) throws IOException {
+		final File folder = new File(SYNTHETIC_FOLDER);
+		folder.mkdirs();
+		final File file = new File(folder, "synthetic_" + size + ".txt");
+		if (file.length() != size) {
+			try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+				long written = 0;
+				while (written < size) {
+					final int length = (int) Math.min(TEXT_LINE.length, size - written);
+					outputStream.write(TEXT_LINE, 0, length);
+					written += length;
+				}
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Method to populate the storage folder with the provided number of
+	 * files.
+	 * 
+	 * @param uploader
+	 *            The uploader used to store the files.
+	 * @param corpusFile
+	 *            The corpus file to upload.
+	 * @param count
+	 *            The number of files to upload.
+	 * @return The name of the last uploaded file.
+	 * @throws IOException
+	 *             If the corpus file can not be read.
+	 * @throws SecureFileUploadException
+	 *             If the corpus file is rejected.
+	 */
+	@Nonnull
+	public static String populate(@Nonnull final SecureFileUploader uploader, @Nonnull final CorpusFileEnum corpusFile,
+			final int count) throws IOException, SecureFileUploadException {
+		final byte[] content = corpusFile.load();
+		String lastName = null;
+		for (int i = 0; i < count; i++) {
+			lastName = uploader.upload(new ByteArrayInputStream(content), corpusFile.getFileName(),
+					corpusFile.getRequestContentType()).getName();
+		}
+		return lastName;
+	}
+}
@@ -0,0 +1,62 @@
+package com.juanjolmm.security.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
+import com.juanjolmm.security.impl.operator.ReloadingSecureConfigurationLoader;
+import com.juanjolmm.security.impl.operator.SecureConfigurationLoaderImpl;
+
+/**
+ * Benchmark of the reads of the configuration with SecureConfigurationLoaderImpl
+ * and with ReloadingSecureConfigurationLoader, that reads it from the current
+ * snapshot.
+ *
+ * @author jlopez1
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfigurationLoaderBenchmark {
+
+	private SecureConfigurationLoader loader;
+	private ReloadingSecureConfigurationLoader reloadingLoader;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		loader = new SecureConfigurationLoaderImpl();
+		reloadingLoader = new ReloadingSecureConfigurationLoader();
+	}
+
+	@TearDown(Level.Trial)
+	public void cleanUp() throws IOException {
+		reloadingLoader.close();
+	}
+
+	@Benchmark
+	public long loader() {
+		return loader.getMaxFileSize();
+	}
+
+	@Benchmark
+	public long reloadingLoader() {
+		return reloadingLoader.getMaxFileSize();
+	}
+}
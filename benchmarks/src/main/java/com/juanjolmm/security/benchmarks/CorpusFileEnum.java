@@ -0,0 +1,79 @@
+package com.juanjolmm.security.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Enumeration of the files of the test corpus with the Content-type sent in
+ * the request. Some of them are rejected by the library, so the rejection path
+ * is measured too.
+ * 
+ * @author jlopez1
+ *
+ */
+public enum CorpusFileEnum {
+	PNG("real.png", "image/png"),
+	JPG("Tulips.jpg", "image/jpeg"),
+	GIF("gif.gif", "image/gif"),
+	PDF("pdf.pdf", "application/pdf"),
+	TXT("txt.txt", "text/plain"),
+	RTF("rtf.rtf", "application/rtf"),
+	DOC("word.doc", "application/msword"),
+	DOCX("word2.docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document"),
+	XLS("excel1.xls", "application/vnd.ms-excel"),
+	XLSX("excel2.xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+	ZIP("zip.zip", "application/zip"),
+	MP3("mp3.mp3", "audio/mpeg"),
+	M4A("m4a.m4a", "audio/mp4"),
+	OGG("ogg.ogg", "application/ogg"),
+	OPUS("opus.opus", "audio/ogg"),
+	MP4("mp4.mp4", "video/mp4"),
+	MOV("mov.mov", "video/quicktime"),
+	AVI("avi.avi", "video/x-msvideo"),
+	WMV("wmv.wmv", "video/x-ms-wmv"),
+	FAKE_PNG("TulisFakePNG.png", "image/png"),
+	FAKE_DOC("fakeWord.doc", "application/msword"),
+	BAT("executable.bat", "text/plain");
+
+	private static final String CORPUS_FOLDER = "/corpus/";
+	@Nonnull
+	private final String fileName;
+	@Nonnull
+	private final String requestContentType;
+
+	private CorpusFileEnum(@Nonnull final String fileName, @Nonnull final String requestContentType) {
+		this.fileName = fileName;
+		this.requestContentType = requestContentType;
+	}
+
+	@Nonnull
+	public String getFileName() {
+		return fileName;
+	}
+
+	@Nonnull
+	public String getRequestContentType() {
+		return requestContentType;
+	}
+
+	/**
+	 * Method to load the content of the corpus file from the classpath.
+	 * 
+	 * @return The bytes of the file.
+	 * @throws IOException
+	 *             If the file can not be read.
+	 */
+	@Nonnull
+	public byte[] load() throws IOException {
+		try (InputStream inputStream = CorpusFileEnum.class.getResourceAsStream(CORPUS_FOLDER + fileName)) {
+			if (inputStream == null) {
+				throw new IOException("Corpus file " + fileName + " not found.");
+			}
+			return IOUtils.toByteArray(inputStream);
+		}
+	}
+}
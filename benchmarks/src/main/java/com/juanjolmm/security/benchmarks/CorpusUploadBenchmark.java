@@ -0,0 +1,69 @@
+package com.juanjolmm.security.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+
+/**
+ * Benchmark of the upload of every file type of the test corpus with each
+ * uploader implementation. Rejected files measure the cost of the rejection
+ * path.
+ * 
+ * @author jlopez1
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CorpusUploadBenchmark {
+
+	@Param
+	public UploaderTypeEnum uploaderType;
+	@Param
+	public CorpusFileEnum corpusFile;
+
+	private SecureFileUploader uploader;
+	private byte[] content;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		BenchmarkSupport.cleanStorageFolder();
+		uploader = uploaderType.newUploader();
+		content = corpusFile.load();
+	}
+
+	@TearDown(Level.Iteration)
+	public void cleanUp() {
+		BenchmarkSupport.cleanStorageFolder();
+	}
+
+	@Benchmark
+	public Object upload() {
+		try {
+			return uploader.upload(new ByteArrayInputStream(content), corpusFile.getFileName(),
+					corpusFile.getRequestContentType());
+		} catch (SecureFileUploadException e) {
+			return e;
+		}
+	}
+}
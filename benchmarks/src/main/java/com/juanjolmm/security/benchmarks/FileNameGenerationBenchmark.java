@@ -0,0 +1,50 @@
+package com.juanjolmm.security.benchmarks;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.operator.UlidFileNameGenerator;
+
+/**
+ * Benchmark of the generation of a file name with UlidFileNameGenerator and
+ * with the random UUID previously used, from several threads at the same
+ * time.
+ *
+ * @author jlopez1
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class FileNameGenerationBenchmark {
+
+	private static final String FILE_NAME = "initialName.txt";
+
+	private final UlidFileNameGenerator generator = new UlidFileNameGenerator();
+
+	@Benchmark
+	public String uuid() {
+		return UUID.randomUUID().toString().replaceAll("-", "") + ".txt";
+	}
+
+	@Benchmark
+	public String ulid() throws SecureFileUploadException {
+		return generator.generate(FILE_NAME, 0);
+	}
+}
@@ -0,0 +1,50 @@
+package com.juanjolmm.security.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FilenameUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.juanjolmm.security.impl.util.FileNameValidator;
+
+/**
+ * Benchmark of the validation of a file name with FileNameValidator and with
+ * the regular expressions previously used by SecureFileUtils.
+ *
+ * @author jlopez1
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileNameValidationBenchmark {
+
+	private static final String UTF8_FILE_NAME_REGEX = "(?u)[\\p{L}\\p{N}\\p{Zs}\\p{Pd}\\p{Pc}]{1,50}";
+	private static final String UTF8_FILE_EXTENSION_REGEX = "(?u)[\\p{L}\\p{N}]{1,4}";
+
+	@Param({ "initialName.txt", "path/to/наименование файла_2017-01.docx" })
+	public String fileName;
+
+	@Benchmark
+	public boolean regex() {
+		return FilenameUtils.getExtension(fileName).matches(UTF8_FILE_EXTENSION_REGEX)
+				&& FilenameUtils.getBaseName(fileName).matches(UTF8_FILE_NAME_REGEX);
+	}
+
+	@Benchmark
+	public boolean validator() {
+		return FileNameValidator.isValid(fileName);
+	}
+}
@@ -0,0 +1,100 @@
+package com.juanjolmm.security.benchmarks;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.juanjolmm.security.api.service.FilePage;
+import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.service.AbstractSecureFileUploader;
+import com.juanjolmm.security.impl.util.ValidationCache;
+
+/**
+ * Benchmark of the get, list and paged list operations over a storage folder populated
+ * with a configurable number of files. The get operation is measured with and without
+ * the validation cache.
+ * 
+ * @author jlopez1
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListAndGetBenchmark {
+
+	@Param({ "PNG", "DOCX", "MP4" })
+	public CorpusFileEnum corpusFile;
+	@Param({ "100", "10000" })
+	public int storedFiles;
+
+	private static final int PAGE_SIZE = 100;
+
+	private SecureFileUploader uploader;
+	private ValidationCache validationCache;
+	private String fileName;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, SecureFileUploadException {
+		BenchmarkSupport.cleanStorageFolder();
+		uploader = UploaderTypeEnum.STORED.newUploader();
+		validationCache = ((AbstractSecureFileUploader) uploader).getValidationCache();
+		fileName = BenchmarkSupport.populate(uploader, corpusFile, storedFiles);
+	}
+
+	@TearDown(Level.Trial)
+	public void cleanUp() {
+		BenchmarkSupport.cleanStorageFolder();
+	}
+
+	@Benchmark
+	public File get() throws FileNotFoundException, SecureFileUploadException {
+		return uploader.get(fileName);
+	}
+
+	@Benchmark
+	public File getUncached() throws FileNotFoundException, SecureFileUploadException {
+		if (validationCache != null) {
+			validationCache.clear();
+		}
+		return uploader.get(fileName);
+	}
+
+	@Benchmark
+	public List<File> list() {
+		return uploader.list();
+	}
+
+	@Benchmark
+	public FilePage listFirstPage() throws SecureFileUploadException {
+		return uploader.list(null, PAGE_SIZE);
+	}
+
+	@Benchmark
+	public long streamFirstPage() {
+		try (Stream<Path> files = uploader.stream()) {
+			return files.limit(PAGE_SIZE).count();
+		}
+	}
+}
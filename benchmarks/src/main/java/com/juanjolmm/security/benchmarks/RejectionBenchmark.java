@@ -0,0 +1,42 @@
+package com.juanjolmm.security.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.juanjolmm.security.exception.RejectionReasonEnum;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+
+/**
+ * Benchmark of the creation of the rejection exceptions: the policy
+ * rejections are created without stack trace and the errors with it.
+ *
+ * @author jlopez1
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RejectionBenchmark {
+
+	@Benchmark
+	public SecureFileUploadException policyRejection() {
+		return new SecureFileUploadException(RejectionReasonEnum.CONTENT_TYPE);
+	}
+
+	@Benchmark
+	public SecureFileUploadException errorRejection() {
+		return new SecureFileUploadException(RejectionReasonEnum.IO);
+	}
+}
@@ -0,0 +1,87 @@
+package com.juanjolmm.security.benchmarks;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.juanjolmm.security.api.operator.SecureFileOperator;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.operator.SecureConfigurationLoaderImpl;
+import com.juanjolmm.security.impl.operator.SecureFileOperatorImpl;
+
+/**
+ * Benchmark of the storage of a file with the stream path (bounded stream
+ * copy through a heap buffer) and with the channel path (FileChannel
+ * transferFrom).
+ * 
+ * @author jlopez1
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class StorageCopyBenchmark {
+
+	private static final String FILE_NAME = "synthetic.txt";
+
+	/**
+	 * The storage paths to compare.
+	 */
+	public enum CopyPathEnum {
+		STREAM, CHANNEL
+	}
+
+	@Param
+	public CopyPathEnum copyPath;
+	@Param({ "1048576", "10485760", "104857600", "1073741824" })
+	public long fileSize;
+
+	private SecureFileOperator fileOperator;
+	private File syntheticFile;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		BenchmarkSupport.cleanStorageFolder();
+		fileOperator = new SecureFileOperatorImpl(new SecureConfigurationLoaderImpl());
+		syntheticFile = BenchmarkSupport.getSyntheticTextFile(fileSize);
+	}
+
+	@TearDown(Level.Iteration)
+	public void cleanUp() {
+		BenchmarkSupport.cleanStorageFolder();
+	}
+
+	@Benchmark
+	public File store() throws IOException, SecureFileUploadException {
+		switch (copyPath) {
+		case CHANNEL:
+			return fileOperator.createNewFileInSecureStorage(new RandomAccessFile(syntheticFile, "r").getChannel(),
+					FILE_NAME);
+		default:
+			// The buffered stream hides the file stream, so the stream path
+			// is used.
+			return fileOperator.createNewFileInSecureStorage(
+					new BufferedInputStream(new FileInputStream(syntheticFile)), FILE_NAME);
+		}
+	}
+}
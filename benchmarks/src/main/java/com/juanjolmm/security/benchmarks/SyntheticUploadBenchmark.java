@@ -0,0 +1,69 @@
+package com.juanjolmm.security.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+
+/**
+ * Benchmark of the upload of synthetic plain text files from 1KB to 1GB with
+ * each uploader implementation. The in memory implementation needs a heap
+ * bigger than the file, so the forked JVM uses a 4GB heap.
+ * 
+ * @author jlopez1
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class SyntheticUploadBenchmark {
+
+	private static final String FILE_NAME = "synthetic.txt";
+	private static final String CONTENT_TYPE = "text/plain";
+
+	@Param
+	public UploaderTypeEnum uploaderType;
+	@Param({ "1024", "1048576", "10485760", "104857600", "1073741824" })
+	public long fileSize;
+
+	private SecureFileUploader uploader;
+	private File syntheticFile;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		BenchmarkSupport.cleanStorageFolder();
+		uploader = uploaderType.newUploader();
+		syntheticFile = BenchmarkSupport.getSyntheticTextFile(fileSize);
+	}
+
+	@TearDown(Level.Iteration)
+	public void cleanUp() {
+		BenchmarkSupport.cleanStorageFolder();
+	}
+
+	@Benchmark
+	public File upload() throws SecureFileUploadException, FileNotFoundException {
+		return uploader.upload(new FileInputStream(syntheticFile), FILE_NAME, CONTENT_TYPE);
+	}
+}
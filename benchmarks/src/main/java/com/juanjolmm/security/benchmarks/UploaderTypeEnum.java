@@ -0,0 +1,66 @@
+package com.juanjolmm.security.benchmarks;
+
+import javax.annotation.Nonnull;
+
+import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.impl.service.SecureFileUploaderHybrid;
+import com.juanjolmm.security.impl.service.SecureFileUploaderInMemory;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStreaming;
+
+/**
+ * Enumeration of the SecureFileUploader implementations to benchmark.
+ * 
+ * @author jlopez1
+ *
+ */
+public enum UploaderTypeEnum {
+	/**
+	 * The stored implementation.
+	 */
+	STORED {
+		@Override
+		@Nonnull
+		public SecureFileUploader newUploader() {
+			return new SecureFileUploaderStored();
+		}
+	},
+	/**
+	 * The in memory implementation.
+	 */
+	IN_MEMORY {
+		@Override
+		@Nonnull
+		public SecureFileUploader newUploader() {
+			return new SecureFileUploaderInMemory();
+		}
+	},
+	/**
+	 * The streaming implementation.
+	 */
+	STREAMING {
+		@Override
+		@Nonnull
+		public SecureFileUploader newUploader() {
+			return new SecureFileUploaderStreaming();
+		}
+	},
+	/**
+	 * The hybrid implementation.
+	 */
+	HYBRID {
+		@Override
+		@Nonnull
+		public SecureFileUploader newUploader() {
+			return new SecureFileUploaderHybrid();
+		}
+	};
+
+	/**
+	 * Method to create a new uploader of this type.
+	 * 
+	 * @return A new SecureFileUploader.
+	 */
+	@Nonnull
+	public abstract SecureFileUploader newUploader();
+}
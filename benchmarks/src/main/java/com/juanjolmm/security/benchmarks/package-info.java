@@ -0,0 +1,8 @@
+/**
+ * Package with the JMH benchmarks of the secure file upload pipeline.
+ */
+/**
+ * @author jlopez1
+ *
+ */
+package com.juanjolmm.security.benchmarks;
@@ -0,0 +1,299 @@
+package com.juanjolmm.security.api;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Immutable index of the allowed Content-types and their allowed extensions.
+ * The index is compiled once when the configuration is loaded: the
+ * Content-types are normalized (parameters removed and lower case) and
+ * wildcards like image/* are supported. The lookups are case insensitive,
+ * ignore the parameters of the Content-type (text/plain; charset=UTF-8) and do
+ * not allocate memory.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class ContentTypeWhiteList {
+
+	private static final String WILDCARD_SUBTYPE = "*";
+	private static final int VERSION_LENGTH = 16;
+	@Nonnull
+	private final LookupTable<WhiteListEntry> contentTypes;
+	@Nonnull
+	private final LookupTable<WhiteListEntry> wildcardContentTypes;
+	@Nonnull
+	private final LookupTable<List<String>> extensionContentTypes;
+	@Nonnull
+	private final String version;
+
+	/**
+	 * Constructor that compiles the provided Content-types and extensions.
+	 * 
+	 * @param contentTypeExtensions
+	 *            The allowed extensions of each allowed Content-type.
+	 */
+	public ContentTypeWhiteList(@Nonnull final Map<String, List<String>> contentTypeExtensions) {
+		final Map<String, Set<String>> normalized = new TreeMap<String, Set<String>>();
+		for (Map.Entry<String, List<String>> entry : contentTypeExtensions.entrySet()) {
+			final String contentType = normalizeContentType(entry.getKey());
+			if (contentType.length() > 0 && !entry.getValue().isEmpty()) {
+				final Set<String> extensions = normalized.computeIfAbsent(contentType,
+						key -> new LinkedHashSet<String>());
+				for (String extension : entry.getValue()) {
+					if (extension.trim().length() > 0) {
+						extensions.add(toLowerCase(extension.trim()));
+					}
+				}
+			}
+		}
+		final Map<String, WhiteListEntry> exactEntries = new LinkedHashMap<String, WhiteListEntry>();
+		final Map<String, WhiteListEntry> wildcardEntries = new LinkedHashMap<String, WhiteListEntry>();
+		final Map<String, List<String>> extensionEntries = new LinkedHashMap<String, List<String>>();
+		for (Map.Entry<String, Set<String>> entry : normalized.entrySet()) {
+			final String contentType = entry.getKey();
+			final WhiteListEntry whiteListEntry = new WhiteListEntry(entry.getValue());
+			final int slash = contentType.indexOf('/');
+			if (slash > 0 && contentType.substring(slash + 1).equals(WILDCARD_SUBTYPE)) {
+				wildcardEntries.put(contentType.substring(0, slash), whiteListEntry);
+			} else {
+				exactEntries.put(contentType, whiteListEntry);
+			}
+			for (String extension : entry.getValue()) {
+				extensionEntries.computeIfAbsent(extension, key -> new ArrayList<String>()).add(contentType);
+			}
+		}
+		for (Map.Entry<String, List<String>> entry : extensionEntries.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		contentTypes = new LookupTable<WhiteListEntry>(exactEntries);
+		wildcardContentTypes = new LookupTable<WhiteListEntry>(wildcardEntries);
+		extensionContentTypes = new LookupTable<List<String>>(extensionEntries);
+		version = computeVersion(normalized);
+	}
+
+	/**
+	 * Method to determine if a Content-type is allowed (directly or by a
+	 * wildcard).
+	 * 
+	 * @param contentType
+	 *            The Content-type to check. It can have parameters.
+	 * @return True if the Content-type is allowed, false in other case.
+	 */
+	public boolean isAllowedContentType(@Nullable final String contentType) {
+		return findEntry(contentType) != null;
+	}
+
+	/**
+	 * Method to determine if an extension is allowed for a Content-type.
+	 * 
+	 * @param contentType
+	 *            The Content-type to check. It can have parameters.
+	 * @param extension
+	 *            The extension to check.
+	 * @return True if the extension is allowed for the Content-type, false in
+	 *         other case.
+	 */
+	public boolean isAllowedExtension(@Nullable final String contentType, @Nullable final String extension) {
+		final WhiteListEntry entry = findEntry(contentType);
+		return entry != null && extension != null
+				&& entry.extensionIndex.get(extension, 0, extension.length()) != null;
+	}
+
+	/**
+	 * Method to get the extensions allowed for a Content-type.
+	 * 
+	 * @param contentType
+	 *            The Content-type to check. It can have parameters.
+	 * @return The allowed extensions (lower case) or null if the Content-type
+	 *         is not allowed.
+	 */
+	@Nullable
+	public List<String> getExtensions(@Nullable final String contentType) {
+		final WhiteListEntry entry = findEntry(contentType);
+		return entry != null ? entry.extensions : null;
+	}
+
+	/**
+	 * Method to get the Content-types that allow an extension.
+	 * 
+	 * @param extension
+	 *            The extension to check.
+	 * @return The normalized Content-types that allow the extension. Empty
+	 *         list if none.
+	 */
+	@Nonnull
+	public List<String> getContentTypes(@Nullable final String extension) {
+		final List<String> found = extension != null
+				? extensionContentTypes.get(extension, 0, extension.length()) : null;
+		return found != null ? found : Collections.<String> emptyList();
+	}
+
+	/**
+	 * Method to get the version of the white list. Two white lists with the
+	 * same Content-types and extensions have the same version.
+	 * 
+	 * @return The version of the white list.
+	 */
+	@Nonnull
+	public String getVersion() {
+		return version;
+	}
+
+	@Nullable
+	private WhiteListEntry findEntry(@Nullable final String contentType) {
+		if (contentType == null) {
+			return null;
+		}
+		int end = contentType.indexOf(';');
+		if (end < 0) {
+			end = contentType.length();
+		}
+		int start = 0;
+		while (start < end && Character.isWhitespace(contentType.charAt(start))) {
+			start++;
+		}
+		while (end > start && Character.isWhitespace(contentType.charAt(end - 1))) {
+			end--;
+		}
+		WhiteListEntry entry = contentTypes.get(contentType, start, end);
+		if (entry == null) {
+			final int slash = contentType.indexOf('/', start);
+			if (slash > start && slash < end) {
+				entry = wildcardContentTypes.get(contentType, start, slash);
+			}
+		}
+		return entry;
+	}
+
+	@Nonnull
+	private static String normalizeContentType(@Nonnull final String contentType) {
+		final int parameters = contentType.indexOf(';');
+		return toLowerCase((parameters >= 0 ? contentType.substring(0, parameters) : contentType).trim());
+	}
+
+	/**
+	 * Lower case char by char, the same way used by the lookups.
+	 */
+	@Nonnull
+	private static String toLowerCase(@Nonnull final String value) {
+		final char[] chars = value.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(chars[i]);
+		}
+		return new String(chars);
+	}
+
+	@Nonnull
+	private static String computeVersion(@Nonnull final Map<String, Set<String>> normalized) {
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(normalized.toString().getBytes(StandardCharsets.UTF_8));
+			final StringBuilder version = new StringBuilder();
+			for (byte b : digest.digest()) {
+				version.append(String.format("%02x", b));
+			}
+			return version.substring(0, VERSION_LENGTH);
+		} catch (NoSuchAlgorithmException e) {
+			return Integer.toHexString(normalized.hashCode());
+		}
+	}
+
+	/**
+	 * Compiled entry of a Content-type.
+	 */
+	private static final class WhiteListEntry {
+		@Nonnull
+		private final List<String> extensions;
+		@Nonnull
+		private final LookupTable<Boolean> extensionIndex;
+
+		private WhiteListEntry(@Nonnull final Set<String> extensions) {
+			this.extensions = Collections.unmodifiableList(new ArrayList<String>(extensions));
+			final Map<String, Boolean> index = new LinkedHashMap<String, Boolean>();
+			for (String extension : extensions) {
+				index.put(extension, Boolean.TRUE);
+			}
+			this.extensionIndex = new LookupTable<Boolean>(index);
+		}
+	}
+
+	/**
+	 * Immutable open addressing hash table with lower case keys. It is looked
+	 * up with a region of a string, ignoring the case, without allocating
+	 * memory.
+	 */
+	private static final class LookupTable<V> {
+		@Nonnull
+		private final String[] keys;
+		@Nonnull
+		private final Object[] values;
+		private final int mask;
+
+		private LookupTable(@Nonnull final Map<String, V> entries) {
+			int capacity = 2;
+			while (capacity < entries.size() * 2) {
+				capacity <<= 1;
+			}
+			keys = new String[capacity];
+			values = new Object[capacity];
+			mask = capacity - 1;
+			for (Map.Entry<String, V> entry : entries.entrySet()) {
+				final String key = entry.getKey();
+				int slot = hash(key, 0, key.length()) & mask;
+				while (keys[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = key;
+				values[slot] = entry.getValue();
+			}
+		}
+
+		@Nullable
+		@SuppressWarnings("unchecked")
+		private V get(@Nonnull final String value, final int start, final int end) {
+			int slot = hash(value, start, end) & mask;
+			String key;
+			while ((key = keys[slot]) != null) {
+				if (matches(key, value, start, end)) {
+					return (V) values[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			return null;
+		}
+
+		private static int hash(@Nonnull final String value, final int start, final int end) {
+			int hash = 0;
+			for (int i = start; i < end; i++) {
+				hash = 31 * hash + Character.toLowerCase(value.charAt(i));
+			}
+			return hash ^ (hash >>> 16);
+		}
+
+		private static boolean matches(@Nonnull final String key, @Nonnull final String value, final int start,
+				final int end) {
+			if (key.length() != end - start) {
+				return false;
+			}
+			for (int i = 0; i < key.length(); i++) {
+				if (key.charAt(i) != Character.toLowerCase(value.charAt(start + i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
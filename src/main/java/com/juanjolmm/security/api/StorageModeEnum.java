@@ -0,0 +1,20 @@
+package com.juanjolmm.security.api;
+
+/**
+ * Enumeration to define the available modes to store the content of the
+ * uploaded files.
+ * 
+ * @author jlopez1
+ *
+ */
+public enum StorageModeEnum {
+	/**
+	 * To store the content of every uploaded file in its own file.
+	 */
+	FILE,
+	/**
+	 * To store every different content only once, identified by its SHA-256
+	 * digest. The uploaded files are hard links to the stored content.
+	 */
+	DEDUPLICATED;
+}
@@ -0,0 +1,41 @@
+package com.juanjolmm.security.api;
+
+/**
+ * Enumeration to define the stages of an upload reported to the
+ * UploadMetricsListener.
+ *
+ * @author jlopez1
+ *
+ */
+public enum UploadStageEnum {
+	/**
+	 * Check of the request Content-type and the file extension.
+	 */
+	REQUEST_CHECK,
+	/**
+	 * Read of the whole upload into memory (or a temporary file) before it is
+	 * checked, by the in memory and hybrid implementations.
+	 */
+	BUFFER,
+	/**
+	 * Detection of the content type from the content.
+	 */
+	DETECTION,
+	/**
+	 * Copy of the content to the staging folder, computing its checksums.
+	 */
+	COPY,
+	/**
+	 * Change of the file owner.
+	 */
+	OWNER,
+	/**
+	 * Publication of the staged file in the storage folder and record of its
+	 * metadata (extended attributes, catalog and deduplicated content).
+	 */
+	PUBLISH,
+	/**
+	 * Whole upload, reported only when the file is stored.
+	 */
+	TOTAL;
+}
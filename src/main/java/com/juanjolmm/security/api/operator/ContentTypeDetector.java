@@ -0,0 +1,27 @@
+package com.juanjolmm.security.api.operator;
+
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Interface to define the detection of the real content type of a stream.
+ * Implementations must be thread safe, so a single instance can be shared by
+ * all the uploads that use the same configuration.
+ * 
+ * @author jlopez1
+ *
+ */
+public interface ContentTypeDetector {
+
+	/**
+	 * Method to get the content type (or mime type) of the provided input
+	 * stream. The input stream is closed after the detection.
+	 * 
+	 * @param inputStream
+	 *            The input stream to be checked.
+	 * @return The detected content type of the input stream.
+	 */
+	@Nonnull
+	public String detect(@Nonnull final InputStream inputStream);
+}
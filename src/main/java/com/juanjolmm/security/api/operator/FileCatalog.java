@@ -0,0 +1,75 @@
+package com.juanjolmm.security.api.operator;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.juanjolmm.security.api.service.CatalogEntry;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+
+/**
+ * Interface to define a catalog with the metadata of the uploaded files, so
+ * the files can be listed and retrieved without accessing the storage
+ * folder. Implementations must be thread safe.
+ * 
+ * @author jlopez1
+ *
+ */
+public interface FileCatalog {
+
+	/**
+	 * Method to record a new uploaded file. An entry with the same file name
+	 * is replaced.
+	 * 
+	 * @param entry
+	 *            The metadata of the uploaded file.
+	 * @throws SecureFileUploadException
+	 *             If the entry can not be recorded.
+	 */
+	public void add(@Nonnull final CatalogEntry entry) throws SecureFileUploadException;
+
+	/**
+	 * Method to remove the entry of a file.
+	 * 
+	 * @param fileName
+	 *            The name of the stored file.
+	 * @throws SecureFileUploadException
+	 *             If the removal can not be recorded.
+	 */
+	public void remove(@Nonnull final String fileName) throws SecureFileUploadException;
+
+	/**
+	 * Method to get the entry of a file.
+	 * 
+	 * @param fileName
+	 *            The name of the stored file.
+	 * @return The entry of the file or null if the file is not in the catalog.
+	 */
+	@Nullable
+	public CatalogEntry get(@Nonnull final String fileName);
+
+	/**
+	 * Method to get the entries of the files uploaded in a time range, sorted
+	 * by upload time.
+	 * 
+	 * @param fromTime
+	 *            The minimum upload time (inclusive) in milliseconds since the
+	 *            epoch.
+	 * @param toTime
+	 *            The maximum upload time (exclusive) in milliseconds since the
+	 *            epoch.
+	 * @param contentType
+	 *            The content type of the files or null for all the types.
+	 * @return The entries found. Empty list if no files found.
+	 */
+	@Nonnull
+	public List<CatalogEntry> list(final long fromTime, final long toTime, @Nullable final String contentType);
+
+	/**
+	 * Method to get the number of files in the catalog.
+	 * 
+	 * @return The number of entries.
+	 */
+	public int size();
+}
@@ -0,0 +1,35 @@
+package com.juanjolmm.security.api.operator;
+
+import javax.annotation.Nonnull;
+
+import com.juanjolmm.security.exception.SecureFileUploadException;
+
+/**
+ * Interface to define the generation of the final name of an uploaded file.
+ * Implementations must be thread safe, so a single instance can be shared by
+ * all the uploads that use the same configuration.
+ * 
+ * @author jlopez1
+ *
+ */
+public interface FileNameGenerator {
+
+	/**
+	 * Method to generate the final name of an uploaded file. The file is
+	 * created only if no file exists with the generated name; otherwise a new
+	 * name is requested with the next attempt number, so the generator must
+	 * return a different name for each attempt.
+	 * 
+	 * @param initialFileName
+	 *            The user original name of the file.
+	 * @param attempt
+	 *            The number of names already discarded for this file, 0 in
+	 *            the first call.
+	 * @return The final file name, with the original extension.
+	 * @throws SecureFileUploadException
+	 *             If the initial name is not valid.
+	 */
+	@Nonnull
+	public String generate(@Nonnull final String initialFileName, final int attempt)
+			throws SecureFileUploadException;
+}
@@ -5,7 +5,9 @@ import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.juanjolmm.security.api.ContentTypeWhiteList;
 import com.juanjolmm.security.api.FileNameModeEnum;
+import com.juanjolmm.security.api.StorageModeEnum;
 
 /**
  * Interface to define operations to load the configuration properties.
@@ -33,6 +35,14 @@ public interface SecureConfigurationLoader {
 	@Nullable
 	public List<String> getContentTypeExtensions(@Nonnull final String contentType);
 
+	/**
+	 * Method to get the compiled white list of Content-types and extensions.
+	 * 
+	 * @return The white list.
+	 */
+	@Nonnull
+	public ContentTypeWhiteList getWhiteList();
+
 	/**
 	 * Method to get the maximum file size.
 	 * 
@@ -40,6 +50,31 @@ public interface SecureConfigurationLoader {
 	 */
 	public long getMaxFileSize();
 
+	/**
+	 * Method to get the number of bytes of the beginning of the stream used to
+	 * detect its content type before storing it. It is not lower than the
+	 * bytes read by the content type detector.
+	 * 
+	 * @return The detection prefix size in bytes.
+	 */
+	public int getDetectionPrefixSize();
+
+	/**
+	 * Method to get the maximum number of bytes of an upload kept in memory.
+	 * Bigger uploads are spilled to a temporary file.
+	 * 
+	 * @return The memory threshold in bytes.
+	 */
+	public int getMemoryThreshold();
+
+	/**
+	 * Method to get the maximum number of files of a batch upload that are
+	 * checked and stored in parallel.
+	 * 
+	 * @return The batch parallelism.
+	 */
+	public int getBatchParallelism();
+
 	/**
 	 * Method to get the storage folder.
 	 * 
@@ -48,6 +83,122 @@ public interface SecureConfigurationLoader {
 	@Nonnull
 	public String getStorageFolder();
 
+	/**
+	 * Method to get the number of levels of shard folders inside the storage
+	 * folder. Each level is a folder named with two hexadecimal digits
+	 * derived from the file name. 0 to store all the files in the storage
+	 * folder.
+	 * 
+	 * @return The storage shard levels.
+	 */
+	public int getStorageShardLevels();
+
+	/**
+	 * Method to get the storage mode. FILE: To store the content of every
+	 * uploaded file in its own file. DEDUPLICATED: To store every different
+	 * content only once and link the uploaded files to it.
+	 * 
+	 * @return The storage mode.
+	 */
+	@Nonnull
+	public StorageModeEnum getStorageMode();
+
+	/**
+	 * Method to get the maximum number of uploads writing at the same time in
+	 * the storage folder. The content is written while it is received, so it
+	 * limits the concurrent uploads, including the time spent receiving their
+	 * bytes from the clients.
+	 * 
+	 * @return The maximum number of concurrent writes, 0 if there is no
+	 *         limit.
+	 */
+	public int getMaxConcurrentWrites();
+
+	/**
+	 * Method to get the maximum number of uploads waiting for a write when
+	 * the concurrent writes limit is reached. The rest of uploads are rejected
+	 * as busy.
+	 * 
+	 * @return The maximum number of queued writes.
+	 */
+	public int getMaxQueuedWrites();
+
+	/**
+	 * Method to get the maximum time that a queued upload waits for a write.
+	 * 
+	 * @return The timeout in milliseconds.
+	 */
+	public long getQueuedWriteTimeout();
+
+	/**
+	 * Method to get the maximum number of bytes of all the uploaded files of
+	 * the storage folder.
+	 * 
+	 * @return The maximum number of bytes, 0 if there is no limit.
+	 */
+	public long getQuotaMaxBytes();
+
+	/**
+	 * Method to get the maximum number of uploaded files of the storage
+	 * folder.
+	 * 
+	 * @return The maximum number of files, 0 if there is no limit.
+	 */
+	public long getQuotaMaxFiles();
+
+	/**
+	 * Method to get the maximum number of bytes of the files uploaded by
+	 * every owner.
+	 * 
+	 * @return The maximum number of bytes by owner, 0 if there is no limit.
+	 */
+	public long getOwnerQuotaMaxBytes();
+
+	/**
+	 * Method to get the maximum number of files uploaded by every owner.
+	 * 
+	 * @return The maximum number of files by owner, 0 if there is no limit.
+	 */
+	public long getOwnerQuotaMaxFiles();
+
+	/**
+	 * Method to get the minimum usable space of the file system of the
+	 * storage folder (low watermark). The uploads are rejected while the
+	 * usable space is lower.
+	 * 
+	 * @return The minimum usable space in bytes, 0 if it is not checked.
+	 */
+	public long getMinUsableSpace();
+
+	/**
+	 * Method to get the path of the catalog log file, where the metadata of
+	 * the uploaded files is recorded.
+	 * 
+	 * @return The catalog file path or null if the catalog is disabled.
+	 */
+	@Nullable
+	public String getCatalogFile();
+
+	/**
+	 * Method to get the maximum number of files whose validation result is
+	 * cached, so unchanged files are not detected again when they are
+	 * retrieved.
+	 * 
+	 * @return The maximum number of cached validations, 0 if the cache is
+	 *         disabled.
+	 */
+	public int getValidationCacheSize();
+
+	/**
+	 * Method to get the checksum algorithms (CRC32, CRC32C, SHA-256...)
+	 * computed while every uploaded file is stored.
+	 * 
+	 * @return The supported configured algorithms. Empty list if no checksums
+	 *         are configured.
+	 */
+	@Nonnull
+	public List<String> getUploadChecksums();
+
 	/**
 	 * Method to get the file name mode. ORIGINAL: To store the file with the
 	 * original provided user name. SECURE: To store the file with a new and
@@ -3,10 +3,18 @@ package com.juanjolmm.security.api.operator;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import com.juanjolmm.security.api.service.FileMetadata;
+import com.juanjolmm.security.api.service.FilePage;
+import com.juanjolmm.security.api.service.UploadedFile;
 import com.juanjolmm.security.exception.SecureFileUploadException;
 
 /**
@@ -34,6 +42,87 @@ public interface SecureFileOperator {
 	public File createNewFileInSecureStorage(@Nonnull final InputStream inputStream,
 			@Nonnull final String initialFileName) throws SecureFileUploadException;
 
+	/**
+	 * Method that create a new file in a configurable secure storage and
+	 * computes the checksums of the content in the same pass that copies it.
+	 * 
+	 * @param inputStream
+	 *            The source input stream.
+	 * @param initialFileName
+	 *            The user original name of the file.
+	 * @param checksumAlgorithms
+	 *            The checksum algorithms (CRC32, CRC32C, SHA-256...).
+	 * @return The new file created in the secure storage folder, with its
+	 *         size and checksums.
+	 * @throws SecureFileUploadException
+	 *             If failed the creation of the new file or an algorithm is
+	 *             not supported.
+	 */
+	@Nonnull
+	public UploadedFile createNewFileInSecureStorage(@Nonnull final InputStream inputStream,
+			@Nonnull final String initialFileName, @Nonnull final Collection<String> checksumAlgorithms)
+			throws SecureFileUploadException;
+
+	/**
+	 * Method that create a new file in the staging folder of the secure
+	 * storage, where it is not visible to the readers of the storage, and
+	 * computes the checksums of the content in the same pass that copies it.
+	 * The file must be published with publishStagedFile when it is checked.
+	 * The file is created with the secure permissions (rw-------) when the
+	 * file system supports POSIX permissions.
+	 * 
+	 * @param inputStream
+	 *            The source input stream.
+	 * @param initialFileName
+	 *            The user original name of the file.
+	 * @param checksumAlgorithms
+	 *            The checksum algorithms (CRC32, CRC32C, SHA-256...).
+	 * @return The new staging file, with its size and checksums.
+	 * @throws SecureFileUploadException
+	 *             If failed the creation of the new file or an algorithm is
+	 *             not supported.
+	 */
+	@Nonnull
+	public UploadedFile createStagedFile(@Nonnull final InputStream inputStream,
+			@Nonnull final String initialFileName, @Nonnull final Collection<String> checksumAlgorithms)
+			throws SecureFileUploadException;
+
+	/**
+	 * Method to publish a staging file in the storage folder with an atomic
+	 * operation, so the file is never seen partially written. The final file
+	 * name depends on the implementation and an existing file is never
+	 * overwritten.
+	 * 
+	 * @param stagedFile
+	 *            The checked staging file.
+	 * @param initialFileName
+	 *            The user original name of the file.
+	 * @return The new file in the secure storage folder.
+	 * @throws SecureFileUploadException
+	 *             If the file can not be published.
+	 */
+	@Nonnull
+	public File publishStagedFile(@Nonnull final File stagedFile, @Nonnull final String initialFileName)
+			throws SecureFileUploadException;
+
+	/**
+	 * Method that create a new file in a configurable secure storage reading
+	 * the content from a channel. The content is transferred between channels,
+	 * so when the source is a file or a socket channel the bytes are not
+	 * copied to the heap. The source channel must be in blocking mode.
+	 * 
+	 * @param channel
+	 *            The source channel.
+	 * @param initialFileName
+	 *            The user original name of the file.
+	 * @return A new file created in the secure storage folder.
+	 * @throws SecureFileUploadException
+	 *             If failed the creation of the new file.
+	 */
+	@Nonnull
+	public File createNewFileInSecureStorage(@Nonnull final ReadableByteChannel channel,
+			@Nonnull final String initialFileName) throws SecureFileUploadException;
+
 	/**
 	 * Method to set the current file owner.
 	 * 
@@ -44,6 +133,13 @@ public interface SecureFileOperator {
 	 */
 	public void setSecureFileOwner(@Nonnull final File file) throws SecureFileUploadException;
 
+	/**
+	 * Method to prepare the secure storage before storing several files: the
+	 * storage and staging folders are created and the secure owner is looked
+	 * up once, so the stored files reuse them.
+	 */
+	public void prepareSecureStorage();
+
 	/**
 	 * Method to establish the secure permissions of a file. The file should not
 	 * have execute permission.
@@ -55,6 +151,97 @@ public interface SecureFileOperator {
 	 */
 	public void setSecureFilePermissions(@Nonnull final File file) throws SecureFileUploadException;
 
+	/**
+	 * Method to store the validation metadata of a file with the file, so it
+	 * can be retrieved without detecting the content type again. The size and
+	 * modification time of the file are read and stored with the metadata.
+	 * 
+	 * @param file
+	 *            The validated file.
+	 * @param contentType
+	 *            The detected content type of the file.
+	 * @param whiteListVersion
+	 *            The version of the white list used in the validation.
+	 * @param digest
+	 *            The hexadecimal SHA-256 digest of the content or null if it
+	 *            is unknown.
+	 * @return The stored metadata or null if the file system does not support
+	 *         it or it can not be stored.
+	 */
+	@Nullable
+	public FileMetadata setFileMetadata(@Nonnull final File file, @Nonnull final String contentType,
+			@Nonnull final String whiteListVersion, @Nullable final String digest);
+
+	/**
+	 * Method to get the validation metadata stored with a file.
+	 * 
+	 * @param file
+	 *            The uploaded file.
+	 * @return The stored metadata or null if the file has no metadata or the
+	 *         file system does not support it.
+	 */
+	@Nullable
+	public FileMetadata getFileMetadata(@Nonnull final File file);
+
+	/**
+	 * Method to get the stored content with a digest, used in the
+	 * deduplicated storage mode.
+	 * 
+	 * @param digest
+	 *            The hexadecimal SHA-256 digest of the content.
+	 * @return The file of the stored content or null if the content is not
+	 *         stored.
+	 */
+	@Nullable
+	public File getStoredContent(@Nonnull final String digest);
+
+	/**
+	 * Method to add the content of a new validated file to the stored
+	 * contents, used in the deduplicated storage mode. If the content is
+	 * already stored the new file is replaced by a hard link to it. If the
+	 * content can not be stored the new file is kept as it is.
+	 * 
+	 * @param newFile
+	 *            The new validated file.
+	 * @param digest
+	 *            The hexadecimal SHA-256 digest of the content.
+	 * @return The new file.
+	 */
+	@Nonnull
+	public File storeContent(@Nonnull final File newFile, @Nonnull final String digest);
+
+	/**
+	 * Method to create a new file in the secure storage as a hard link to a
+	 * stored content, without copying it.
+	 * 
+	 * @param contentFile
+	 *            The file of the stored content.
+	 * @param initialFileName
+	 *            The user original name of the file.
+	 * @return A new file created in the secure storage folder.
+	 * @throws SecureFileUploadException
+	 *             If failed the creation of the new file.
+	 */
+	@Nonnull
+	public File linkStoredContent(@Nonnull final File contentFile, @Nonnull final String initialFileName)
+			throws SecureFileUploadException;
+
+	/**
+	 * Method to delete an uploaded file. If the file is linked to a stored
+	 * content that is not linked from other files, the content is deleted
+	 * too.
+	 * 
+	 * @param file
+	 *            The uploaded file.
+	 * @param digest
+	 *            The hexadecimal SHA-256 digest of the content or null if the
+	 *            file is not linked to a stored content.
+	 * @throws SecureFileUploadException
+	 *             If the file can not be deleted.
+	 */
+	public void deleteUploadedFile(@Nonnull final File file, @Nullable final String digest)
+			throws SecureFileUploadException;
+
 	/**
 	 * Method to get a file list with all the uploaded files.
 	 * 
@@ -63,6 +250,37 @@ public interface SecureFileOperator {
 	@Nonnull
 	public List<File> listUploadedFiles();
 
+	/**
+	 * Method to get a page of the uploaded files. The pages are read from the
+	 * storage folder with memory bounded by the limit. The files of every
+	 * folder are returned in name order and the cursor is the last returned
+	 * file, so the files deleted or added between the pages do not make the
+	 * next pages skip or repeat files.
+	 * 
+	 * @param cursor
+	 *            The cursor returned with the previous page or null to get the
+	 *            first page.
+	 * @param limit
+	 *            The maximum number of files of the page.
+	 * @return The page of files and the cursor of the next page.
+	 * @throws SecureFileUploadException
+	 *             If the cursor or the limit are not valid or the storage
+	 *             folder can not be read.
+	 */
+	@Nonnull
+	public FilePage listUploadedFiles(@Nullable final String cursor, final int limit)
+			throws SecureFileUploadException;
+
+	/**
+	 * Method to get a lazy stream of the uploaded files. The folders are read
+	 * while the stream is consumed, so it can be stopped without reading the
+	 * remaining files. The stream must be closed.
+	 * 
+	 * @return A stream with the paths of the uploaded files.
+	 */
+	@Nonnull
+	public Stream<Path> streamUploadedFiles();
+
 	/**
 	 * Method to get a file list with all the uploaded files.
 	 * 
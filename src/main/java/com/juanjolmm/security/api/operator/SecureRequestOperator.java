@@ -49,4 +49,20 @@ public interface SecureRequestOperator {
 	 */
 	public boolean isValidStreamHeader(@Nonnull final InputStream inputStream, @Nonnull final String requestContentType,
 			@Nonnull final String fileExtension);
+
+	/**
+	 * Method to check if an already detected content type is allowed and
+	 * belongs to the provided request content type and extension.
+	 * 
+	 * @param detectedContentType
+	 *            The content type detected from the stream header.
+	 * @param requestContentType
+	 *            The Content-Type of the request.
+	 * @param fileExtension
+	 *            The extension to be validated for the Content-type.
+	 * @return True if the detected content type is valid, false in other
+	 *         case.
+	 */
+	public boolean isValidDetectedContentType(@Nonnull final String detectedContentType,
+			@Nonnull final String requestContentType, @Nonnull final String fileExtension);
 }
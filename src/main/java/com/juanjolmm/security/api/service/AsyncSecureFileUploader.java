@@ -0,0 +1,38 @@
+package com.juanjolmm.security.api.service;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Interface to define asynchronous secure file uploads operations. The checks
+ * and the storage of the file are made in other thread, so the calling thread
+ * is released immediately.
+ * 
+ * @author jlopez1
+ *
+ */
+public interface AsyncSecureFileUploader {
+
+	/**
+	 * Method to upload and store a new file in a secure way asynchronously. The
+	 * input stream is read in other thread, so it must not be closed by the
+	 * caller until the returned future is completed.
+	 * 
+	 * @param inputStream
+	 *            Request original input stream.
+	 * @param fileName
+	 *            The original user file name.
+	 * @param requestContentType
+	 *            The request Content-type.
+	 * @return A future completed with the new created file, or completed
+	 *         exceptionally with a SecureFileUploadException if the file is
+	 *         not allowable to be uploaded and stored or with reason BUSY if
+	 *         there are too many uploads in progress.
+	 */
+	@Nonnull
+	public CompletableFuture<File> uploadAsync(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+			@Nonnull final String requestContentType);
+}
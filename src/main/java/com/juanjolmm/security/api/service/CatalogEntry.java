@@ -0,0 +1,139 @@
+package com.juanjolmm.security.api.service;
+
+import java.io.File;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Class that contains the metadata of an uploaded file recorded in the
+ * catalog when the file was uploaded.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class CatalogEntry {
+
+	@Nonnull
+	private final String fileName;
+	@Nonnull
+	private final String path;
+	private final long size;
+	@Nonnull
+	private final String contentType;
+	private final long uploadTime;
+	private final long lastModified;
+	@Nullable
+	private final String digest;
+
+	/**
+	 * Constructor with all the metadata of the file but its modification
+	 * time, that is unknown.
+	 * 
+	 * @param fileName
+	 *            The name of the stored file.
+	 * @param path
+	 *            The path of the stored file.
+	 * @param size
+	 *            The size in bytes of the file.
+	 * @param contentType
+	 *            The detected content type of the file.
+	 * @param uploadTime
+	 *            The upload time in milliseconds since the epoch.
+	 * @param digest
+	 *            The hexadecimal SHA-256 digest of the content or null if it
+	 *            is unknown.
+	 */
+	public CatalogEntry(@Nonnull final String fileName, @Nonnull final String path, final long size,
+			@Nonnull final String contentType, final long uploadTime, @Nullable final String digest) {
+		this(fileName, path, size, contentType, uploadTime, 0, digest);
+	}
+
+	/**
+	 * Constructor with all the metadata of the file.
+	 * 
+	 * @param fileName
+	 *            The name of the stored file.
+	 * @param path
+	 *            The path of the stored file.
+	 * @param size
+	 *            The size in bytes of the file.
+	 * @param contentType
+	 *            The detected content type of the file.
+	 * @param uploadTime
+	 *            The upload time in milliseconds since the epoch.
+	 * @param lastModified
+	 *            The modification time of the stored file in milliseconds
+	 *            since the epoch, 0 if it is unknown.
+	 * @param digest
+	 *            The hexadecimal SHA-256 digest of the content or null if it
+	 *            is unknown.
+	 */
+	public CatalogEntry(@Nonnull final String fileName, @Nonnull final String path, final long size,
+			@Nonnull final String contentType, final long uploadTime, final long lastModified,
+			@Nullable final String digest) {
+		this.fileName = fileName;
+		this.path = path;
+		this.size = size;
+		this.contentType = contentType;
+		this.uploadTime = uploadTime;
+		this.lastModified = lastModified;
+		this.digest = digest;
+	}
+
+	@Nonnull
+	public String getFileName() {
+		return fileName;
+	}
+
+	@Nonnull
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Method to get the stored file. The file system is not accessed.
+	 * 
+	 * @return The stored file.
+	 */
+	@Nonnull
+	public File getFile() {
+		return new File(path);
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	@Nonnull
+	public String getContentType() {
+		return contentType;
+	}
+
+	public long getUploadTime() {
+		return uploadTime;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Method to check if the entry still describes the stored file: the file
+	 * has not been modified since it was recorded.
+	 * 
+	 * @param currentSize
+	 *            The current size of the file.
+	 * @param currentLastModified
+	 *            The current modification time of the file.
+	 * @return true if the entry is still valid.
+	 */
+	public boolean isUnchanged(final long currentSize, final long currentLastModified) {
+		return size == currentSize && lastModified == currentLastModified;
+	}
+
+	@Nullable
+	public String getDigest() {
+		return digest;
+	}
+}
@@ -0,0 +1,90 @@
+package com.juanjolmm.security.api.service;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Class that contains the validation metadata stored with an uploaded file:
+ * the content type detected when the file was uploaded and the state of the
+ * file and the white list at that moment.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class FileMetadata {
+
+	@Nonnull
+	private final String contentType;
+	@Nonnull
+	private final String whiteListVersion;
+	private final long size;
+	private final long lastModified;
+	@Nullable
+	private final String digest;
+
+	/**
+	 * Constructor with all the metadata of the file.
+	 * 
+	 * @param contentType
+	 *            The detected content type of the file.
+	 * @param whiteListVersion
+	 *            The version of the white list used in the validation.
+	 * @param size
+	 *            The size in bytes of the validated file.
+	 * @param lastModified
+	 *            The modification time in milliseconds of the validated file.
+	 * @param digest
+	 *            The hexadecimal SHA-256 digest of the content or null if it
+	 *            is unknown.
+	 */
+	public FileMetadata(@Nonnull final String contentType, @Nonnull final String whiteListVersion, final long size,
+			final long lastModified, @Nullable final String digest) {
+		this.contentType = contentType;
+		this.whiteListVersion = whiteListVersion;
+		this.size = size;
+		this.lastModified = lastModified;
+		this.digest = digest;
+	}
+
+	/**
+	 * Method to check if the metadata still describes a file: the file has
+	 * not been modified and the white list has not changed since the file
+	 * was validated.
+	 * 
+	 * @param currentSize
+	 *            The current size of the file.
+	 * @param currentLastModified
+	 *            The current modification time of the file.
+	 * @param currentWhiteListVersion
+	 *            The current version of the white list.
+	 * @return true if the metadata is still valid.
+	 */
+	public boolean isUnchanged(final long currentSize, final long currentLastModified,
+			@Nonnull final String currentWhiteListVersion) {
+		return size == currentSize && lastModified == currentLastModified
+				&& whiteListVersion.equals(currentWhiteListVersion);
+	}
+
+	@Nonnull
+	public String getContentType() {
+		return contentType;
+	}
+
+	@Nonnull
+	public String getWhiteListVersion() {
+		return whiteListVersion;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	@Nullable
+	public String getDigest() {
+		return digest;
+	}
+}
@@ -0,0 +1,59 @@
+package com.juanjolmm.security.api.service;
+
+import java.io.File;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Class that contains a page of uploaded files and the cursor to get the
+ * next page.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class FilePage {
+
+	@Nonnull
+	private final List<File> files;
+	@Nullable
+	private final String nextCursor;
+
+	/**
+	 * Constructor with the files of the page and the next cursor.
+	 * 
+	 * @param files
+	 *            The files of the page.
+	 * @param nextCursor
+	 *            The cursor of the next page or null if this is the last page.
+	 */
+	public FilePage(@Nonnull final List<File> files, @Nullable final String nextCursor) {
+		this.files = files;
+		this.nextCursor = nextCursor;
+	}
+
+	@Nonnull
+	public List<File> getFiles() {
+		return files;
+	}
+
+	/**
+	 * Method to get the opaque cursor to request the next page.
+	 * 
+	 * @return The cursor of the next page or null if this is the last page.
+	 */
+	@Nullable
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	/**
+	 * Method to know if there are more files after this page.
+	 * 
+	 * @return True if there is a next page.
+	 */
+	public boolean hasNext() {
+		return nextCursor != null;
+	}
+}
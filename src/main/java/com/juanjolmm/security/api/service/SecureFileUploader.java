@@ -3,10 +3,15 @@ package com.juanjolmm.security.api.service;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import com.juanjolmm.security.exception.RejectionReasonEnum;
 import com.juanjolmm.security.exception.SecureFileUploadException;
 
 /**
@@ -34,6 +39,62 @@ public interface SecureFileUploader {
 	public File upload(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
 			@Nonnull final String requestContentType) throws SecureFileUploadException;
 
+	/**
+	 * Method to upload and store a new file in a secure way, returning the
+	 * information computed while it was stored: its detected content type and
+	 * the configured checksums (upload.checksums), so the stored file does
+	 * not have to be read again.
+	 * 
+	 * @param inputStream
+	 *            Request original input stream.
+	 * @param fileName
+	 *            The original user file name.
+	 * @param requestContentType
+	 *            The request Content-type.
+	 * @return The new created file with its information.
+	 * @throws SecureFileUploadException
+	 *             If the file is not allowable to be uploaded and stored.
+	 */
+	@Nonnull
+	public UploadedFile uploadFile(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+			@Nonnull final String requestContentType) throws SecureFileUploadException;
+
+	/**
+	 * Method to upload and store a new file of an owner (user, tenant...).
+	 * Same as uploadFile, but the file is also counted in the quota of the
+	 * owner (quota.owner.max.bytes and quota.owner.max.files).
+	 * 
+	 * @param inputStream
+	 *            Request original input stream.
+	 * @param fileName
+	 *            The original user file name.
+	 * @param requestContentType
+	 *            The request Content-type.
+	 * @param ownerKey
+	 *            The key of the owner or null if the file has no owner.
+	 * @return The new created file with its information.
+	 * @throws SecureFileUploadException
+	 *             If the file is not allowable to be uploaded and stored or
+	 *             a quota is exhausted.
+	 */
+	@Nonnull
+	public UploadedFile uploadFile(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+			@Nonnull final String requestContentType, @Nullable final String ownerKey)
+			throws SecureFileUploadException;
+
+	/**
+	 * Method to upload and store several files in a secure way. The storage
+	 * folders and the secure owner are prepared once for the batch, the files
+	 * are checked and stored in parallel, and a rejected file does not abort
+	 * the others.
+	 * 
+	 * @param requests
+	 *            The files to upload.
+	 * @return The result of each request, in the same order as the requests.
+	 */
+	@Nonnull
+	public List<UploadResult> uploadAll(@Nonnull final Collection<UploadRequest> requests);
+
 	/**
 	 * Method to get a file list with all the uploaded files.
 	 * 
@@ -42,6 +103,55 @@ public interface SecureFileUploader {
 	@Nonnull
 	public List<File> list();
 
+	/**
+	 * Method to get a page of the uploaded files. The pages are read from the
+	 * storage folder with constant memory.
+	 * 
+	 * @param cursor
+	 *            The cursor returned with the previous page or null to get the
+	 *            first page.
+	 * @param limit
+	 *            The maximum number of files of the page.
+	 * @return The page of files and the cursor of the next page.
+	 * @throws SecureFileUploadException
+	 *             If the cursor or the limit are not valid or the storage
+	 *             folder can not be read.
+	 */
+	@Nonnull
+	public FilePage list(@Nullable final String cursor, final int limit) throws SecureFileUploadException;
+
+	/**
+	 * Method to get a lazy stream of the uploaded files. The storage folder is
+	 * read while the stream is consumed, so it can be stopped without reading
+	 * the remaining files. The stream must be closed.
+	 * 
+	 * @return A stream with the paths of the uploaded files.
+	 */
+	@Nonnull
+	public Stream<Path> stream();
+
+	/**
+	 * Method to get the catalog entries of the files uploaded in a time
+	 * range. The entries are read from the catalog, without accessing the
+	 * storage folder.
+	 * 
+	 * @param fromTime
+	 *            The minimum upload time (inclusive) in milliseconds since the
+	 *            epoch.
+	 * @param toTime
+	 *            The maximum upload time (exclusive) in milliseconds since the
+	 *            epoch.
+	 * @param contentType
+	 *            The detected content type of the files or null for all the
+	 *            types.
+	 * @return The entries sorted by upload time. Empty list if no files found.
+	 * @throws SecureFileUploadException
+	 *             If the catalog is not configured.
+	 */
+	@Nonnull
+	public List<CatalogEntry> list(final long fromTime, final long toTime, @Nullable final String contentType)
+			throws SecureFileUploadException;
+
 	/**
 	 * Method to get the file with the provided name.
 	 * 
@@ -55,4 +165,39 @@ public interface SecureFileUploader {
 	 */
 	@Nonnull
 	public File get(@Nonnull final String fileName) throws FileNotFoundException, SecureFileUploadException;
+
+	/**
+	 * Method to delete the file with the provided name. In the deduplicated
+	 * storage mode the stored content is deleted when no other file is
+	 * linked to it.
+	 * 
+	 * @param fileName
+	 *            The name of the file to delete.
+	 * @throws FileNotFoundException
+	 *             If the file does not exist.
+	 * @throws SecureFileUploadException
+	 *             If the file name is not valid or the file can not be
+	 *             deleted.
+	 */
+	public void delete(@Nonnull final String fileName) throws FileNotFoundException, SecureFileUploadException;
+
+	/**
+	 * Method to establish the listener that receives the time spent in every
+	 * stage of the uploads. The times are not measured while no listener is
+	 * established.
+	 * 
+	 * @param listener
+	 *            The listener or null to disable the metrics.
+	 */
+	public void setMetricsListener(@Nullable final UploadMetricsListener listener);
+
+	/**
+	 * Method to get the number of uploads rejected by a reason since the
+	 * uploader was created.
+	 * 
+	 * @param reason
+	 *            The rejection reason.
+	 * @return The number of rejected uploads.
+	 */
+	public long getRejectionCount(@Nonnull final RejectionReasonEnum reason);
 }
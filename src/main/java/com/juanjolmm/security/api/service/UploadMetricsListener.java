@@ -0,0 +1,33 @@
+package com.juanjolmm.security.api.service;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.juanjolmm.security.api.UploadStageEnum;
+
+/**
+ * Interface to receive the time spent in every stage of the uploads. It is
+ * called by the thread that makes the upload, so the implementations must be
+ * thread safe and fast.
+ *
+ * @author jlopez1
+ *
+ */
+public interface UploadMetricsListener {
+
+	/**
+	 * Method called when an upload completes a stage.
+	 *
+	 * @param stage
+	 *            The completed stage.
+	 * @param contentType
+	 *            The request Content-type, or the detected content type in
+	 *            the stages after the detection. It can contain parameters.
+	 * @param nanos
+	 *            The time spent in the stage in nanoseconds.
+	 * @param bytes
+	 *            The bytes processed in the stage, 0 if they are not known.
+	 */
+	public void onStage(@Nonnull final UploadStageEnum stage, @Nullable final String contentType, final long nanos,
+			final long bytes);
+}
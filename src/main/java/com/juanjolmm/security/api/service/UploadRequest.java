@@ -0,0 +1,53 @@
+package com.juanjolmm.security.api.service;
+
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Class that contains the data of one file of a batch upload.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class UploadRequest {
+
+	@Nonnull
+	private final InputStream inputStream;
+	@Nonnull
+	private final String fileName;
+	@Nonnull
+	private final String requestContentType;
+
+	/**
+	 * Constructor with all the data of the file to upload.
+	 * 
+	 * @param inputStream
+	 *            Request original input stream.
+	 * @param fileName
+	 *            The original user file name.
+	 * @param requestContentType
+	 *            The request Content-type.
+	 */
+	public UploadRequest(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+			@Nonnull final String requestContentType) {
+		this.inputStream = inputStream;
+		this.fileName = fileName;
+		this.requestContentType = requestContentType;
+	}
+
+	@Nonnull
+	public InputStream getInputStream() {
+		return inputStream;
+	}
+
+	@Nonnull
+	public String getFileName() {
+		return fileName;
+	}
+
+	@Nonnull
+	public String getRequestContentType() {
+		return requestContentType;
+	}
+}
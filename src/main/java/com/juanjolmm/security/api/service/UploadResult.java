@@ -0,0 +1,88 @@
+package com.juanjolmm.security.api.service;
+
+import java.io.File;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.juanjolmm.security.exception.SecureFileUploadException;
+
+/**
+ * Class that contains the result of one file of a batch upload: the new
+ * created file or the reason why the file was rejected.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class UploadResult {
+
+	@Nonnull
+	private final UploadRequest request;
+	@Nullable
+	private final File file;
+	@Nullable
+	private final SecureFileUploadException exception;
+
+	/**
+	 * Constructor of a successful result.
+	 * 
+	 * @param request
+	 *            The uploaded request.
+	 * @param file
+	 *            The new created file.
+	 */
+	public UploadResult(@Nonnull final UploadRequest request, @Nonnull final File file) {
+		this.request = request;
+		this.file = file;
+		this.exception = null;
+	}
+
+	/**
+	 * Constructor of a rejected result.
+	 * 
+	 * @param request
+	 *            The rejected request.
+	 * @param exception
+	 *            The reason of the rejection.
+	 */
+	public UploadResult(@Nonnull final UploadRequest request, @Nonnull final SecureFileUploadException exception) {
+		this.request = request;
+		this.file = null;
+		this.exception = exception;
+	}
+
+	@Nonnull
+	public UploadRequest getRequest() {
+		return request;
+	}
+
+	/**
+	 * Method to get the new created file.
+	 * 
+	 * @return The new created file or null if the file was rejected.
+	 */
+	@Nullable
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Method to get the reason of the rejection.
+	 * 
+	 * @return The exception that rejected the file or null if the file was
+	 *         uploaded.
+	 */
+	@Nullable
+	public SecureFileUploadException getException() {
+		return exception;
+	}
+
+	/**
+	 * Method to know if the file was uploaded.
+	 * 
+	 * @return True if the file was uploaded, false if it was rejected.
+	 */
+	public boolean isSuccess() {
+		return file != null;
+	}
+}
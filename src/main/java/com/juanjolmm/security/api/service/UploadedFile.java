@@ -0,0 +1,84 @@
+package com.juanjolmm.security.api.service;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Class that contains an uploaded file and the information computed while it
+ * was stored: its size, its detected content type and the checksums of its
+ * content.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class UploadedFile {
+
+	@Nonnull
+	private final File file;
+	@Nullable
+	private final String contentType;
+	private final long size;
+	@Nonnull
+	private final Map<String, String> checksums;
+
+	/**
+	 * Constructor with the file and its information.
+	 * 
+	 * @param file
+	 *            The stored file.
+	 * @param contentType
+	 *            The detected content type or null if it is not detected yet.
+	 * @param size
+	 *            The size in bytes of the stored content.
+	 * @param checksums
+	 *            The hexadecimal checksums of the content by algorithm.
+	 */
+	public UploadedFile(@Nonnull final File file, @Nullable final String contentType, final long size,
+			@Nonnull final Map<String, String> checksums) {
+		this.file = file;
+		this.contentType = contentType;
+		this.size = size;
+		this.checksums = Collections.unmodifiableMap(checksums);
+	}
+
+	@Nonnull
+	public File getFile() {
+		return file;
+	}
+
+	@Nullable
+	public String getContentType() {
+		return contentType;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Method to get the checksums computed while the file was stored.
+	 * 
+	 * @return The hexadecimal checksums by algorithm. Empty map if no
+	 *         checksums were computed.
+	 */
+	@Nonnull
+	public Map<String, String> getChecksums() {
+		return checksums;
+	}
+
+	/**
+	 * Method to get a checksum computed while the file was stored.
+	 * 
+	 * @param algorithm
+	 *            The checksum algorithm (CRC32C, SHA-256...).
+	 * @return The hexadecimal checksum or null if it was not computed.
+	 */
+	@Nullable
+	public String getChecksum(@Nonnull final String algorithm) {
+		return checksums.get(algorithm);
+	}
+}
@@ -0,0 +1,80 @@
+package com.juanjolmm.security.exception;
+
+/**
+ * Enumeration to define the reasons why an upload or an operation is
+ * rejected. The policy rejections are expected while the service is abused or
+ * overloaded, so their exceptions are created without stack trace.
+ * 
+ * @author jlopez1
+ *
+ */
+public enum RejectionReasonEnum {
+	/**
+	 * The request Content-type is not allowed.
+	 */
+	CONTENT_TYPE(true),
+	/**
+	 * The file extension is not allowed for the request Content-type.
+	 */
+	EXTENSION(true),
+	/**
+	 * The file name or its extension is not valid.
+	 */
+	FILE_NAME(true),
+	/**
+	 * The content type detected from the content does not match the request
+	 * Content-type or the extension.
+	 */
+	HEADER_MISMATCH(true),
+	/**
+	 * The file is bigger than the maximum file size.
+	 */
+	SIZE(true),
+	/**
+	 * The request parameters are missing or not valid.
+	 */
+	INVALID_REQUEST(true),
+	/**
+	 * The storage is saturated: the concurrent writes limit is reached and
+	 * the wait queue is full or the wait timed out. The upload can be retried
+	 * later (e.g. HTTP 503).
+	 */
+	BUSY(true),
+	/**
+	 * The storage quota or the quota of the owner is exhausted.
+	 */
+	QUOTA(true),
+	/**
+	 * The usable space of the file system of the storage is lower than the
+	 * configured low watermark.
+	 */
+	STORAGE_FULL(true),
+	/**
+	 * The content can not be read or stored.
+	 */
+	IO(false),
+	/**
+	 * The owner or the permissions of the file can not be changed.
+	 */
+	PERMISSIONS(false),
+	/**
+	 * Any other error.
+	 */
+	OTHER(false);
+
+	private final boolean policy;
+
+	private RejectionReasonEnum(final boolean policy) {
+		this.policy = policy;
+	}
+
+	/**
+	 * Method to know if the rejection is caused by the upload policy (white
+	 * list, file name, size, load limits and quotas) and not by an error.
+	 * 
+	 * @return True if it is a policy rejection, false in other case.
+	 */
+	public boolean isPolicy() {
+		return policy;
+	}
+}
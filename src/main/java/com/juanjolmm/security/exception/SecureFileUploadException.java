@@ -1,7 +1,12 @@
 package com.juanjolmm.security.exception;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
 /**
- * Custom exception to manage issues in secure file uploading.
+ * Custom exception to manage issues in secure file uploading. Every exception
+ * has the reason of the rejection; the policy rejections are created without
+ * stack trace, so rejecting uploads is cheap.
  * 
  * @author jlopez1
  *
@@ -10,12 +15,48 @@ public class SecureFileUploadException extends Exception {
 
 	private static final long serialVersionUID = 1L;
 	private static final String DEFAULT_EXCEPTION_MESSAGE = "File not allowed";
+	@Nonnull
+	private final RejectionReasonEnum reason;
 
 	/**
-	 * Default constructor.
+	 * Default constructor. The reason is OTHER.
 	 */
 	public SecureFileUploadException() {
-		super(DEFAULT_EXCEPTION_MESSAGE);
+		this(RejectionReasonEnum.OTHER);
+	}
+
+	/**
+	 * Constructor with the reason of the rejection.
+	 * 
+	 * @param reason
+	 *            The reason of the rejection.
+	 */
+	public SecureFileUploadException(@Nonnull final RejectionReasonEnum reason) {
+		this(reason, null);
+	}
+
+	/**
+	 * Constructor with the reason of the rejection and the error that caused
+	 * it.
+	 * 
+	 * @param reason
+	 *            The reason of the rejection.
+	 * @param cause
+	 *            The error that caused the rejection.
+	 */
+	public SecureFileUploadException(@Nonnull final RejectionReasonEnum reason, @Nullable final Throwable cause) {
+		super(DEFAULT_EXCEPTION_MESSAGE, cause, !reason.isPolicy(), !reason.isPolicy());
+		this.reason = reason;
+	}
+
+	/**
+	 * Method to get the reason of the rejection.
+	 * 
+	 * @return The reason of the rejection.
+	 */
+	@Nonnull
+	public RejectionReasonEnum getReason() {
+		return reason;
 	}
 
 }
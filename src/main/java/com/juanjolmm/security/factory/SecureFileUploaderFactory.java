@@ -1,11 +1,35 @@
 package com.juanjolmm.security.factory;
 
+import java.io.ByteArrayInputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
+import com.juanjolmm.security.api.service.AsyncSecureFileUploader;
 import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.impl.operator.SecureConfigurationLoaderImpl;
+import com.juanjolmm.security.impl.operator.TikaContentTypeDetector;
+import com.juanjolmm.security.impl.service.AsyncSecureFileUploaderImpl;
+import com.juanjolmm.security.impl.service.SecureFileUploaderHybrid;
 import com.juanjolmm.security.impl.service.SecureFileUploaderInMemory;
 import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStreaming;
 
 /**
- * Factory to get a SecureFileUploader implementation.
+ * Factory to get a SecureFileUploader implementation. The uploaders are thread
+ * safe and they are shared: every implementation is created once per
+ * configuration, when it is requested for first time.
  * 
  * @author jlopez1
  *
@@ -13,29 +37,223 @@ import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
 public final class SecureFileUploaderFactory {
 
 	/**
-	 * Method to create and return the default secure file uploader object.
+	 * Lazy holder of the default configuration, so the properties files are
+	 * only read when it is used for first time.
+	 */
+	private static final class DefaultConfigurationHolder {
+		private static final SecureConfigurationLoader CONFIG_LOADER = new SecureConfigurationLoaderImpl();
+	}
+
+	/**
+	 * Uploader implementations with their shared instances by configuration.
+	 * The instance of the default configuration is kept while the class is
+	 * loaded. The instances of other configurations are soft values of weak
+	 * keys, because every instance references its configuration: the
+	 * configurations that are no longer used are released with their
+	 * instances when the memory is needed.
+	 */
+	private enum UploaderType {
+		STORED(SecureFileUploaderStored::new),
+		IN_MEMORY(SecureFileUploaderInMemory::new),
+		STREAMING(SecureFileUploaderStreaming::new),
+		HYBRID(SecureFileUploaderHybrid::new);
+
+		@Nonnull
+		private final Function<SecureConfigurationLoader, SecureFileUploader> constructor;
+		@Nullable
+		private volatile SecureFileUploader defaultUploader;
+		@Nonnull
+		private final Map<SecureConfigurationLoader, Reference<SecureFileUploader>> uploaders =
+				new WeakHashMap<SecureConfigurationLoader, Reference<SecureFileUploader>>();
+
+		private UploaderType(@Nonnull final Function<SecureConfigurationLoader, SecureFileUploader> constructor) {
+			this.constructor = constructor;
+		}
+
+		@Nonnull
+		private SecureFileUploader get(@Nonnull final SecureConfigurationLoader configLoader) {
+			if (configLoader == getDefaultConfigurationLoader()) {
+				return getDefault(configLoader);
+			}
+			synchronized (uploaders) {
+				final Reference<SecureFileUploader> reference = uploaders.get(configLoader);
+				SecureFileUploader uploader = reference != null ? reference.get() : null;
+				if (uploader == null) {
+					uploader = constructor.apply(configLoader);
+					uploaders.put(configLoader, new SoftReference<SecureFileUploader>(uploader));
+				}
+				return uploader;
+			}
+		}
+
+		@Nonnull
+		private SecureFileUploader getDefault(@Nonnull final SecureConfigurationLoader configLoader) {
+			SecureFileUploader uploader = defaultUploader;
+			if (uploader == null) {
+				synchronized (this) {
+					uploader = defaultUploader;
+					if (uploader == null) {
+						uploader = constructor.apply(configLoader);
+						defaultUploader = uploader;
+					}
+				}
+			}
+			return uploader;
+		}
+	}
+
+	/**
+	 * Method to load the default configuration and the content type detector
+	 * and to create the default secure file uploader, so the first upload does
+	 * not pay their initialization. It should be called at startup.
+	 */
+	public static void warmUp() {
+		TikaContentTypeDetector.getDefault()
+				.detect(new ByteArrayInputStream("warm up".getBytes(StandardCharsets.US_ASCII)));
+		getDefaultSecureFileUploader();
+	}
+
+	/**
+	 * Method to get the default configuration shared by the uploaders of this
+	 * factory.
+	 * 
+	 * @return The default configuration.
+	 */
+	@Nonnull
+	public static SecureConfigurationLoader getDefaultConfigurationLoader() {
+		return DefaultConfigurationHolder.CONFIG_LOADER;
+	}
+
+	/**
+	 * Method to return the default secure file uploader object.
 	 * 
 	 * @return A default secure file uploader object.
 	 */
 	public static SecureFileUploader getDefaultSecureFileUploader() {
-		return new SecureFileUploaderStored();
+		return getStoredSecureFileUploader();
 	}
 
 	/**
-	 * Method to create and return an stored secure file uploader object.
+	 * Method to return an stored secure file uploader object.
 	 * 
 	 * @return An stored secure file uploader object.
 	 */
 	public static SecureFileUploader getStoredSecureFileUploader() {
-		return new SecureFileUploaderStored();
+		return getStoredSecureFileUploader(getDefaultConfigurationLoader());
+	}
+
+	/**
+	 * Method to return an stored secure file uploader object with the provided
+	 * configuration. The uploader is shared while the configuration is used.
+	 * 
+	 * @param configLoader
+	 *            The configuration of the uploader.
+	 * @return An stored secure file uploader object.
+	 */
+	public static SecureFileUploader getStoredSecureFileUploader(
+			@Nonnull final SecureConfigurationLoader configLoader) {
+		return UploaderType.STORED.get(configLoader);
 	}
 
 	/**
-	 * Method to create and return an in memory secure file uploader object.
+	 * Method to return an in memory secure file uploader object.
 	 * 
 	 * @return An in memory secure file uploader object.
 	 */
 	public static SecureFileUploader getInMemorySecureFileUploader() {
-		return new SecureFileUploaderInMemory();
+		return getInMemorySecureFileUploader(getDefaultConfigurationLoader());
+	}
+
+	/**
+	 * Method to return an in memory secure file uploader object with the
+	 * provided configuration. The uploader is shared while the configuration
+	 * is used.
+	 * 
+	 * @param configLoader
+	 *            The configuration of the uploader.
+	 * @return An in memory secure file uploader object.
+	 */
+	public static SecureFileUploader getInMemorySecureFileUploader(
+			@Nonnull final SecureConfigurationLoader configLoader) {
+		return UploaderType.IN_MEMORY.get(configLoader);
+	}
+
+	/**
+	 * Method to return an streaming secure file uploader object.
+	 * 
+	 * @return An streaming secure file uploader object.
+	 */
+	public static SecureFileUploader getStreamingSecureFileUploader() {
+		return getStreamingSecureFileUploader(getDefaultConfigurationLoader());
+	}
+
+	/**
+	 * Method to return an streaming secure file uploader object with the
+	 * provided configuration. The uploader is shared while the configuration
+	 * is used.
+	 * 
+	 * @param configLoader
+	 *            The configuration of the uploader.
+	 * @return An streaming secure file uploader object.
+	 */
+	public static SecureFileUploader getStreamingSecureFileUploader(
+			@Nonnull final SecureConfigurationLoader configLoader) {
+		return UploaderType.STREAMING.get(configLoader);
+	}
+
+	/**
+	 * Method to return an hybrid secure file uploader object.
+	 * 
+	 * @return An hybrid secure file uploader object.
+	 */
+	public static SecureFileUploader getHybridSecureFileUploader() {
+		return getHybridSecureFileUploader(getDefaultConfigurationLoader());
+	}
+
+	/**
+	 * Method to return an hybrid secure file uploader object with the provided
+	 * configuration. The uploader is shared while the configuration is used.
+	 * 
+	 * @param configLoader
+	 *            The configuration of the uploader.
+	 * @return An hybrid secure file uploader object.
+	 */
+	public static SecureFileUploader getHybridSecureFileUploader(
+			@Nonnull final SecureConfigurationLoader configLoader) {
+		return UploaderType.HYBRID.get(configLoader);
+	}
+
+	/**
+	 * Method to create and return an asynchronous secure file uploader object
+	 * that runs the provided uploader in the provided executor.
+	 * 
+	 * @param fileUploader
+	 *            The uploader that makes the checks and stores the files.
+	 * @param executor
+	 *            The executor where the uploads are run.
+	 * @param maxInFlightUploads
+	 *            The maximum number of uploads in progress.
+	 * @return An asynchronous secure file uploader object.
+	 */
+	public static AsyncSecureFileUploader getAsyncSecureFileUploader(@Nonnull final SecureFileUploader fileUploader,
+			@Nonnull final Executor executor, final int maxInFlightUploads) {
+		return new AsyncSecureFileUploaderImpl(fileUploader, executor, maxInFlightUploads);
+	}
+
+	/**
+	 * Method to create an executor that starts a new virtual thread for each
+	 * upload (Java 21 or newer). In older Java versions a cached thread pool is
+	 * returned. The number of threads is bounded by the maximum number of
+	 * uploads in progress of the asynchronous uploader.
+	 * 
+	 * @return A new executor service.
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
 	}
 }
@@ -0,0 +1,380 @@
+package com.juanjolmm.security.impl.operator;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.juanjolmm.security.api.operator.FileCatalog;
+import com.juanjolmm.security.api.service.CatalogEntry;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+
+/**
+ * Implementation of FileCatalog backed by an append-only log file and an
+ * in-memory index. Every change is appended to the log as one line with a
+ * CRC32 checksum and synced to disk before the index is updated. The index
+ * is rebuilt from the log when the catalog is opened: a torn tail (an
+ * unterminated last line), left by a crash while writing, is discarded and
+ * the corrupted records are skipped, so the valid records after them are
+ * kept. The log is compacted when it is opened if most of its records are
+ * obsolete.
+ * <p>
+ * Only one instance is created for each log file, so all the uploaders that
+ * use the same configuration share it.
+ *
+ * @author jlopez1
+ *
+ */
+public final class LogFileCatalog implements FileCatalog, Closeable {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(LogFileCatalog.class);
+	private static final Map<Path, LogFileCatalog> OPEN_CATALOGS = new ConcurrentHashMap<Path, LogFileCatalog>();
+	private static final String ADD_RECORD = "A";
+	private static final String REMOVE_RECORD = "R";
+	private static final char FIELD_SEPARATOR = '\t';
+	private static final String NULL_FIELD = "-";
+	private static final int ADD_RECORD_FIELDS = 8;
+	private static final int REMOVE_RECORD_FIELDS = 2;
+	/**
+	 * Minimum number of records of the log before it can be compacted.
+	 */
+	private static final int MIN_COMPACTION_RECORDS = 1024;
+	private static final Comparator<CatalogEntry> UPLOAD_TIME_ORDER = Comparator
+			.comparingLong(CatalogEntry::getUploadTime).thenComparing(CatalogEntry::getFileName);
+	@Nonnull
+	private final Path logFile;
+	@Nonnull
+	private final FileChannel channel;
+	private final Map<String, CatalogEntry> entriesByName = new ConcurrentHashMap<String, CatalogEntry>();
+	private final NavigableSet<CatalogEntry> entriesByTime = new ConcurrentSkipListSet<CatalogEntry>(
+			UPLOAD_TIME_ORDER);
+	private long records;
+
+	private LogFileCatalog(@Nonnull final Path logFile) throws IOException {
+		this.logFile = logFile;
+		final Path parent = logFile.getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		long validLength = Files.exists(logFile) ? load() : 0;
+		if (records > MIN_COMPACTION_RECORDS && records > 2L * entriesByName.size()) {
+			validLength = compact();
+		}
+		channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		if (channel.size() > validLength) {
+			LOGGER.warn("Discarded the corrupted tail of the catalog " + logFile);
+			channel.truncate(validLength);
+		}
+		channel.position(channel.size());
+	}
+
+	/**
+	 * Method to get the catalog of a log file. The log is read only the first
+	 * time the catalog is opened.
+	 *
+	 * @param logFile
+	 *            The path of the log file. It is created if it does not exist.
+	 * @return The catalog of the log file.
+	 * @throws IOException
+	 *             If the log file can not be read or created.
+	 */
+	@Nonnull
+	public static LogFileCatalog open(@Nonnull final String logFile) throws IOException {
+		final Path path = Paths.get(logFile).toAbsolutePath().normalize();
+		try {
+			return OPEN_CATALOGS.computeIfAbsent(path, key -> {
+				try {
+					return new LogFileCatalog(key);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	@Override
+	public void add(@Nonnull final CatalogEntry entry) throws SecureFileUploadException {
+		final String record = toAddRecord(entry);
+		synchronized (this) {
+			append(record);
+			index(entry);
+		}
+	}
+
+	@Override
+	public void remove(@Nonnull final String fileName) throws SecureFileUploadException {
+		synchronized (this) {
+			if (entriesByName.containsKey(fileName)) {
+				append(REMOVE_RECORD + FIELD_SEPARATOR + escape(fileName));
+				unindex(fileName);
+			}
+		}
+	}
+
+	@Override
+	@Nullable
+	public CatalogEntry get(@Nonnull final String fileName) {
+		return entriesByName.get(fileName);
+	}
+
+	@Override
+	@Nonnull
+	public List<CatalogEntry> list(final long fromTime, final long toTime, @Nullable final String contentType) {
+		final List<CatalogEntry> entries = new ArrayList<CatalogEntry>();
+		if (fromTime < toTime) {
+			// The empty name is the first one of each upload time.
+			for (CatalogEntry entry : entriesByTime.subSet(new CatalogEntry("", "", 0, "", fromTime, null), true,
+					new CatalogEntry("", "", 0, "", toTime, null), false)) {
+				if (contentType == null || contentType.equalsIgnoreCase(entry.getContentType())) {
+					entries.add(entry);
+				}
+			}
+		}
+		return entries;
+	}
+
+	@Override
+	public int size() {
+		return entriesByName.size();
+	}
+
+	/**
+	 * Method to close the log file. The next call to
+	 * {@link #open(String)} reads the log again.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			OPEN_CATALOGS.remove(logFile, this);
+			channel.close();
+		}
+	}
+
+	private void index(@Nonnull final CatalogEntry entry) {
+		final CatalogEntry previous = entriesByName.put(entry.getFileName(), entry);
+		if (previous != null) {
+			entriesByTime.remove(previous);
+		}
+		entriesByTime.add(entry);
+	}
+
+	private void unindex(@Nonnull final String fileName) {
+		final CatalogEntry previous = entriesByName.remove(fileName);
+		if (previous != null) {
+			entriesByTime.remove(previous);
+		}
+	}
+
+	private void append(@Nonnull final String record) throws SecureFileUploadException {
+		final ByteBuffer buffer = ByteBuffer.wrap(toLine(record));
+		long position = -1;
+		try {
+			position = channel.position();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(false);
+			records++;
+		} catch (IOException e) {
+			LOGGER.error("Error while writing in the catalog." + e.getMessage());
+			discardPartialRecord(position);
+			throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
+		}
+	}
+
+	/**
+	 * Removes the bytes of a record that could not be completely written, so
+	 * the next records are not appended after a corrupted line.
+	 */
+	private void discardPartialRecord(final long position) {
+		if (position >= 0) {
+			try {
+				channel.truncate(position);
+				channel.position(position);
+			} catch (IOException e) {
+				LOGGER.error("Error while discarding a partial record of the catalog." + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Reads the log and returns the length of its terminated lines. Only the
+	 * unterminated last line is a torn record; the corrupted lines before it
+	 * are skipped.
+	 */
+	private long load() throws IOException {
+		long validLength = 0;
+		final InputStream inputStream = new BufferedInputStream(Files.newInputStream(logFile));
+		try {
+			final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+			int readByte;
+			while ((readByte = inputStream.read()) != -1) {
+				if (readByte != '\n') {
+					line.write(readByte);
+					continue;
+				}
+				if (!applyRecord(new String(line.toByteArray(), StandardCharsets.UTF_8))) {
+					LOGGER.warn("Skipped a corrupted record at the byte " + validLength + " of the catalog " + logFile);
+				}
+				// The skipped records are counted too, so the compaction removes
+				// them.
+				validLength += line.size() + 1;
+				records++;
+				line.reset();
+			}
+		} finally {
+			IOUtils.closeQuietly(inputStream);
+		}
+		return validLength;
+	}
+
+	private boolean applyRecord(@Nonnull final String line) {
+		final int checksumSeparator = line.lastIndexOf(FIELD_SEPARATOR);
+		if (checksumSeparator < 0) {
+			return false;
+		}
+		final String record = line.substring(0, checksumSeparator);
+		if (!checksum(record).equals(line.substring(checksumSeparator + 1))) {
+			return false;
+		}
+		final String[] fields = record.split(String.valueOf(FIELD_SEPARATOR), -1);
+		try {
+			if (ADD_RECORD.equals(fields[0]) && fields.length == ADD_RECORD_FIELDS) {
+				index(new CatalogEntry(unescape(fields[1]), unescape(fields[2]), Long.parseLong(fields[3]),
+						unescape(fields[4]), Long.parseLong(fields[5]), Long.parseLong(fields[6]),
+						NULL_FIELD.equals(fields[7]) ? null : unescape(fields[7])));
+				return true;
+			} else if (REMOVE_RECORD.equals(fields[0]) && fields.length == REMOVE_RECORD_FIELDS) {
+				unindex(unescape(fields[1]));
+				return true;
+			}
+		} catch (NumberFormatException e) {
+			// Invalid record, skipped by the caller.
+		}
+		return false;
+	}
+
+	/**
+	 * Rewrites the log with only the current entries and returns its length.
+	 * The new log replaces the old one atomically.
+	 */
+	private long compact() throws IOException {
+		final Path compactedFile = logFile.resolveSibling(logFile.getFileName() + ".compact");
+		final OutputStream outputStream = Files.newOutputStream(compactedFile);
+		try {
+			final List<CatalogEntry> entries = new ArrayList<CatalogEntry>(entriesByTime);
+			entriesByName.clear();
+			entriesByTime.clear();
+			for (CatalogEntry entry : entries) {
+				outputStream.write(toLine(toAddRecord(entry)));
+				index(entry);
+			}
+			records = entries.size();
+		} finally {
+			IOUtils.closeQuietly(outputStream);
+		}
+		final FileChannel compactedChannel = FileChannel.open(compactedFile, StandardOpenOption.WRITE);
+		try {
+			compactedChannel.force(true);
+		} finally {
+			IOUtils.closeQuietly(compactedChannel);
+		}
+		Files.move(compactedFile, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return Files.size(logFile);
+	}
+
+	@Nonnull
+	private static String toAddRecord(@Nonnull final CatalogEntry entry) {
+		return new StringBuilder(256).append(ADD_RECORD).append(FIELD_SEPARATOR).append(escape(entry.getFileName()))
+				.append(FIELD_SEPARATOR).append(escape(entry.getPath())).append(FIELD_SEPARATOR)
+				.append(entry.getSize()).append(FIELD_SEPARATOR).append(escape(entry.getContentType()))
+				.append(FIELD_SEPARATOR).append(entry.getUploadTime()).append(FIELD_SEPARATOR)
+				.append(entry.getLastModified()).append(FIELD_SEPARATOR)
+				.append(entry.getDigest() != null ? escape(entry.getDigest()) : NULL_FIELD).toString();
+	}
+
+	@Nonnull
+	private static byte[] toLine(@Nonnull final String record) {
+		return (record + FIELD_SEPARATOR + checksum(record) + '\n').getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Nonnull
+	private static String checksum(@Nonnull final String record) {
+		final CRC32 crc = new CRC32();
+		crc.update(record.getBytes(StandardCharsets.UTF_8));
+		return Long.toHexString(crc.getValue());
+	}
+
+	@Nonnull
+	private static String escape(@Nonnull final String field) {
+		final StringBuilder escaped = new StringBuilder(field.length());
+		for (int i = 0; i < field.length(); i++) {
+			final char c = field.charAt(i);
+			switch (c) {
+			case '\\':
+				escaped.append("\\\\");
+				break;
+			case '\t':
+				escaped.append("\\t");
+				break;
+			case '\n':
+				escaped.append("\\n");
+				break;
+			case '\r':
+				escaped.append("\\r");
+				break;
+			default:
+				escaped.append(c);
+			}
+		}
+		return escaped.toString();
+	}
+
+	@Nonnull
+	private static String unescape(@Nonnull final String field) {
+		if (field.indexOf('\\') < 0) {
+			return field;
+		}
+		final StringBuilder unescaped = new StringBuilder(field.length());
+		for (int i = 0; i < field.length(); i++) {
+			final char c = field.charAt(i);
+			if (c == '\\' && i + 1 < field.length()) {
+				final char escapedChar = field.charAt(++i);
+				unescaped.append(escapedChar == 't' ? '\t' : escapedChar == 'n' ? '\n' : escapedChar == 'r' ? '\r'
+						: escapedChar);
+			} else {
+				unescaped.append(c);
+			}
+		}
+		return unescaped.toString();
+	}
+}
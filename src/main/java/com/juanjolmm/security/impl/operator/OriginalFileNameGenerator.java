@@ -0,0 +1,42 @@
+package com.juanjolmm.security.impl.operator;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import javax.annotation.Nonnull;
+
+import com.juanjolmm.security.api.operator.FileNameGenerator;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.util.FileNameValidator;
+
+/**
+ * Implementation of FileNameGenerator that keeps the original base name
+ * followed by the upload timestamp. When a file with the same name was
+ * uploaded in the same second, the attempt number is appended so the
+ * previous file is not overwritten.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class OriginalFileNameGenerator implements FileNameGenerator {
+
+	private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+	@Override
+	@Nonnull
+	public String generate(@Nonnull final String initialFileName, final int attempt)
+			throws SecureFileUploadException {
+		final long validation = FileNameValidator.validate(initialFileName);
+		if (validation == FileNameValidator.INVALID) {
+			throw new SecureFileUploadException(RejectionReasonEnum.FILE_NAME);
+		}
+		final StringBuilder fileName = new StringBuilder(initialFileName.length() + 24);
+		fileName.append(FileNameValidator.getBaseName(initialFileName, validation)).append('_');
+		TIMESTAMP_FORMATTER.formatTo(LocalDateTime.now(), fileName);
+		if (attempt > 0) {
+			fileName.append('_').append(attempt);
+		}
+		return fileName.append('.').append(FileNameValidator.getExtension(initialFileName, validation)).toString();
+	}
+}
@@ -0,0 +1,433 @@
+package com.juanjolmm.security.impl.operator;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.juanjolmm.security.api.ContentTypeWhiteList;
+import com.juanjolmm.security.api.FileNameModeEnum;
+import com.juanjolmm.security.api.StorageModeEnum;
+import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
+
+/**
+ * SecureConfigurationLoader implementation that reloads the configuration
+ * and white list properties when they change. The properties are parsed into
+ * an immutable snapshot published through a volatile reference, so the
+ * configuration is read without locks. The files are watched with a
+ * WatchService when the resources are files, and their modification time is
+ * polled in other case. If a resource can not be read or it is not valid (an
+ * empty white list or a missing required property, as left by a file being
+ * written) the previous snapshot is kept.
+ *
+ * The storage folder of the first snapshot is kept by all the next ones,
+ * because the uploaders, quotas and write limits are bound to it. Changes of
+ * the catalog file and the validation cache size require new uploaders.
+ *
+ * @author jlopez1
+ *
+ */
+public final class ReloadingSecureConfigurationLoader implements SecureConfigurationLoader, Closeable {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(ReloadingSecureConfigurationLoader.class);
+	/**
+	 * Default interval in milliseconds between the checks of the resources.
+	 */
+	public static final long DEFAULT_POLLING_INTERVAL = 5000;
+	/**
+	 * Configuration properties that every snapshot must contain.
+	 */
+	@Nonnull
+	private static final String[] REQUIRED_PROPERTIES = { SecureConfigurationLoaderImpl.MAX_FILE_SIZE_PROPERTY };
+	@Nonnull
+	private final ClassLoader classLoader;
+	private final long pollingInterval;
+	@Nonnull
+	private volatile SecureConfigurationLoaderImpl snapshot;
+	/**
+	 * Storage folder of the first snapshot, null while it is loaded.
+	 */
+	@Nullable
+	private String storageFolder;
+	/**
+	 * Modification time of the resources of the current snapshot.
+	 */
+	private long lastModified;
+	@Nullable
+	private final WatchService watchService;
+	@Nonnull
+	private final Thread watcher;
+	private volatile boolean closed;
+
+	/**
+	 * Default constructor. The configuration is loaded from the class path and
+	 * checked every DEFAULT_POLLING_INTERVAL milliseconds.
+	 *
+	 * @throws IOException
+	 *             If the configuration can not be loaded.
+	 */
+	public ReloadingSecureConfigurationLoader() throws IOException {
+		this(ReloadingSecureConfigurationLoader.class.getClassLoader(), DEFAULT_POLLING_INTERVAL);
+	}
+
+	/**
+	 * Constructor to load the configuration from the provided class loader.
+	 *
+	 * @param classLoader
+	 *            The class loader of the configuration resources.
+	 * @param pollingInterval
+	 *            The interval in milliseconds between the checks of the
+	 *            resources.
+	 * @throws IOException
+	 *             If the configuration can not be loaded.
+	 */
+	public ReloadingSecureConfigurationLoader(@Nonnull final ClassLoader classLoader, final long pollingInterval)
+			throws IOException {
+		if (pollingInterval <= 0) {
+			throw new IllegalArgumentException("Polling interval must be positive.");
+		}
+		this.classLoader = classLoader;
+		this.pollingInterval = pollingInterval;
+		this.lastModified = getLastModified();
+		this.snapshot = loadSnapshot();
+		this.storageFolder = snapshot.getStorageFolder();
+		this.watchService = createWatchService();
+		this.watcher = new Thread(this::watch, "secure-file-upload-config-watcher");
+		this.watcher.setDaemon(true);
+		this.watcher.start();
+	}
+
+	/**
+	 * Method to reload the configuration now. If a resource can not be read
+	 * or it is not valid the current snapshot is kept.
+	 *
+	 * @return True if a new snapshot was loaded, false in other case.
+	 */
+	public synchronized boolean reload() {
+		try {
+			final long modified = getLastModified();
+			snapshot = loadSnapshot();
+			lastModified = modified;
+			LOGGER.info("Secure file upload configuration reloaded.");
+			return true;
+		} catch (IOException e) {
+			LOGGER.warn("Error while reloading the configuration. Previous configuration kept. " + e.getMessage());
+			return false;
+		}
+	}
+
+	/**
+	 * Method to get the current immutable snapshot of the configuration, to
+	 * read several properties from the same configuration.
+	 *
+	 * @return The current configuration.
+	 */
+	@Nonnull
+	public SecureConfigurationLoader getSnapshot() {
+		return snapshot;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		watcher.interrupt();
+		if (watchService != null) {
+			watchService.close();
+		}
+	}
+
+	private void watch() {
+		while (!closed) {
+			try {
+				boolean changed = false;
+				if (watchService != null) {
+					final WatchKey key = watchService.poll(pollingInterval, TimeUnit.MILLISECONDS);
+					if (key != null) {
+						changed = isResourceEvent(key.pollEvents());
+						key.reset();
+					}
+				} else {
+					Thread.sleep(pollingInterval);
+				}
+				if (changed || isModified()) {
+					reload();
+				}
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+		}
+	}
+
+	private boolean isResourceEvent(@Nonnull final List<WatchEvent<?>> events) {
+		for (WatchEvent<?> event : events) {
+			final Object context = event.context();
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || context instanceof Path
+					&& (SecureConfigurationLoaderImpl.SECURE_PROPERTIES_CONFIG_FILE.equals(context.toString())
+							|| SecureConfigurationLoaderImpl.SECURE_PROPERTIES_WHITELIST_FILE
+									.equals(context.toString()))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private synchronized boolean isModified() {
+		try {
+			return getLastModified() != lastModified;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Loads and validates a new snapshot. The storage folder of the first
+	 * snapshot replaces the configured one.
+	 */
+	@Nonnull
+	private SecureConfigurationLoaderImpl loadSnapshot() throws IOException {
+		final Properties configProperties = loadProperties(SecureConfigurationLoaderImpl.SECURE_PROPERTIES_CONFIG_FILE);
+		final Properties whiteListProperties = loadProperties(
+				SecureConfigurationLoaderImpl.SECURE_PROPERTIES_WHITELIST_FILE);
+		for (String property : REQUIRED_PROPERTIES) {
+			if (configProperties.getProperty(property, "").trim().isEmpty()) {
+				throw new IOException("Required property " + property + " not configured.");
+			}
+		}
+		if (whiteListProperties.isEmpty()) {
+			throw new IOException("Empty white list.");
+		}
+		if (storageFolder != null) {
+			final String configuredFolder = configProperties
+					.getProperty(SecureConfigurationLoaderImpl.DEFAULT_STORAGE_FOLDER_PROPERTY);
+			if (configuredFolder != null && !storageFolder.equals(configuredFolder.trim())) {
+				LOGGER.warn("The storage folder can not be changed without restarting. Storage folder "
+						+ storageFolder + " kept.");
+			}
+			configProperties.setProperty(SecureConfigurationLoaderImpl.DEFAULT_STORAGE_FOLDER_PROPERTY,
+					storageFolder);
+		}
+		return new SecureConfigurationLoaderImpl(configProperties, whiteListProperties);
+	}
+
+	@Nonnull
+	private Properties loadProperties(@Nonnull final String resourceName) throws IOException {
+		final URLConnection connection = getResource(resourceName).openConnection();
+		connection.setUseCaches(false);
+		final Properties properties = new Properties();
+		try (InputStream inputStream = connection.getInputStream()) {
+			properties.load(inputStream);
+		}
+		return properties;
+	}
+
+	private long getLastModified() throws IOException {
+		long modified = 0;
+		for (String resourceName : new String[] { SecureConfigurationLoaderImpl.SECURE_PROPERTIES_CONFIG_FILE,
+				SecureConfigurationLoaderImpl.SECURE_PROPERTIES_WHITELIST_FILE }) {
+			final File file = getResourceFile(getResource(resourceName));
+			if (file != null) {
+				modified = 31 * modified + file.lastModified() + file.length();
+			} else {
+				final URLConnection connection = getResource(resourceName).openConnection();
+				connection.setUseCaches(false);
+				modified = 31 * modified + connection.getLastModified();
+			}
+		}
+		return modified;
+	}
+
+	@Nullable
+	private WatchService createWatchService() {
+		final Set<Path> folders = new HashSet<Path>();
+		try {
+			for (String resourceName : new String[] { SecureConfigurationLoaderImpl.SECURE_PROPERTIES_CONFIG_FILE,
+					SecureConfigurationLoaderImpl.SECURE_PROPERTIES_WHITELIST_FILE }) {
+				final File file = getResourceFile(getResource(resourceName));
+				if (file == null) {
+					return null;
+				}
+				folders.add(file.getAbsoluteFile().getParentFile().toPath());
+			}
+			final WatchService newWatchService = FileSystems.getDefault().newWatchService();
+			try {
+				for (Path folder : folders) {
+					folder.register(newWatchService, StandardWatchEventKinds.ENTRY_CREATE,
+							StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+				}
+			} catch (IOException e) {
+				newWatchService.close();
+				throw e;
+			}
+			return newWatchService;
+		} catch (IOException | UnsupportedOperationException e) {
+			LOGGER.warn("Configuration files can not be watched. Polling established. " + e.getMessage());
+			return null;
+		}
+	}
+
+	@Nonnull
+	private URL getResource(@Nonnull final String resourceName) throws IOException {
+		final URL resourceURL = classLoader.getResource(resourceName);
+		if (resourceURL == null) {
+			throw new IOException("Resource " + resourceName + " not found.");
+		}
+		return resourceURL;
+	}
+
+	@Nullable
+	private static File getResourceFile(@Nonnull final URL resourceURL) {
+		if (!"file".equals(resourceURL.getProtocol())) {
+			return null;
+		}
+		try {
+			return new File(resourceURL.toURI());
+		} catch (URISyntaxException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	@Override
+	public boolean existsContentType(@Nonnull final String contentType) {
+		return snapshot.existsContentType(contentType);
+	}
+
+	@Override
+	@Nullable
+	public List<String> getContentTypeExtensions(@Nonnull final String contentType) {
+		return snapshot.getContentTypeExtensions(contentType);
+	}
+
+	@Override
+	@Nonnull
+	public ContentTypeWhiteList getWhiteList() {
+		return snapshot.getWhiteList();
+	}
+
+	@Override
+	public long getMaxFileSize() {
+		return snapshot.getMaxFileSize();
+	}
+
+	@Override
+	public int getDetectionPrefixSize() {
+		return snapshot.getDetectionPrefixSize();
+	}
+
+	@Override
+	public int getMemoryThreshold() {
+		return snapshot.getMemoryThreshold();
+	}
+
+	@Override
+	public int getBatchParallelism() {
+		return snapshot.getBatchParallelism();
+	}
+
+	@Override
+	@Nonnull
+	public String getStorageFolder() {
+		return snapshot.getStorageFolder();
+	}
+
+	@Override
+	public int getStorageShardLevels() {
+		return snapshot.getStorageShardLevels();
+	}
+
+	@Override
+	@Nonnull
+	public StorageModeEnum getStorageMode() {
+		return snapshot.getStorageMode();
+	}
+
+	@Override
+	public int getMaxConcurrentWrites() {
+		return snapshot.getMaxConcurrentWrites();
+	}
+
+	@Override
+	public int getMaxQueuedWrites() {
+		return snapshot.getMaxQueuedWrites();
+	}
+
+	@Override
+	public long getQueuedWriteTimeout() {
+		return snapshot.getQueuedWriteTimeout();
+	}
+
+	@Override
+	public long getQuotaMaxBytes() {
+		return snapshot.getQuotaMaxBytes();
+	}
+
+	@Override
+	public long getQuotaMaxFiles() {
+		return snapshot.getQuotaMaxFiles();
+	}
+
+	@Override
+	public long getOwnerQuotaMaxBytes() {
+		return snapshot.getOwnerQuotaMaxBytes();
+	}
+
+	@Override
+	public long getOwnerQuotaMaxFiles() {
+		return snapshot.getOwnerQuotaMaxFiles();
+	}
+
+	@Override
+	public long getMinUsableSpace() {
+		return snapshot.getMinUsableSpace();
+	}
+
+	@Override
+	@Nullable
+	public String getCatalogFile() {
+		return snapshot.getCatalogFile();
+	}
+
+	@Override
+	public int getValidationCacheSize() {
+		return snapshot.getValidationCacheSize();
+	}
+
+	@Override
+	@Nonnull
+	public List<String> getUploadChecksums() {
+		return snapshot.getUploadChecksums();
+	}
+
+	@Override
+	@Nonnull
+	public FileNameModeEnum getFileNameMode() {
+		return snapshot.getFileNameMode();
+	}
+
+	@Override
+	@Nullable
+	public String getSecureFileOwner() {
+		return snapshot.getSecureFileOwner();
+	}
+
+}
@@ -5,7 +5,9 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -18,8 +20,12 @@ import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.juanjolmm.security.api.ContentTypeWhiteList;
 import com.juanjolmm.security.api.FileNameModeEnum;
+import com.juanjolmm.security.api.StorageModeEnum;
 import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
+import com.juanjolmm.security.impl.util.Checksums;
+import com.juanjolmm.security.impl.util.StorageShards;
 
 /**
  * SecureConfigurationLoader implementation used to load and store the
@@ -32,22 +38,73 @@ public final class SecureConfigurationLoaderImpl implements SecureConfigurationL
 
 	private static Logger LOGGER = LoggerFactory.getLogger(SecureConfigurationLoaderImpl.class);
 	@Nonnull
-	private final Map<String, List<String>> contentTypeExtensionsWhiteList;
+	private ContentTypeWhiteList whiteList;
 	@Nonnull
-	private static final String SECURE_PROPERTIES_CONFIG_FILE = "secure-file-upload_config.properties";
+	static final String SECURE_PROPERTIES_CONFIG_FILE = "secure-file-upload_config.properties";
 	@Nonnull
-	private static final String SECURE_PROPERTIES_WHITELIST_FILE = "secure-file-upload_whitelist.properties";
+	static final String SECURE_PROPERTIES_WHITELIST_FILE = "secure-file-upload_whitelist.properties";
 	@Nonnull
-	private static final String MAX_FILE_SIZE_PROPERTY = "max.file.size";
+	static final String MAX_FILE_SIZE_PROPERTY = "max.file.size";
 	@Nonnull
-	private static final String DEFAULT_STORAGE_FOLDER_PROPERTY = "default.storage.folder";
+	private static final String DETECTION_PREFIX_SIZE_PROPERTY = "detection.prefix.size";
+	@Nonnull
+	private static final String MEMORY_THRESHOLD_PROPERTY = "memory.threshold";
+	@Nonnull
+	private static final String BATCH_PARALLELISM_PROPERTY = "batch.parallelism";
+	@Nonnull
+	static final String DEFAULT_STORAGE_FOLDER_PROPERTY = "default.storage.folder";
+	@Nonnull
+	private static final String STORAGE_SHARD_LEVELS_PROPERTY = "storage.shard.levels";
+	@Nonnull
+	private static final String STORAGE_MODE_PROPERTY = "storage.mode";
+	@Nonnull
+	private static final String MAX_CONCURRENT_WRITES_PROPERTY = "max.concurrent.writes";
+	@Nonnull
+	private static final String MAX_QUEUED_WRITES_PROPERTY = "max.queued.writes";
+	@Nonnull
+	private static final String QUEUED_WRITE_TIMEOUT_PROPERTY = "queued.write.timeout";
+	@Nonnull
+	private static final String QUOTA_MAX_BYTES_PROPERTY = "quota.max.bytes";
+	@Nonnull
+	private static final String QUOTA_MAX_FILES_PROPERTY = "quota.max.files";
+	@Nonnull
+	private static final String OWNER_QUOTA_MAX_BYTES_PROPERTY = "quota.owner.max.bytes";
+	@Nonnull
+	private static final String OWNER_QUOTA_MAX_FILES_PROPERTY = "quota.owner.max.files";
+	@Nonnull
+	private static final String MIN_USABLE_SPACE_PROPERTY = "min.usable.space";
+	@Nonnull
+	private static final String CATALOG_FILE_PROPERTY = "catalog.file";
+	@Nonnull
+	private static final String UPLOAD_CHECKSUMS_PROPERTY = "upload.checksums";
+	@Nonnull
+	private static final String VALIDATION_CACHE_SIZE_PROPERTY = "validation.cache.size";
 	@Nonnull
 	private static final String FILE_NAME_MODE_PROPERTY = "file.name.mode";
 	@Nonnull
 	private static final String SECURE_FILE_OWNER_PROPERTY = "secure.file.owner";
 	private long maxFileSize = 10 * 1024 * 1024;
+	private int detectionPrefixSize = TikaContentTypeDetector.getMinLength();
+	private int memoryThreshold = 1024 * 1024;
+	private int batchParallelism = Runtime.getRuntime().availableProcessors();
 	@Nonnull
 	private String defaultStorageFolder = "uploadedfiles";
+	private int storageShardLevels = 0;
+	@Nonnull
+	private StorageModeEnum storageMode = StorageModeEnum.FILE;
+	private int maxConcurrentWrites = 0;
+	private int maxQueuedWrites = 64;
+	private long queuedWriteTimeout = 1000;
+	private long quotaMaxBytes = 0;
+	private long quotaMaxFiles = 0;
+	private long ownerQuotaMaxBytes = 0;
+	private long ownerQuotaMaxFiles = 0;
+	private long minUsableSpace = 0;
+	@Nullable
+	private String catalogFile;
+	private int validationCacheSize = 10000;
+	@Nonnull
+	private List<String> uploadChecksums = Collections.emptyList();
 	@Nonnull
 	private FileNameModeEnum fileNameMode = FileNameModeEnum.SECURE;
 	@Nullable
@@ -59,19 +116,31 @@ public final class SecureConfigurationLoaderImpl implements SecureConfigurationL
 	 */
 	public SecureConfigurationLoaderImpl() {
 		loadConfigValues();
-		contentTypeExtensionsWhiteList = new HashMap<String, List<String>>();
+		whiteList = new ContentTypeWhiteList(new HashMap<String, List<String>>());
 		loadWhiteListValues();
 	}
 
+	/**
+	 * Constructor used to create an immutable snapshot of already read
+	 * configuration and white list properties.
+	 * 
+	 * @param configProperties
+	 *            The configuration properties.
+	 * @param whiteListProperties
+	 *            The white list properties.
+	 */
+	SecureConfigurationLoaderImpl(@Nonnull final Properties configProperties,
+			@Nonnull final Properties whiteListProperties) {
+		initConfigValues(configProperties);
+		initWhiteList(whiteListProperties);
+	}
+
 	private void loadConfigValues() {
 		try {
 			final InputStream configStream = getResource(SECURE_PROPERTIES_CONFIG_FILE);
 			final Properties configProperties = new Properties();
 			configProperties.load(configStream);
-			initMaxFileSize(configProperties);
-			initStorageFolder(configProperties);
-			initFileNameMode(configProperties);
-			initSecureFileOwner(configProperties);
+			initConfigValues(configProperties);
 		} catch (IOException e) {
 			LOGGER.warn(
 					"Config file not found. Loading all configuration parameters with default value. "
@@ -79,6 +148,29 @@ public final class SecureConfigurationLoaderImpl implements SecureConfigurationL
 		}
 	}
 
+	private void initConfigValues(@Nonnull final Properties configProperties) {
+		initMaxFileSize(configProperties);
+		initDetectionPrefixSize(configProperties);
+		initMemoryThreshold(configProperties);
+		initBatchParallelism(configProperties);
+		initStorageFolder(configProperties);
+		initStorageShardLevels(configProperties);
+		initStorageMode(configProperties);
+		initMaxConcurrentWrites(configProperties);
+		initMaxQueuedWrites(configProperties);
+		initQueuedWriteTimeout(configProperties);
+		initQuotaMaxBytes(configProperties);
+		initQuotaMaxFiles(configProperties);
+		initOwnerQuotaMaxBytes(configProperties);
+		initOwnerQuotaMaxFiles(configProperties);
+		initMinUsableSpace(configProperties);
+		initCatalogFile(configProperties);
+		initValidationCacheSize(configProperties);
+		initUploadChecksums(configProperties);
+		initFileNameMode(configProperties);
+		initSecureFileOwner(configProperties);
+	}
+
 	private void loadWhiteListValues() {
 		try {
 			final InputStream whiteListStream = getResource(SECURE_PROPERTIES_WHITELIST_FILE);
@@ -104,6 +196,7 @@ public final class SecureConfigurationLoaderImpl implements SecureConfigurationL
 	}
 
 	private void initWhiteList(@Nonnull final Properties properties) {
+		final Map<String, List<String>> contentTypeExtensionsWhiteList = new HashMap<String, List<String>>();
 		Set<Object> contentTypes = properties.keySet();
 		for (Object contentType : contentTypes) {
 			final String currentContentType = ((String) contentType).trim();
@@ -115,6 +208,7 @@ public final class SecureConfigurationLoaderImpl implements SecureConfigurationL
 				LOGGER.warn("Extensions not configured for current Content-type. Content-type not permitted.");
 			}
 		}
+		whiteList = new ContentTypeWhiteList(contentTypeExtensionsWhiteList);
 	}
 
 	@Nonnull
@@ -155,6 +249,43 @@ public final class SecureConfigurationLoaderImpl implements SecureConfigurationL
 		}
 	}
 
+	private void initDetectionPrefixSize(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, DETECTION_PREFIX_SIZE_PROPERTY);
+		try {
+			if (stringValue != null && Integer.valueOf(stringValue) >= detectionPrefixSize) {
+				detectionPrefixSize = Integer.valueOf(stringValue);
+			} else if (stringValue != null) {
+				// A shorter prefix could be detected as other content type.
+				LOGGER.error("Detection prefix size lower than the detector minimum length. Minimum size "
+						+ detectionPrefixSize + " established.");
+			}
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Error while seting up detection prefix size. Default size established.");
+		}
+	}
+
+	private void initMemoryThreshold(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, MEMORY_THRESHOLD_PROPERTY);
+		try {
+			if (stringValue != null && Integer.valueOf(stringValue) > 0) {
+				memoryThreshold = Integer.valueOf(stringValue);
+			}
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Error while seting up memory threshold. Default threshold established.");
+		}
+	}
+
+	private void initBatchParallelism(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, BATCH_PARALLELISM_PROPERTY);
+		try {
+			if (stringValue != null && Integer.valueOf(stringValue) > 0) {
+				batchParallelism = Integer.valueOf(stringValue);
+			}
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Error while seting up batch parallelism. Default parallelism established.");
+		}
+	}
+
 	private void initStorageFolder(@Nonnull final Properties properties) {
 		final String stringValue = getTrimedConfigProperty(properties, DEFAULT_STORAGE_FOLDER_PROPERTY);
 		if (stringValue != null) {
@@ -164,6 +295,148 @@ public final class SecureConfigurationLoaderImpl implements SecureConfigurationL
 		}
 	}
 
+	private void initStorageShardLevels(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, STORAGE_SHARD_LEVELS_PROPERTY);
+		try {
+			if (stringValue != null && Integer.valueOf(stringValue) >= 0
+					&& Integer.valueOf(stringValue) <= StorageShards.MAX_LEVELS) {
+				storageShardLevels = Integer.valueOf(stringValue);
+			}
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Error while seting up storage shard levels. Default levels established.");
+		}
+	}
+
+	private void initStorageMode(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, STORAGE_MODE_PROPERTY);
+		if (stringValue != null) {
+			switch (stringValue) {
+			case "FILE":
+				storageMode = StorageModeEnum.FILE;
+				break;
+			case "DEDUPLICATED":
+				storageMode = StorageModeEnum.DEDUPLICATED;
+				break;
+			default:
+				LOGGER.warn("Error while seting up storage mode. Default FILE mode established.");
+			}
+		}
+	}
+
+	private void initMaxConcurrentWrites(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, MAX_CONCURRENT_WRITES_PROPERTY);
+		try {
+			if (stringValue != null && Integer.valueOf(stringValue) >= 0) {
+				maxConcurrentWrites = Integer.valueOf(stringValue);
+			}
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Error while seting up max concurrent writes. Writes not limited.");
+		}
+	}
+
+	private void initMaxQueuedWrites(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, MAX_QUEUED_WRITES_PROPERTY);
+		try {
+			if (stringValue != null && Integer.valueOf(stringValue) >= 0) {
+				maxQueuedWrites = Integer.valueOf(stringValue);
+			}
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Error while seting up max queued writes. Default queue size established.");
+		}
+	}
+
+	private void initQueuedWriteTimeout(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, QUEUED_WRITE_TIMEOUT_PROPERTY);
+		try {
+			if (stringValue != null && Long.valueOf(stringValue) >= 0) {
+				queuedWriteTimeout = Long.valueOf(stringValue);
+			}
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Error while seting up queued write timeout. Default timeout established.");
+		}
+	}
+
+	private void initQuotaMaxBytes(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, QUOTA_MAX_BYTES_PROPERTY);
+		try {
+			if (stringValue != null && Long.valueOf(stringValue) >= 0) {
+				quotaMaxBytes = Long.valueOf(stringValue);
+			}
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Error while seting up quota max bytes. Not limited.");
+		}
+	}
+
+	private void initQuotaMaxFiles(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, QUOTA_MAX_FILES_PROPERTY);
+		try {
+			if (stringValue != null && Long.valueOf(stringValue) >= 0) {
+				quotaMaxFiles = Long.valueOf(stringValue);
+			}
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Error while seting up quota max files. Not limited.");
+		}
+	}
+
+	private void initOwnerQuotaMaxBytes(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, OWNER_QUOTA_MAX_BYTES_PROPERTY);
+		try {
+			if (stringValue != null && Long.valueOf(stringValue) >= 0) {
+				ownerQuotaMaxBytes = Long.valueOf(stringValue);
+			}
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Error while seting up owner quota max bytes. Not limited.");
+		}
+	}
+
+	private void initOwnerQuotaMaxFiles(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, OWNER_QUOTA_MAX_FILES_PROPERTY);
+		try {
+			if (stringValue != null && Long.valueOf(stringValue) >= 0) {
+				ownerQuotaMaxFiles = Long.valueOf(stringValue);
+			}
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Error while seting up owner quota max files. Not limited.");
+		}
+	}
+
+	private void initMinUsableSpace(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, MIN_USABLE_SPACE_PROPERTY);
+		try {
+			if (stringValue != null && Long.valueOf(stringValue) >= 0) {
+				minUsableSpace = Long.valueOf(stringValue);
+			}
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Error while seting up min usable space. Usable space not checked.");
+		}
+	}
+
+	private void initCatalogFile(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, CATALOG_FILE_PROPERTY);
+		if (stringValue != null && stringValue.length() > 0) {
+			catalogFile = stringValue;
+		}
+	}
+
+	private void initValidationCacheSize(@Nonnull final Properties properties) {
+		final String stringValue = getTrimedConfigProperty(properties, VALIDATION_CACHE_SIZE_PROPERTY);
+		try {
+			if (stringValue != null && Integer.valueOf(stringValue) >= 0) {
+				validationCacheSize = Integer.valueOf(stringValue);
+			}
+		} catch (NumberFormatException e) {
+			LOGGER.warn("Error while seting up validation cache size. Default size established.");
+		}
+	}
+
+	private void initUploadChecksums(@Nonnull final Properties properties) {
+		final List<String> algorithms = getListValuesFromProperties(properties, UPLOAD_CHECKSUMS_PROPERTY);
+		uploadChecksums = Collections.unmodifiableList(Checksums.getSupported(algorithms));
+		if (uploadChecksums.size() < new HashSet<String>(algorithms).size()) {
+			LOGGER.warn("Error while seting up upload checksums. Unsupported algorithms not computed.");
+		}
+	}
+
 	private void initFileNameMode(@Nonnull final Properties properties) {
 		final String stringValue = getTrimedConfigProperty(properties, FILE_NAME_MODE_PROPERTY);
 		if (stringValue != null) {
@@ -193,13 +466,19 @@ public final class SecureConfigurationLoaderImpl implements SecureConfigurationL
 
 	@Override
 	public boolean existsContentType(@Nonnull final String contentType) {
-		return contentTypeExtensionsWhiteList.get(contentType) != null;
+		return whiteList.isAllowedContentType(contentType);
 	}
 
 	@Override
 	@Nullable
 	public List<String> getContentTypeExtensions(@Nonnull final String contentType) {
-		return contentTypeExtensionsWhiteList.get(contentType);
+		return whiteList.getExtensions(contentType);
+	}
+
+	@Override
+	@Nonnull
+	public ContentTypeWhiteList getWhiteList() {
+		return whiteList;
 	}
 
 	@Override
@@ -207,12 +486,95 @@ public final class SecureConfigurationLoaderImpl implements SecureConfigurationL
 		return maxFileSize;
 	}
 
+	@Override
+	public int getDetectionPrefixSize() {
+		return detectionPrefixSize;
+	}
+
+	@Override
+	public int getMemoryThreshold() {
+		return memoryThreshold;
+	}
+
+	@Override
+	public int getBatchParallelism() {
+		return batchParallelism;
+	}
+
 	@Override
 	@Nonnull
 	public String getStorageFolder() {
 		return defaultStorageFolder;
 	}
 
+	@Override
+	public int getStorageShardLevels() {
+		return storageShardLevels;
+	}
+
+	@Override
+	@Nonnull
+	public StorageModeEnum getStorageMode() {
+		return storageMode;
+	}
+
+	@Override
+	public int getMaxConcurrentWrites() {
+		return maxConcurrentWrites;
+	}
+
+	@Override
+	public int getMaxQueuedWrites() {
+		return maxQueuedWrites;
+	}
+
+	@Override
+	public long getQueuedWriteTimeout() {
+		return queuedWriteTimeout;
+	}
+
+	@Override
+	public long getQuotaMaxBytes() {
+		return quotaMaxBytes;
+	}
+
+	@Override
+	public long getQuotaMaxFiles() {
+		return quotaMaxFiles;
+	}
+
+	@Override
+	public long getOwnerQuotaMaxBytes() {
+		return ownerQuotaMaxBytes;
+	}
+
+	@Override
+	public long getOwnerQuotaMaxFiles() {
+		return ownerQuotaMaxFiles;
+	}
+
+	@Override
+	public long getMinUsableSpace() {
+		return minUsableSpace;
+	}
+
+	@Override
+	@Nullable
+	public String getCatalogFile() {
+		return catalogFile;
+	}
+
+	@Override
+	public int getValidationCacheSize() {
+		return validationCacheSize;
+	}
+
+	@Override
+	@Nonnull
+	public List<String> getUploadChecksums() {
+		return uploadChecksums;
+	}
+
 	@Override
 	@Nonnull
 	public FileNameModeEnum getFileNameMode() {
@@ -1,36 +1,67 @@
 package com.juanjolmm.security.impl.operator;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.PosixFileAttributeView;
 import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
 import java.nio.file.attribute.UserPrincipal;
 import java.nio.file.attribute.UserPrincipalLookupService;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.io.input.BoundedInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.juanjolmm.security.api.operator.FileNameGenerator;
 import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
 import com.juanjolmm.security.api.operator.SecureFileOperator;
+import com.juanjolmm.security.api.service.FileMetadata;
+import com.juanjolmm.security.api.service.FilePage;
+import com.juanjolmm.security.api.service.UploadedFile;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
 import com.juanjolmm.security.exception.SecureFileUploadException;
-import com.juanjolmm.security.impl.util.SecureFileUtils;
+import com.juanjolmm.security.impl.util.AdmissionController;
+import com.juanjolmm.security.impl.util.Checksums;
+import com.juanjolmm.security.impl.util.StorageShards;
 
 /**
  * Implementation of SecureFileOperator.
@@ -41,7 +72,114 @@ import com.juanjolmm.security.impl.util.SecureFileUtils;
 public final class SecureFileOperatorImpl implements SecureFileOperator {
 
 	private static Logger LOGGER = LoggerFactory.getLogger(SecureFileOperatorImpl.class);
+	private static final FileNameGenerator ORIGINAL_FILE_NAME_GENERATOR = new OriginalFileNameGenerator();
+	private static final FileNameGenerator SECURE_FILE_NAME_GENERATOR = new UlidFileNameGenerator();
+	/**
+	 * Maximum number of names generated for a file before giving up.
+	 */
+	private static final int MAX_FILE_NAME_ATTEMPTS = 16;
+	/**
+	 * Name of the user extended attribute with the validation metadata
+	 * (user.secure-file-upload.metadata).
+	 */
+	@Nonnull
+	private static final String METADATA_ATTRIBUTE = "secure-file-upload.metadata";
+	/**
+	 * Maximum size of the metadata attribute, so it is read with only one
+	 * call.
+	 */
+	private static final int MAX_METADATA_SIZE = 512;
+	private static final char METADATA_SEPARATOR = '\n';
+	/**
+	 * Suffix of the folder where the deduplicated contents are stored, next
+	 * to the storage folder.
+	 */
+	@Nonnull
+	private static final String CONTENT_FOLDER_SUFFIX = "_content";
+	/**
+	 * Suffix of the temporary links used to replace a file with the stored
+	 * content.
+	 */
+	@Nonnull
+	private static final String LINK_SUFFIX = ".link";
+	private static final int CONTENT_LOCKS = 64;
+	/**
+	 * Suffix of the folder where the files are written and checked before
+	 * they are published in the storage folder.
+	 */
+	@Nonnull
+	private static final String STAGING_FOLDER_SUFFIX = "_staging";
+	@Nonnull
+	private static final String STAGING_FILE_SUFFIX = ".part";
+	@Nonnull
+	private static final FileNameGenerator STAGING_FILE_NAME_GENERATOR = (initialFileName,
+			attempt) -> UlidFileNameGenerator.generateUlid(System.currentTimeMillis()) + STAGING_FILE_SUFFIX;
+	/**
+	 * Staging files older than this time were left by previous processes.
+	 */
+	private static final long STARTUP_TIME = System.currentTimeMillis();
+	/**
+	 * Secure permissions (rw-------) established when the files are created,
+	 * null if the file system does not support POSIX permissions.
+	 */
+	@Nullable
+	private static final FileAttribute<?>[] SECURE_FILE_ATTRIBUTES = FileSystems.getDefault()
+			.supportedFileAttributeViews().contains("posix")
+					? new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute(getSecurePermissions()) } : null;
+	/**
+	 * Staging folders already cleaned up by this process.
+	 */
+	@Nonnull
+	private static final Set<String> CLEANED_STAGING_FOLDERS = ConcurrentHashMap.newKeySet();
+	/**
+	 * Admission controllers of the writes by storage folder, shared by all
+	 * the operators of the same folder.
+	 */
+	@Nonnull
+	private static final Map<String, AdmissionController> ADMISSION_CONTROLLERS =
+			new ConcurrentHashMap<String, AdmissionController>();
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+	@Nonnull
+	private static final Checksums NO_CHECKSUMS = new Checksums(Collections.<String>emptyList());
 	private final SecureConfigurationLoader configLoader;
+	/**
+	 * File name generator provided by the user, null to use the one of the
+	 * configured file name mode.
+	 */
+	@Nullable
+	private final FileNameGenerator fileNameGenerator;
+	/**
+	 * Storage and shard folders already created, so they are not checked in
+	 * every upload.
+	 */
+	private final Map<String, File> readyStorageFolders = new ConcurrentHashMap<String, File>();
+	/**
+	 * Last looked up file owner, so the user database is not queried in every
+	 * upload.
+	 */
+	private volatile SecureOwner secureOwner;
+	/**
+	 * Storage folders whose file system supports user extended attributes.
+	 */
+	private final Map<String, Boolean> metadataSupport = new ConcurrentHashMap<String, Boolean>();
+	/**
+	 * Locks of the stored contents, so a content is not deleted while a new
+	 * file is linked to it.
+	 */
+	private final Object[] contentLocks = new Object[CONTENT_LOCKS];
+	/**
+	 * False when the file system does not support hard links, so the staging
+	 * files are published by moving them.
+	 */
+	private volatile boolean publishByLink = true;
+	/**
+	 * Limit of the concurrent writes in the storage folder, null if the
+	 * writes are not limited. The staging copy reads the source while it
+	 * writes, so the limit is on the concurrent uploads, including the time
+	 * that they wait for the bytes of slow clients.
+	 */
+	@Nullable
+	private final AdmissionController admissionController;
 
 	/**
 	 * Constructor that establish a secure configuration loader.
@@ -51,50 +189,345 @@ public final class SecureFileOperatorImpl implements SecureFileOperator {
 	 */
 	public SecureFileOperatorImpl(@Nonnull final SecureConfigurationLoader configLoader) {
 		this.configLoader = configLoader;
+		this.fileNameGenerator = null;
+		this.admissionController = getAdmissionController(configLoader);
+		initContentLocks();
+		cleanUpStagingFolder();
+	}
+
+	/**
+	 * Constructor that establish a secure configuration loader and the
+	 * generator of the final file names, that replaces the configured file
+	 * name mode.
+	 * 
+	 * @param configLoader
+	 *            The secure configuration loader.
+	 * @param fileNameGenerator
+	 *            The generator of the final file names.
+	 */
+	public SecureFileOperatorImpl(@Nonnull final SecureConfigurationLoader configLoader,
+			@Nonnull final FileNameGenerator fileNameGenerator) {
+		this.configLoader = configLoader;
+		this.fileNameGenerator = fileNameGenerator;
+		this.admissionController = getAdmissionController(configLoader);
+		initContentLocks();
+		cleanUpStagingFolder();
+	}
+
+	private void initContentLocks() {
+		for (int i = 0; i < CONTENT_LOCKS; i++) {
+			contentLocks[i] = new Object();
+		}
+	}
+
+	/**
+	 * Deletes in parallel the staging files left by uploads interrupted by a
+	 * crash. It is made only once for each staging folder and only the files
+	 * older than this process are deleted, so the uploads in progress are not
+	 * affected.
+	 */
+	private void cleanUpStagingFolder() {
+		final File stagingFolder = getStagingFolder();
+		if (!CLEANED_STAGING_FOLDERS.add(stagingFolder.getAbsolutePath()) || !stagingFolder.isDirectory()) {
+			return;
+		}
+		try (Stream<Path> stagingFiles = Files.list(stagingFolder.toPath())) {
+			final long deletedFiles = stagingFiles.parallel()
+					.filter(path -> path.toFile().lastModified() < STARTUP_TIME && path.toFile().delete()).count();
+			if (deletedFiles > 0) {
+				LOGGER.info("Staging files of interrupted uploads deleted: " + deletedFiles);
+			}
+		} catch (IOException | UncheckedIOException e) {
+			LOGGER.warn("Error while cleaning up the staging folder." + e.getMessage());
+		}
+	}
+
+	/**
+	 * Gets the admission controller of the storage folder. It is created with
+	 * the limits of the first operator of the folder.
+	 */
+	@Nullable
+	private static AdmissionController getAdmissionController(
+			@Nonnull final SecureConfigurationLoader configLoader) {
+		if (configLoader.getMaxConcurrentWrites() <= 0) {
+			return null;
+		}
+		final String storageRoot = new File(configLoader.getStorageFolder()).getAbsoluteFile().toPath().normalize()
+				.toString();
+		return ADMISSION_CONTROLLERS.computeIfAbsent(storageRoot,
+				root -> new AdmissionController(configLoader.getMaxConcurrentWrites(),
+						configLoader.getMaxQueuedWrites(), configLoader.getQueuedWriteTimeout()));
+	}
+
+	/**
+	 * Method to get the admission controller that limits the concurrent
+	 * writes in the storage folder.
+	 * 
+	 * @return The admission controller with its counters or null if the
+	 *         writes are not limited.
+	 */
+	@Nullable
+	public AdmissionController getAdmissionController() {
+		return admissionController;
+	}
+
+	@Nonnull
+	private File getStagingFolder() {
+		return new File(configLoader.getStorageFolder() + STAGING_FOLDER_SUFFIX);
 	}
 
 	@Override
 	@Nonnull
 	public File createNewFileInSecureStorage(@Nonnull final InputStream inputStream,
 			@Nonnull final String initialFileName) throws SecureFileUploadException {
-		File storeFolder = new File(configLoader.getStorageFolder());
-		if (!storeFolder.exists()) {
-			storeFolder.mkdirs();
+		return createNewFileInSecureStorage(inputStream, initialFileName, Collections.<String>emptyList())
+				.getFile();
+	}
+
+	@Override
+	@Nonnull
+	public UploadedFile createNewFileInSecureStorage(@Nonnull final InputStream inputStream,
+			@Nonnull final String initialFileName, @Nonnull final Collection<String> checksumAlgorithms)
+			throws SecureFileUploadException {
+		final UploadedFile stagedFile = createStagedFile(inputStream, initialFileName, checksumAlgorithms);
+		return new UploadedFile(publishStagedFile(stagedFile.getFile(), initialFileName), null,
+				stagedFile.getSize(), stagedFile.getChecksums());
+	}
+
+	@Override
+	@Nonnull
+	public File createNewFileInSecureStorage(@Nonnull final ReadableByteChannel channel,
+			@Nonnull final String initialFileName) throws SecureFileUploadException {
+		acquireWrite(channel);
+		final File stagedFile;
+		try {
+			stagedFile = createNewStagingFile();
+			transferLimitedAmountOfBytes(channel, stagedFile, NO_CHECKSUMS);
+		} finally {
+			releaseWrite();
 		}
-		final File newFile = new File(storeFolder, getOperatorFileName(initialFileName));
-		copyLimitedAmountOfBytes(inputStream, newFile);
-		return newFile;
+		return publishStagedFile(stagedFile, initialFileName);
 	}
 
+	@Override
 	@Nonnull
-	private String getOperatorFileName(@Nonnull final String initialFileName) throws SecureFileUploadException {
-		final String finalFileName;
+	public UploadedFile createStagedFile(@Nonnull final InputStream inputStream,
+			@Nonnull final String initialFileName, @Nonnull final Collection<String> checksumAlgorithms)
+			throws SecureFileUploadException {
+		final Checksums checksums;
+		try {
+			checksums = new Checksums(checksumAlgorithms);
+		} catch (IllegalArgumentException e) {
+			IOUtils.closeQuietly(inputStream);
+			LOGGER.error(e.getMessage());
+			throw new SecureFileUploadException(RejectionReasonEnum.OTHER, e);
+		}
+		acquireWrite(inputStream);
+		final File stagedFile;
+		final long size;
+		try {
+			stagedFile = createNewStagingFile();
+			final FileChannel sourceChannel = inputStream instanceof FileInputStream
+					? ((FileInputStream) inputStream).getChannel() : null;
+			if (sourceChannel != null && isTransferable(sourceChannel)) {
+				// Files are copied between channels, without heap copies.
+				size = transferLimitedAmountOfBytes(sourceChannel, stagedFile, checksums);
+			} else {
+				size = copyLimitedAmountOfBytes(inputStream, stagedFile, checksums);
+			}
+		} finally {
+			releaseWrite();
+		}
+		return new UploadedFile(stagedFile, null, size, checksums.getValues());
+	}
+
+	/**
+	 * Waits for a write slot of the storage folder when the concurrent writes
+	 * are limited. The slot is held until the whole source is copied, so it is
+	 * released when the source ends or fails. If the upload is not admitted
+	 * the source is closed.
+	 */
+	private void acquireWrite(@Nonnull final Closeable source) throws SecureFileUploadException {
+		if (admissionController != null && !admissionController.tryAcquire()) {
+			IOUtils.closeQuietly(source);
+			throw new SecureFileUploadException(RejectionReasonEnum.BUSY);
+		}
+	}
+
+	private void releaseWrite() {
+		if (admissionController != null) {
+			admissionController.release();
+		}
+	}
+
+	@Override
+	@Nonnull
+	public File publishStagedFile(@Nonnull final File stagedFile, @Nonnull final String initialFileName)
+			throws SecureFileUploadException {
+		final FileNameGenerator generator = getFileNameGenerator();
+		for (int attempt = 0; attempt < MAX_FILE_NAME_ATTEMPTS; attempt++) {
+			final String fileName = generator.generate(initialFileName, attempt);
+			final File newFile = new File(getReadyStorageFolder(fileName), fileName);
+			try {
+				publish(stagedFile.toPath(), newFile);
+				return newFile;
+			} catch (FileAlreadyExistsException e) {
+				LOGGER.debug("File name already used: " + newFile.getName());
+			} catch (IOException e) {
+				LOGGER.error("Error while publishing the new file." + e.getMessage());
+				throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
+			}
+		}
+		LOGGER.error("Error: Can not generate an unused file name.");
+		throw new SecureFileUploadException(RejectionReasonEnum.IO);
+	}
+
+	/**
+	 * Publishes a staging file with an atomic operation, so the file is
+	 * never seen partially written: a hard link is created, which fails if
+	 * the name is in use, and the staging file is removed. If the file system
+	 * does not support hard links the file is moved atomically.
+	 */
+	private void publish(@Nonnull final Path stagedFile, @Nonnull final File newFile) throws IOException {
+		if (publishByLink) {
+			try {
+				createFile(newFile, stagedFile);
+				Files.delete(stagedFile);
+				return;
+			} catch (UnsupportedOperationException e) {
+				publishByLink = false;
+			}
+		}
+		if (newFile.exists()) {
+			throw new FileAlreadyExistsException(newFile.getPath());
+		}
+		newFile.getParentFile().mkdirs();
+		Files.move(stagedFile, newFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Returns the folder where a file is stored: the storage folder or its
+	 * shard folder. The folders are created only the first time they are
+	 * used.
+	 */
+	@Nonnull
+	private File getReadyStorageFolder(@Nonnull final String fileName) {
+		final String shardPath = StorageShards.getShardPath(fileName, configLoader.getStorageShardLevels());
+		final String folder = shardPath.isEmpty() ? configLoader.getStorageFolder()
+				: configLoader.getStorageFolder() + File.separator + shardPath;
+		return getReadyFolder(folder);
+	}
+
+	@Nonnull
+	private File getReadyFolder(@Nonnull final String folder) {
+		return readyStorageFolders.computeIfAbsent(folder, readyFolder -> {
+			final File newFolder = new File(readyFolder);
+			newFolder.mkdirs();
+			return newFolder;
+		});
+	}
+
+	/**
+	 * Creates a new empty file with a random name in the staging folder. The
+	 * file is only created if it does not exist.
+	 */
+	@Nonnull
+	private File createNewStagingFile() throws SecureFileUploadException {
+		return createNewFile(STAGING_FILE_NAME_GENERATOR, "", null, getReadyFolder(getStagingFolder().getPath()));
+	}
+
+	/**
+	 * Creates a new file with a generated name: an empty file or a hard link
+	 * to an existing file. An existing file is never overwritten: when the
+	 * name is already used a new one is generated.
+	 */
+	@Nonnull
+	private File createNewFile(@Nonnull final FileNameGenerator generator, @Nonnull final String initialFileName,
+			@Nullable final Path linkTarget, @Nullable final File folder) throws SecureFileUploadException {
+		for (int attempt = 0; attempt < MAX_FILE_NAME_ATTEMPTS; attempt++) {
+			final String fileName = generator.generate(initialFileName, attempt);
+			final File newFile = new File(folder != null ? folder : getReadyStorageFolder(fileName), fileName);
+			try {
+				createFile(newFile, linkTarget);
+				return newFile;
+			} catch (FileAlreadyExistsException e) {
+				LOGGER.debug("File name already used: " + newFile.getName());
+			} catch (IOException | UnsupportedOperationException e) {
+				LOGGER.error("Error while creating the new file." + e.getMessage());
+				throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
+			}
+		}
+		LOGGER.error("Error: Can not generate an unused file name.");
+		throw new SecureFileUploadException(RejectionReasonEnum.IO);
+	}
+
+	private void createFile(@Nonnull final File file, @Nullable final Path linkTarget) throws IOException {
+		try {
+			createFileOrLink(file.toPath(), linkTarget);
+		} catch (NoSuchFileException e) {
+			// The folder could have been removed after it was created.
+			file.getParentFile().mkdirs();
+			createFileOrLink(file.toPath(), linkTarget);
+		}
+	}
+
+	private static void createFileOrLink(@Nonnull final Path path, @Nullable final Path linkTarget)
+			throws IOException {
+		if (linkTarget != null) {
+			Files.createLink(path, linkTarget);
+		} else if (SECURE_FILE_ATTRIBUTES != null) {
+			// The file is never accessible with the default permissions.
+			Files.createFile(path, SECURE_FILE_ATTRIBUTES);
+		} else {
+			Files.createFile(path);
+		}
+	}
+
+	@Nonnull
+	private FileNameGenerator getFileNameGenerator() {
+		if (fileNameGenerator != null) {
+			return fileNameGenerator;
+		}
 		switch (configLoader.getFileNameMode()) {
 		case ORIGINAL:
-			finalFileName = SecureFileUtils.getOriginalBasedFileName(initialFileName);
-			break;
+			return ORIGINAL_FILE_NAME_GENERATOR;
 		case SECURE:
-			finalFileName = SecureFileUtils.getSecureFileName(initialFileName);
-			break;
+			return SECURE_FILE_NAME_GENERATOR;
 		default:
-			finalFileName = SecureFileUtils.getSecureFileName(initialFileName);
+			return SECURE_FILE_NAME_GENERATOR;
 		}
-		return finalFileName;
 	}
 
-	private void copyLimitedAmountOfBytes(@Nonnull final InputStream inputStream,
-			@Nonnull final File file) throws SecureFileUploadException {
+	/**
+	 * Copies the stream to the file updating the checksums in the same pass.
+	 * 
+	 * @return The number of bytes copied.
+	 */
+	private long copyLimitedAmountOfBytes(@Nonnull final InputStream inputStream, @Nonnull final File file,
+			@Nonnull final Checksums checksums) throws SecureFileUploadException {
 		OutputStream outputStream = null;
 		BoundedInputStream boundedInput = new BoundedInputStream(inputStream, configLoader.getMaxFileSize());
 		try {
 			outputStream = new FileOutputStream(file);
-			IOUtils.copy(boundedInput, outputStream);
+			final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+			long size = 0;
+			int read;
+			while ((read = boundedInput.read(buffer)) > 0) {
+				checksums.update(buffer, 0, read);
+				outputStream.write(buffer, 0, read);
+				size += read;
+			}
 			checkStreamSizeLimit(inputStream);
-		} catch (IOException | SecureFileUploadException e) {
+			return size;
+		} catch (IOException e) {
 			IOUtils.closeQuietly(outputStream);
 			FileUtils.deleteQuietly(file);
 			LOGGER.error(e.getMessage());
-			throw new SecureFileUploadException();
+			throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
+		} catch (SecureFileUploadException e) {
+			IOUtils.closeQuietly(outputStream);
+			FileUtils.deleteQuietly(file);
+			throw e;
 		} finally {
 			IOUtils.closeQuietly(outputStream);
 			IOUtils.closeQuietly(boundedInput);
@@ -102,11 +535,93 @@ public final class SecureFileOperatorImpl implements SecureFileOperator {
 		}
 	}
 
+	/**
+	 * Returns true if the bytes of the channel can be transferred with
+	 * transferFrom. The file channels of pipes and devices report no size, so
+	 * transferFrom would not read them and they are copied through a buffer.
+	 */
+	private static boolean isTransferable(@Nonnull final ReadableByteChannel channel) {
+		try {
+			return !(channel instanceof FileChannel) || ((FileChannel) channel).size() > 0;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Transfers the channel to the file. Without checksums the bytes are
+	 * transferred between channels; with checksums they are read through a
+	 * buffer, so they are checked in the same pass.
+	 * 
+	 * @return The number of bytes transferred.
+	 */
+	private long transferLimitedAmountOfBytes(@Nonnull final ReadableByteChannel channel, @Nonnull final File file,
+			@Nonnull final Checksums checksums) throws SecureFileUploadException {
+		FileChannel fileChannel = null;
+		try {
+			fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+			final long maxFileSize = configLoader.getMaxFileSize();
+			final long position = checksums.isEmpty() && isTransferable(channel)
+					? transfer(channel, fileChannel, maxFileSize)
+					: copy(channel, fileChannel, maxFileSize, checksums);
+			if (position > maxFileSize) {
+				throw new SecureFileUploadException(RejectionReasonEnum.SIZE);
+			}
+			return position;
+		} catch (IOException e) {
+			IOUtils.closeQuietly(fileChannel);
+			FileUtils.deleteQuietly(file);
+			LOGGER.error(e.getMessage());
+			throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
+		} catch (SecureFileUploadException e) {
+			IOUtils.closeQuietly(fileChannel);
+			FileUtils.deleteQuietly(file);
+			throw e;
+		} finally {
+			IOUtils.closeQuietly(fileChannel);
+			IOUtils.closeQuietly(channel);
+		}
+	}
+
+	private static long transfer(@Nonnull final ReadableByteChannel channel, @Nonnull final FileChannel fileChannel,
+			final long maxFileSize) throws IOException {
+		long position = 0;
+		long transferred;
+		// One byte more than the limit is requested to detect bigger
+		// sources.
+		while (position <= maxFileSize
+				&& (transferred = fileChannel.transferFrom(channel, position, maxFileSize + 1 - position)) > 0) {
+			position += transferred;
+		}
+		return position;
+	}
+
+	private static long copy(@Nonnull final ReadableByteChannel channel, @Nonnull final FileChannel fileChannel,
+			final long maxFileSize, @Nonnull final Checksums checksums) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+		long position = 0;
+		while (position <= maxFileSize) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), maxFileSize + 1 - position));
+			final int read = channel.read(buffer);
+			if (read < 0) {
+				break;
+			}
+			buffer.flip();
+			checksums.update(buffer.array(), 0, read);
+			while (buffer.hasRemaining()) {
+				fileChannel.write(buffer);
+			}
+			position += read;
+		}
+		return position;
+	}
+
 	private void checkStreamSizeLimit(@Nonnull final InputStream inputStream)
 			throws IOException, SecureFileUploadException {
 		byte[] buffer = new byte[10];
 		if (IOUtils.read(inputStream, buffer) > 0) {
-			throw new SecureFileUploadException();
+			throw new SecureFileUploadException(RejectionReasonEnum.SIZE);
 		}
 	}
 
@@ -116,16 +631,71 @@ public final class SecureFileOperatorImpl implements SecureFileOperator {
 			final Path path = file.toPath();
 			final String owner = configLoader.getSecureFileOwner();
 			if (owner != null && owner.length() > 0) {
-				final UserPrincipalLookupService lookupService = FileSystems.getDefault()
-						.getUserPrincipalLookupService();
-				final UserPrincipal userPrincipal = lookupService.lookupPrincipalByName(owner);
-				Files.setOwner(path, userPrincipal);
+				final SecureOwner currentOwner = getSecureOwner(owner);
+				if (currentOwner.isChangeRequired(path)) {
+					Files.setOwner(path, currentOwner.principal);
+				}
 			} else {
 				LOGGER.warn("Secure owner not established. File owner not changed.");
 			}
 		} catch (IOException e) {
 			LOGGER.error("Error while setting a secure owner in the file." + e.getMessage());
-			throw new SecureFileUploadException();
+			throw new SecureFileUploadException(RejectionReasonEnum.PERMISSIONS, e);
+		}
+	}
+
+	@Override
+	public void prepareSecureStorage() {
+		getReadyFolder(configLoader.getStorageFolder());
+		getReadyFolder(getStagingFolder().getPath());
+		final String owner = configLoader.getSecureFileOwner();
+		if (owner != null && owner.length() > 0) {
+			try {
+				getSecureOwner(owner);
+			} catch (IOException e) {
+				// Reported again by every file whose owner can not be set.
+				LOGGER.error("Error while looking up the secure owner." + e.getMessage());
+			}
+		}
+	}
+
+	@Nonnull
+	private SecureOwner getSecureOwner(@Nonnull final String owner) throws IOException {
+		SecureOwner currentOwner = secureOwner;
+		if (currentOwner == null || !currentOwner.name.equals(owner)) {
+			final UserPrincipalLookupService lookupService = FileSystems.getDefault()
+					.getUserPrincipalLookupService();
+			currentOwner = new SecureOwner(owner, lookupService.lookupPrincipalByName(owner));
+			secureOwner = currentOwner;
+		}
+		return currentOwner;
+	}
+
+	/**
+	 * Looked up secure owner. The new files are owned by the user of the
+	 * process, so the owner is only changed if it is a different user; it is
+	 * checked with the first file.
+	 */
+	private static final class SecureOwner {
+		@Nonnull
+		private final String name;
+		@Nonnull
+		private final UserPrincipal principal;
+		@Nullable
+		private volatile Boolean changeRequired;
+
+		private SecureOwner(@Nonnull final String name, @Nonnull final UserPrincipal principal) {
+			this.name = name;
+			this.principal = principal;
+		}
+
+		private boolean isChangeRequired(@Nonnull final Path newFile) throws IOException {
+			Boolean required = changeRequired;
+			if (required == null) {
+				required = !principal.equals(Files.getOwner(newFile));
+				changeRequired = required;
+			}
+			return required;
 		}
 	}
 
@@ -135,7 +705,7 @@ public final class SecureFileOperatorImpl implements SecureFileOperator {
 			chageFilePermissions(file);
 		} else {
 			LOGGER.error("Error: Can not chage permissions because the file does not exist.");
-			throw new SecureFileUploadException();
+			throw new SecureFileUploadException(RejectionReasonEnum.PERMISSIONS);
 		}
 	}
 
@@ -144,36 +714,309 @@ public final class SecureFileOperatorImpl implements SecureFileOperator {
 			final PosixFileAttributeView posixAttributeView = Files.getFileAttributeView(file.toPath(),
 					PosixFileAttributeView.class);
 			if (posixAttributeView != null) {
-				final Set<PosixFilePermission> perms = new HashSet<PosixFilePermission>();
-				perms.add(PosixFilePermission.OWNER_READ);
-				perms.add(PosixFilePermission.OWNER_WRITE);
-				posixAttributeView.setPermissions(perms);
+				posixAttributeView.setPermissions(getSecurePermissions());
 			} else {
 				LOGGER.warn("File system attribute view not supported.");
 			}
 		} catch (IOException e) {
 			LOGGER.error("Error while changing file permissions." + e.getMessage());
-			throw new SecureFileUploadException();
+			throw new SecureFileUploadException(RejectionReasonEnum.PERMISSIONS, e);
+		}
+	}
+
+	@Nonnull
+	private static Set<PosixFilePermission> getSecurePermissions() {
+		final Set<PosixFilePermission> perms = new HashSet<PosixFilePermission>();
+		perms.add(PosixFilePermission.OWNER_READ);
+		perms.add(PosixFilePermission.OWNER_WRITE);
+		return perms;
+	}
+
+	@Override
+	@Nullable
+	public FileMetadata setFileMetadata(@Nonnull final File file, @Nonnull final String contentType,
+			@Nonnull final String whiteListVersion, @Nullable final String digest) {
+		final UserDefinedFileAttributeView attributeView = getUserAttributeView(file);
+		if (attributeView == null) {
+			return null;
+		}
+		try {
+			final BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			final FileMetadata metadata = new FileMetadata(contentType, whiteListVersion, attributes.size(),
+					attributes.lastModifiedTime().toMillis(), digest);
+			final ByteBuffer value = StandardCharsets.UTF_8.encode(formatMetadata(metadata));
+			if (value.remaining() > MAX_METADATA_SIZE) {
+				return null;
+			}
+			attributeView.write(METADATA_ATTRIBUTE, value);
+			return metadata;
+		} catch (IOException e) {
+			LOGGER.debug("Error while storing the file metadata." + e.getMessage());
+			return null;
+		}
+	}
+
+	@Override
+	@Nullable
+	public FileMetadata getFileMetadata(@Nonnull final File file) {
+		final UserDefinedFileAttributeView attributeView = getUserAttributeView(file);
+		if (attributeView == null) {
+			return null;
+		}
+		final ByteBuffer value = ByteBuffer.allocate(MAX_METADATA_SIZE);
+		try {
+			attributeView.read(METADATA_ATTRIBUTE, value);
+		} catch (IOException e) {
+			// The file has no metadata.
+			return null;
+		}
+		value.flip();
+		return parseMetadata(StandardCharsets.UTF_8.decode(value).toString());
+	}
+
+	/**
+	 * Returns the view of the user extended attributes of a file or null if
+	 * the file system of the storage folder does not support them. The
+	 * support is checked only once for each storage folder.
+	 */
+	@Nullable
+	private UserDefinedFileAttributeView getUserAttributeView(@Nonnull final File file) {
+		final Path path = file.toPath();
+		final boolean supported = metadataSupport.computeIfAbsent(configLoader.getStorageFolder(), folder -> {
+			try {
+				return Files.getFileStore(path).supportsFileAttributeView(UserDefinedFileAttributeView.class);
+			} catch (IOException e) {
+				LOGGER.warn("Error while checking the file system of the storage folder." + e.getMessage());
+				return Boolean.FALSE;
+			}
+		});
+		return supported ? Files.getFileAttributeView(path, UserDefinedFileAttributeView.class) : null;
+	}
+
+	@Nonnull
+	private static String formatMetadata(@Nonnull final FileMetadata metadata) {
+		final String digest = metadata.getDigest();
+		return new StringBuilder().append(metadata.getContentType()).append(METADATA_SEPARATOR)
+				.append(metadata.getWhiteListVersion()).append(METADATA_SEPARATOR).append(metadata.getSize())
+				.append(METADATA_SEPARATOR).append(metadata.getLastModified()).append(METADATA_SEPARATOR)
+				.append(digest != null ? digest : "").toString();
+	}
+
+	@Nullable
+	private static FileMetadata parseMetadata(@Nonnull final String value) {
+		final String[] fields = value.split(String.valueOf(METADATA_SEPARATOR), -1);
+		if (fields.length != 5 || fields[0].isEmpty() || fields[1].isEmpty()) {
+			return null;
+		}
+		try {
+			return new FileMetadata(fields[0], fields[1], Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+					fields[4].isEmpty() ? null : fields[4]);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	@Override
+	@Nullable
+	public File getStoredContent(@Nonnull final String digest) {
+		if (!isContentDigest(digest)) {
+			return null;
+		}
+		final File contentFile = getContentFile(digest);
+		return contentFile.isFile() ? contentFile : null;
+	}
+
+	@Override
+	@Nonnull
+	public File storeContent(@Nonnull final File newFile, @Nonnull final String digest) {
+		if (!isContentDigest(digest)) {
+			LOGGER.warn("Error: Invalid content digest. File not deduplicated.");
+			return newFile;
+		}
+		final File contentFile = getContentFile(digest);
+		synchronized (getContentLock(digest)) {
+			try {
+				createFile(contentFile, newFile.toPath());
+			} catch (FileAlreadyExistsException e) {
+				// The same content was stored by a previous upload.
+				replaceWithLink(newFile, contentFile);
+			} catch (IOException | UnsupportedOperationException e) {
+				LOGGER.warn("Error while storing the content. File not deduplicated." + e.getMessage());
+			}
+		}
+		return newFile;
+	}
+
+	/**
+	 * Replaces a file with a hard link to another file with the same content.
+	 * The file is replaced atomically, so it always exists; if it can not be
+	 * replaced it is kept.
+	 */
+	private void replaceWithLink(@Nonnull final File file, @Nonnull final File target) {
+		final Path link = new File(getStagingFolder(), file.getName() + LINK_SUFFIX).toPath();
+		try {
+			getStagingFolder().mkdirs();
+			Files.createLink(link, target.toPath());
+			Files.move(link, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | UnsupportedOperationException e) {
+			LOGGER.warn("Error while linking the stored content. File not deduplicated." + e.getMessage());
+			FileUtils.deleteQuietly(link.toFile());
 		}
 	}
 
+	@Override
+	@Nonnull
+	public File linkStoredContent(@Nonnull final File contentFile, @Nonnull final String initialFileName)
+			throws SecureFileUploadException {
+		synchronized (getContentLock(contentFile.getName())) {
+			return createNewFile(getFileNameGenerator(), initialFileName, contentFile.toPath(), null);
+		}
+	}
+
+	@Override
+	public void deleteUploadedFile(@Nonnull final File file, @Nullable final String digest)
+			throws SecureFileUploadException {
+		try {
+			if (digest == null || !isContentDigest(digest)) {
+				Files.delete(file.toPath());
+				return;
+			}
+			synchronized (getContentLock(digest)) {
+				final Path contentPath = getContentFile(digest).toPath();
+				final boolean isStoredContent = Files.exists(contentPath)
+						&& Files.isSameFile(file.toPath(), contentPath);
+				Files.delete(file.toPath());
+				// The content is only linked from the content folder.
+				if (isStoredContent && getLinkCount(contentPath) == 1) {
+					Files.delete(contentPath);
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.error("Error while deleting the file." + e.getMessage());
+			throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
+		}
+	}
+
+	/**
+	 * Returns the number of hard links of a file or -1 if the file system
+	 * does not provide it.
+	 */
+	private static int getLinkCount(@Nonnull final Path path) throws IOException {
+		try {
+			return ((Number) Files.getAttribute(path, "unix:nlink")).intValue();
+		} catch (UnsupportedOperationException | IllegalArgumentException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Returns the file of a stored content: the content folder, two shard
+	 * folders with the first hex digits of the digest and the digest.
+	 */
+	@Nonnull
+	private File getContentFile(@Nonnull final String digest) {
+		return FileUtils.getFile(new File(configLoader.getStorageFolder() + CONTENT_FOLDER_SUFFIX),
+				digest.substring(0, 2), digest.substring(2, 4), digest);
+	}
+
+	/**
+	 * Checks that a digest is a lowercase hexadecimal SHA-256 digest, so it
+	 * can be used as a path.
+	 */
+	private static boolean isContentDigest(@Nonnull final String digest) {
+		if (digest.length() != 64) {
+			return false;
+		}
+		for (int i = 0; i < digest.length(); i++) {
+			final char c = digest.charAt(i);
+			if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Nonnull
+	private Object getContentLock(@Nonnull final String digest) {
+		return contentLocks[(digest.hashCode() & Integer.MAX_VALUE) % CONTENT_LOCKS];
+	}
+
 	@Override
 	@Nonnull
 	public List<File> listUploadedFiles() {
 		final List<File> uplodadedFiles = new ArrayList<File>();
-		final File storeFolder = new File(configLoader.getStorageFolder());
-		if (storeFolder.exists()) {
-			uplodadedFiles.addAll(FileUtils.listFiles(storeFolder, TrueFileFilter.INSTANCE, null));
+		final StorageFolderIterator iterator = newStorageFolderIterator();
+		try {
+			while (iterator.hasNext()) {
+				uplodadedFiles.add(iterator.next().toFile());
+			}
+		} catch (UncheckedIOException e) {
+			LOGGER.error("Error while listing the storage folder." + e.getMessage());
+		} finally {
+			iterator.close();
 		}
 		return uplodadedFiles;
 	}
 
+	@Override
+	@Nonnull
+	public FilePage listUploadedFiles(@Nullable final String cursor, final int limit)
+			throws SecureFileUploadException {
+		if (limit <= 0) {
+			throw new SecureFileUploadException(RejectionReasonEnum.INVALID_REQUEST);
+		}
+		final StorageFolderIterator iterator;
+		try {
+			iterator = new StorageFolderIterator(Paths.get(configLoader.getStorageFolder()),
+					configLoader.getStorageShardLevels(), cursor, limit);
+		} catch (IllegalArgumentException e) {
+			LOGGER.error("Error while listing the storage folder." + e.getMessage());
+			throw new SecureFileUploadException(RejectionReasonEnum.INVALID_REQUEST);
+		} catch (UncheckedIOException e) {
+			LOGGER.error("Error while listing the storage folder." + e.getMessage());
+			throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
+		}
+		try {
+			final List<File> files = new ArrayList<File>(Math.min(limit, 1024));
+			while (files.size() < limit && iterator.hasNext()) {
+				files.add(iterator.next().toFile());
+			}
+			return new FilePage(files, iterator.getCursor());
+		} catch (UncheckedIOException e) {
+			LOGGER.error("Error while listing the storage folder." + e.getMessage());
+			throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
+		} finally {
+			iterator.close();
+		}
+	}
+
+	@Override
+	@Nonnull
+	public Stream<Path> streamUploadedFiles() {
+		final StorageFolderIterator iterator = newStorageFolderIterator();
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL),
+						false)
+				.onClose(iterator::close);
+	}
+
+	@Nonnull
+	private StorageFolderIterator newStorageFolderIterator() {
+		return new StorageFolderIterator(Paths.get(configLoader.getStorageFolder()),
+				configLoader.getStorageShardLevels());
+	}
+
 	@Override
 	@Nonnull
 	public File getUplodadedFile(@Nonnull String fileName) throws FileNotFoundException {
-		final File uploadedFile;
 		final File storeFolder = new File(configLoader.getStorageFolder());
-		if (!storeFolder.exists() || !(uploadedFile = FileUtils.getFile(storeFolder, fileName)).exists()) {
+		final String shardPath = StorageShards.getShardPath(fileName, configLoader.getStorageShardLevels());
+		File uploadedFile = FileUtils.getFile(storeFolder, shardPath, fileName);
+		if (!uploadedFile.exists() && !shardPath.isEmpty()) {
+			// Files stored before the storage was sharded.
+			uploadedFile = FileUtils.getFile(storeFolder, fileName);
+		}
+		if (!uploadedFile.exists()) {
 			throw new FileNotFoundException("The file does not exist.");
 		}
 		return uploadedFile;
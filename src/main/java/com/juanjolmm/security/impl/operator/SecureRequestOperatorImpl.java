@@ -1,13 +1,13 @@
 package com.juanjolmm.security.impl.operator;
 
 import java.io.InputStream;
-import java.util.List;
 
 import javax.annotation.Nonnull;
 
+import com.juanjolmm.security.api.ContentTypeWhiteList;
+import com.juanjolmm.security.api.operator.ContentTypeDetector;
 import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
 import com.juanjolmm.security.api.operator.SecureRequestOperator;
-import com.juanjolmm.security.impl.util.SecureFileUtils;
 
 /**
  * SecureUploadOperator implementation.
@@ -19,47 +19,59 @@ public final class SecureRequestOperatorImpl implements SecureRequestOperator {
 
 	private static final String DEFAULT_CONTENT_TYPE_NOT_ALLOWED = "application/octet-stream";
 	private final SecureConfigurationLoader configLoader;
+	private final ContentTypeDetector contentTypeDetector;
 
 	/**
-	 * Constructor that establish a secure configuration loader.
+	 * Constructor that establish a secure configuration loader. The shared
+	 * default content type detector is used.
 	 * 
 	 * @param configLoader
 	 *            The secure configuration loader.
 	 */
 	public SecureRequestOperatorImpl(@Nonnull final SecureConfigurationLoader configLoader) {
+		this(configLoader, TikaContentTypeDetector.getDefault());
+	}
+
+	/**
+	 * Constructor that establish a secure configuration loader and a shared
+	 * content type detector.
+	 * 
+	 * @param configLoader
+	 *            The secure configuration loader.
+	 * @param contentTypeDetector
+	 *            The content type detector used to check the stream headers.
+	 */
+	public SecureRequestOperatorImpl(@Nonnull final SecureConfigurationLoader configLoader,
+			@Nonnull final ContentTypeDetector contentTypeDetector) {
 		this.configLoader = configLoader;
+		this.contentTypeDetector = contentTypeDetector;
 	}
 
 	@Override
 	public boolean isValidRequestContentType(@Nonnull final String requestContentType) {
-		return requestContentType != null && configLoader.existsContentType(requestContentType);
+		return requestContentType != null && configLoader.getWhiteList().isAllowedContentType(requestContentType);
 	}
 
 	@Override
 	public boolean isValidFileExtension(@Nonnull final String contentType, @Nonnull final String fileExtension) {
-		return fileExtension != null && isExtensionAllowedInContentType(contentType, fileExtension);
-	}
-
-	private boolean isExtensionAllowedInContentType(@Nonnull final String contentType,
-			@Nonnull final String fileNameExt) {
-		boolean isAllowed = false;
-		final List<String> extensions = configLoader.getContentTypeExtensions(contentType);
-		if (extensions != null && extensions.contains(fileNameExt)) {
-			isAllowed = true;
-		}
-		return isAllowed;
+		return fileExtension != null && configLoader.getWhiteList().isAllowedExtension(contentType, fileExtension);
 	}
 
 	@Override
 	public boolean isValidStreamHeader(@Nonnull final InputStream inputStream, @Nonnull final String requestContentType,
 			@Nonnull final String fileExtension) {
+		return isValidDetectedContentType(contentTypeDetector.detect(inputStream), requestContentType, fileExtension);
+	}
+
+	@Override
+	public boolean isValidDetectedContentType(@Nonnull final String detectedContentType,
+			@Nonnull final String requestContentType, @Nonnull final String fileExtension) {
 		boolean isValidInputStream = false;
-		final String detectedFileContentType = SecureFileUtils.detectFileContentType(inputStream);
-		if (detectedFileContentType != null
-				&& !detectedFileContentType.equals(DEFAULT_CONTENT_TYPE_NOT_ALLOWED)
-				&& configLoader.existsContentType(detectedFileContentType)
-				&& isValidFileExtension(detectedFileContentType, fileExtension)
-				&& isValidFileExtension(requestContentType, fileExtension)) {
+		final ContentTypeWhiteList whiteList = configLoader.getWhiteList();
+		if (detectedContentType != null
+				&& !detectedContentType.equals(DEFAULT_CONTENT_TYPE_NOT_ALLOWED)
+				&& whiteList.isAllowedExtension(detectedContentType, fileExtension)
+				&& whiteList.isAllowedExtension(requestContentType, fileExtension)) {
 			isValidInputStream = true;
 		}
 		return isValidInputStream;
@@ -0,0 +1,308 @@
+package com.juanjolmm.security.impl.operator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Lazy iterator over the files of the storage folder and its shard folders.
+ * Only one folder is open at a time, with a DirectoryStream, so the memory
+ * used does not depend on the number of files. The storage folder is
+ * visited first and then the shard folders in hexadecimal order; the shard
+ * folders are not listed, their names are generated and only the existing
+ * ones are opened.
+ * <p>
+ * An iterator of pages returns the files of every folder in name order (the
+ * time order of the generated names), keeping in memory only the page size
+ * smallest names after the last returned one. Its position is available as
+ * an opaque cursor with the format "shard path:last file name", so a new
+ * iterator continues after that file even if files are added or deleted
+ * between the pages.
+ * 
+ * @author jlopez1
+ *
+ */
+final class StorageFolderIterator implements Iterator<Path>, Closeable {
+
+	private static final int SHARDS_PER_LEVEL = 256;
+	private static final char CURSOR_SEPARATOR = ':';
+	private static final Comparator<Path> NAME_ORDER = Comparator.comparing(path -> path.getFileName().toString());
+	@Nonnull
+	private final Path storageFolder;
+	private final int levels;
+	/**
+	 * Shard of each level of the current folder, not used while the current
+	 * folder is the storage folder.
+	 */
+	@Nonnull
+	private final int[] shard;
+	private boolean inStorageFolder;
+	private boolean finished;
+	@Nullable
+	private DirectoryStream<Path> directoryStream;
+	@Nullable
+	private Iterator<Path> directoryIterator;
+	/**
+	 * Maximum number of files of a page, 0 if the files are not ordered.
+	 */
+	private final int pageSize;
+	/**
+	 * Name of the last file of the current folder returned, empty at the
+	 * beginning of the folder.
+	 */
+	@Nonnull
+	private String lastName = "";
+	@Nullable
+	private Path next;
+
+	/**
+	 * Constructor of an iterator over all the files, in no particular order.
+	 * 
+	 * @param storageFolder
+	 *            The storage folder.
+	 * @param levels
+	 *            The shard levels of the storage.
+	 */
+	StorageFolderIterator(@Nonnull final Path storageFolder, final int levels) {
+		this.storageFolder = storageFolder;
+		this.levels = levels;
+		this.shard = new int[levels];
+		this.pageSize = 0;
+		inStorageFolder = true;
+		openFolder(storageFolder);
+	}
+
+	/**
+	 * Constructor of an iterator of pages from the first file or from a
+	 * cursor.
+	 * 
+	 * @param storageFolder
+	 *            The storage folder.
+	 * @param levels
+	 *            The shard levels of the storage.
+	 * @param cursor
+	 *            The cursor of the previous page or null to start from the
+	 *            beginning.
+	 * @param pageSize
+	 *            The maximum number of files of the page, greater than 0.
+	 * @throws IllegalArgumentException
+	 *             If the cursor is not valid.
+	 */
+	StorageFolderIterator(@Nonnull final Path storageFolder, final int levels, @Nullable final String cursor,
+			final int pageSize) {
+		this.storageFolder = storageFolder;
+		this.levels = levels;
+		this.shard = new int[levels];
+		this.pageSize = pageSize;
+		if (cursor == null) {
+			inStorageFolder = true;
+		} else {
+			final int separator = cursor.indexOf(CURSOR_SEPARATOR);
+			if (separator < 0) {
+				throw new IllegalArgumentException("Invalid cursor");
+			}
+			inStorageFolder = separator == 0;
+			if (!inStorageFolder) {
+				parseShard(cursor.substring(0, separator));
+			}
+			lastName = cursor.substring(separator + 1);
+		}
+		openFolder(getCurrentFolder());
+	}
+
+	private void parseShard(@Nonnull final String shardPath) {
+		final String[] shardNames = shardPath.split("/");
+		if (shardNames.length != levels) {
+			throw new IllegalArgumentException("Invalid cursor");
+		}
+		for (int level = 0; level < levels; level++) {
+			if (shardNames[level].length() != 2) {
+				throw new IllegalArgumentException("Invalid cursor");
+			}
+			try {
+				shard[level] = Integer.parseInt(shardNames[level], 16);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid cursor");
+			}
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (next == null && !finished) {
+			if (hasNextInFolder()) {
+				next = directoryIterator.next();
+			} else {
+				closeFolder();
+				if (!moveToNextFolder()) {
+					finished = true;
+				} else {
+					lastName = "";
+					openFolder(getCurrentFolder());
+				}
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	@Nonnull
+	public Path next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final Path file = next;
+		next = null;
+		lastName = file.getFileName().toString();
+		return file;
+	}
+
+	/**
+	 * Method to get the cursor of the next page: the position after the last
+	 * returned file.
+	 * 
+	 * @return The cursor or null if there are no more files.
+	 */
+	@Nullable
+	String getCursor() {
+		if (!hasNext()) {
+			return null;
+		}
+		final StringBuilder cursor = new StringBuilder(levels * 3 + 1 + lastName.length());
+		if (!inStorageFolder) {
+			for (int level = 0; level < levels; level++) {
+				if (level > 0) {
+					cursor.append('/');
+				}
+				appendShardName(cursor, shard[level]);
+			}
+		}
+		return cursor.append(CURSOR_SEPARATOR).append(lastName).toString();
+	}
+
+	@Override
+	public void close() {
+		closeFolder();
+		finished = true;
+		next = null;
+	}
+
+	private void openFolder(@Nonnull final Path folder) {
+		if (!Files.isDirectory(folder)) {
+			return;
+		}
+		try {
+			directoryStream = Files.newDirectoryStream(folder, Files::isRegularFile);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		directoryIterator = directoryStream.iterator();
+		if (pageSize > 0) {
+			directoryIterator = selectPage();
+		}
+	}
+
+	/**
+	 * Reads the current folder and selects the page size smallest names after
+	 * the last returned one, plus one more to know if the folder has more
+	 * files after the page.
+	 */
+	@Nonnull
+	private Iterator<Path> selectPage() {
+		final NavigableSet<Path> page = new TreeSet<Path>(NAME_ORDER);
+		try {
+			while (hasNextInFolder()) {
+				final Path file = directoryIterator.next();
+				if (file.getFileName().toString().compareTo(lastName) > 0) {
+					page.add(file);
+					if (page.size() > (long) pageSize + 1) {
+						page.pollLast();
+					}
+				}
+			}
+		} finally {
+			IOUtils.closeQuietly(directoryStream);
+			directoryStream = null;
+		}
+		return page.iterator();
+	}
+
+	private boolean hasNextInFolder() {
+		try {
+			return directoryIterator != null && directoryIterator.hasNext();
+		} catch (DirectoryIteratorException e) {
+			throw new UncheckedIOException(e.getCause());
+		}
+	}
+
+	private void closeFolder() {
+		IOUtils.closeQuietly(directoryStream);
+		directoryStream = null;
+		directoryIterator = null;
+	}
+
+	/**
+	 * Moves the shard to the next existing folder of the last level.
+	 * 
+	 * @return false if there are no more folders.
+	 */
+	private boolean moveToNextFolder() {
+		if (levels == 0) {
+			return false;
+		}
+		int level;
+		if (inStorageFolder) {
+			inStorageFolder = false;
+			shard[0] = -1;
+			level = 0;
+		} else {
+			level = levels - 1;
+		}
+		while (level >= 0) {
+			if (++shard[level] == SHARDS_PER_LEVEL) {
+				level--;
+			} else if (Files.isDirectory(getShardFolder(level))) {
+				if (level == levels - 1) {
+					return true;
+				}
+				shard[++level] = -1;
+			}
+		}
+		return false;
+	}
+
+	@Nonnull
+	private Path getCurrentFolder() {
+		return inStorageFolder ? storageFolder : getShardFolder(levels - 1);
+	}
+
+	@Nonnull
+	private Path getShardFolder(final int lastLevel) {
+		Path folder = storageFolder;
+		final StringBuilder shardName = new StringBuilder(2);
+		for (int level = 0; level <= lastLevel; level++) {
+			shardName.setLength(0);
+			appendShardName(shardName, shard[level]);
+			folder = folder.resolve(shardName.toString());
+		}
+		return folder;
+	}
+
+	private static void appendShardName(@Nonnull final StringBuilder builder, final int shardNumber) {
+		builder.append(Character.forDigit(shardNumber >> 4, 16)).append(Character.forDigit(shardNumber & 0xF, 16));
+	}
+}
@@ -0,0 +1,414 @@
+package com.juanjolmm.security.impl.operator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.juanjolmm.security.api.StorageModeEnum;
+import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
+import com.juanjolmm.security.api.operator.SecureFileOperator;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+
+/**
+ * Running totals of the bytes and files of a storage folder, globally and by
+ * owner key, kept in striped counters (LongAdder) so the uploads check them
+ * without walking the storage folder. The totals are rebuilt with a single
+ * parallel scan of the storage folder when the quota is created and then they
+ * are updated on every upload and delete. The owner key of every file is
+ * recorded in the extended attribute user.secure-file-upload.owner, when the
+ * file system supports it, so the totals by owner can be rebuilt. The owner
+ * quotas are refused in the DEDUPLICATED storage mode, because the uploaded
+ * files of the same content are hard links that share their attributes.
+ *
+ * Every upload reserves one file and up to max.file.size bytes before any
+ * byte is written and the reservation is replaced by the size of the file
+ * when it is stored, so the uploads in progress can not exceed the limits.
+ *
+ * @author jlopez1
+ *
+ */
+public final class StorageQuota {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(StorageQuota.class);
+	/**
+	 * Name of the user extended attribute with the owner key.
+	 */
+	@Nonnull
+	private static final String OWNER_ATTRIBUTE = "secure-file-upload.owner";
+	/**
+	 * Maximum length of the owner keys.
+	 */
+	public static final int MAX_OWNER_KEY_LENGTH = 128;
+	/**
+	 * Time during which the usable space read from the file system is reused.
+	 */
+	private static final long USABLE_SPACE_REFRESH_MILLIS = 1000;
+	/**
+	 * Quotas by storage folder, shared by all the uploaders of the same
+	 * folder.
+	 */
+	@Nonnull
+	private static final Map<String, StorageQuota> STORAGE_QUOTAS = new ConcurrentHashMap<String, StorageQuota>();
+	private final long maxBytes;
+	private final long maxFiles;
+	private final long maxOwnerBytes;
+	private final long maxOwnerFiles;
+	private final long minUsableSpace;
+	private final long maxFileSize;
+	/**
+	 * Whether the totals by owner are kept.
+	 */
+	private final boolean ownerQuota;
+	/**
+	 * File system of the storage folder, null if it can not be read.
+	 */
+	@Nullable
+	private final FileStore fileStore;
+	private final boolean ownerAttributeSupported;
+	@Nonnull
+	private final Usage totalUsage = new Usage();
+	@Nonnull
+	private final Map<String, Usage> ownerUsages = new ConcurrentHashMap<String, Usage>();
+	private volatile long usableSpace;
+	private volatile long usableSpaceTime;
+
+	/**
+	 * Constructor that establish the limits and rebuilds the totals from the
+	 * files of the storage folder.
+	 *
+	 * @param configLoader
+	 *            The secure configuration loader.
+	 * @param fileOperator
+	 *            The file operator of the storage folder.
+	 */
+	public StorageQuota(@Nonnull final SecureConfigurationLoader configLoader,
+			@Nonnull final SecureFileOperator fileOperator) {
+		maxBytes = configLoader.getQuotaMaxBytes();
+		maxFiles = configLoader.getQuotaMaxFiles();
+		maxOwnerBytes = configLoader.getOwnerQuotaMaxBytes();
+		maxOwnerFiles = configLoader.getOwnerQuotaMaxFiles();
+		minUsableSpace = configLoader.getMinUsableSpace();
+		maxFileSize = configLoader.getMaxFileSize();
+		final boolean ownerLimits = maxOwnerBytes > 0 || maxOwnerFiles > 0;
+		ownerQuota = ownerLimits && configLoader.getStorageMode() != StorageModeEnum.DEDUPLICATED;
+		if (ownerLimits && !ownerQuota) {
+			LOGGER.error("Owner quotas are not supported in DEDUPLICATED storage mode. Owner quotas disabled.");
+		}
+		fileStore = getFileStore(new File(configLoader.getStorageFolder()));
+		ownerAttributeSupported = ownerQuota && fileStore != null
+				&& fileStore.supportsFileAttributeView(UserDefinedFileAttributeView.class);
+		if (maxBytes > 0 || maxFiles > 0 || ownerQuota) {
+			rebuild(fileOperator);
+		}
+	}
+
+	/**
+	 * Method to get the quota of the storage folder of a configuration. It is
+	 * created, with the limits of the first configuration of the folder, when
+	 * it is requested for first time.
+	 *
+	 * @param configLoader
+	 *            The secure configuration loader.
+	 * @param fileOperator
+	 *            The file operator of the storage folder.
+	 * @return The quota or null if no limit is configured.
+	 */
+	@Nullable
+	public static StorageQuota getStorageQuota(@Nonnull final SecureConfigurationLoader configLoader,
+			@Nonnull final SecureFileOperator fileOperator) {
+		if (configLoader.getQuotaMaxBytes() <= 0 && configLoader.getQuotaMaxFiles() <= 0
+				&& configLoader.getOwnerQuotaMaxBytes() <= 0 && configLoader.getOwnerQuotaMaxFiles() <= 0
+				&& configLoader.getMinUsableSpace() <= 0) {
+			return null;
+		}
+		final String storageRoot = new File(configLoader.getStorageFolder()).getAbsoluteFile().toPath().normalize()
+				.toString();
+		return STORAGE_QUOTAS.computeIfAbsent(storageRoot, root -> new StorageQuota(configLoader, fileOperator));
+	}
+
+	@Nullable
+	private static FileStore getFileStore(@Nonnull final File storageFolder) {
+		try {
+			Files.createDirectories(storageFolder.toPath());
+			return Files.getFileStore(storageFolder.toPath());
+		} catch (IOException e) {
+			LOGGER.warn("Error while reading the file system of the storage folder. Usable space not checked."
+					+ e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Scans the storage folder in parallel, once, to establish the totals.
+	 */
+	private void rebuild(@Nonnull final SecureFileOperator fileOperator) {
+		final long startTime = System.currentTimeMillis();
+		try (Stream<Path> files = fileOperator.streamUploadedFiles()) {
+			files.parallel().forEach(path -> addFile(ownerAttributeSupported ? readOwnerKey(path) : null,
+					path.toFile().length()));
+		} catch (UncheckedIOException e) {
+			LOGGER.error("Error while scanning the storage folder. Quota totals incomplete." + e.getMessage());
+		}
+		LOGGER.info("Storage quota totals rebuilt: " + totalUsage.getFiles() + " files, " + totalUsage.getBytes()
+				+ " bytes in " + (System.currentTimeMillis() - startTime) + " ms.");
+	}
+
+	/**
+	 * Method to reserve the quota of an upload before it writes any byte: one
+	 * file and up to max.file.size bytes (the remaining bytes of the quota if
+	 * they are less) are added to the totals, so the concurrent uploads can not
+	 * exceed the limits. The reservation must be confirmed or released when
+	 * the upload finishes.
+	 *
+	 * @param ownerKey
+	 *            The owner key of the upload or null if it has no owner.
+	 * @return The reserved bytes.
+	 * @throws SecureFileUploadException
+	 *             If the owner key is not valid (INVALID_REQUEST), a quota is
+	 *             exhausted (QUOTA) or the usable space is lower than the low
+	 *             watermark (STORAGE_FULL).
+	 */
+	public long reserve(@Nullable final String ownerKey) throws SecureFileUploadException {
+		if (ownerKey != null && (ownerKey.isEmpty() || ownerKey.length() > MAX_OWNER_KEY_LENGTH)) {
+			throw new SecureFileUploadException(RejectionReasonEnum.INVALID_REQUEST);
+		}
+		final Usage ownerUsage = ownerKey != null && ownerQuota
+				? ownerUsages.computeIfAbsent(ownerKey, key -> new Usage()) : null;
+		final long remainingBytes = Math.min(totalUsage.getRemainingBytes(maxBytes),
+				ownerUsage != null ? ownerUsage.getRemainingBytes(maxOwnerBytes) : Long.MAX_VALUE);
+		if (remainingBytes <= 0) {
+			throw new SecureFileUploadException(RejectionReasonEnum.QUOTA);
+		}
+		final long reservedBytes = Math.min(maxFileSize, remainingBytes);
+		addUsage(ownerUsage, 1, reservedBytes);
+		// Checked again with the reservation added, so only the uploads that
+		// fit in the limits keep it.
+		if (totalUsage.isExceeded(maxBytes, maxFiles)
+				|| (ownerUsage != null && ownerUsage.isExceeded(maxOwnerBytes, maxOwnerFiles))) {
+			addUsage(ownerUsage, -1, -reservedBytes);
+			throw new SecureFileUploadException(RejectionReasonEnum.QUOTA);
+		}
+		if (minUsableSpace > 0 && getUsableSpace() < minUsableSpace) {
+			addUsage(ownerUsage, -1, -reservedBytes);
+			throw new SecureFileUploadException(RejectionReasonEnum.STORAGE_FULL);
+		}
+		return reservedBytes;
+	}
+
+	/**
+	 * Method to release the reservation of an upload that has not been
+	 * stored.
+	 *
+	 * @param ownerKey
+	 *            The owner key of the upload or null if it has no owner.
+	 * @param reservedBytes
+	 *            The bytes returned by reserve.
+	 */
+	public void release(@Nullable final String ownerKey, final long reservedBytes) {
+		addUsage(getOwnerUsage(ownerKey), -1, -reservedBytes);
+	}
+
+	/**
+	 * Method to replace the reservation of a stored upload by the size of the
+	 * file and record its owner key.
+	 *
+	 * @param file
+	 *            The uploaded file.
+	 * @param ownerKey
+	 *            The owner key of the upload or null if it has no owner.
+	 * @param reservedBytes
+	 *            The bytes returned by reserve.
+	 * @param size
+	 *            The size of the file.
+	 * @return False if the file is bigger than the reservation and it exceeds
+	 *         a quota, so it must be deleted.
+	 */
+	public boolean confirm(@Nonnull final File file, @Nullable final String ownerKey, final long reservedBytes,
+			final long size) {
+		if (ownerKey != null && ownerAttributeSupported) {
+			writeOwnerKey(file.toPath(), ownerKey);
+		}
+		final Usage ownerUsage = getOwnerUsage(ownerKey);
+		addUsage(ownerUsage, 0, size - reservedBytes);
+		return size <= reservedBytes || !(totalUsage.isExceeded(maxBytes, maxFiles)
+				|| (ownerUsage != null && ownerUsage.isExceeded(maxOwnerBytes, maxOwnerFiles)));
+	}
+
+	/**
+	 * Method to remove a deleted file from the totals.
+	 *
+	 * @param ownerKey
+	 *            The owner key of the file, read with getOwnerKey before it
+	 *            was deleted.
+	 * @param size
+	 *            The size of the file.
+	 */
+	public void recordDelete(@Nullable final String ownerKey, final long size) {
+		addUsage(getOwnerUsage(ownerKey), -1, -size);
+	}
+
+	/**
+	 * Method to get the owner key recorded with an uploaded file.
+	 *
+	 * @param file
+	 *            The uploaded file.
+	 * @return The owner key or null if the file has no owner or the totals by
+	 *         owner are not kept.
+	 */
+	@Nullable
+	public String getOwnerKey(@Nonnull final File file) {
+		return ownerAttributeSupported ? readOwnerKey(file.toPath()) : null;
+	}
+
+	private void addUsage(@Nullable final Usage ownerUsage, final long fileCount, final long byteCount) {
+		totalUsage.add(fileCount, byteCount);
+		if (ownerUsage != null) {
+			ownerUsage.add(fileCount, byteCount);
+		}
+	}
+
+	@Nullable
+	private Usage getOwnerUsage(@Nullable final String ownerKey) {
+		return ownerKey != null && ownerQuota ? ownerUsages.get(ownerKey) : null;
+	}
+
+	private void addFile(@Nullable final String ownerKey, final long size) {
+		addUsage(ownerKey != null ? ownerUsages.computeIfAbsent(ownerKey, key -> new Usage()) : null, 1, size);
+	}
+
+	/**
+	 * Returns the usable space of the storage file system. It is read again
+	 * only when the last value is older than USABLE_SPACE_REFRESH_MILLIS.
+	 */
+	private long getUsableSpace() {
+		final long now = System.currentTimeMillis();
+		if (fileStore != null && now - usableSpaceTime >= USABLE_SPACE_REFRESH_MILLIS) {
+			try {
+				usableSpace = fileStore.getUsableSpace();
+			} catch (IOException e) {
+				LOGGER.warn("Error while reading the usable space of the storage folder." + e.getMessage());
+				usableSpace = Long.MAX_VALUE;
+			}
+			usableSpaceTime = now;
+		}
+		return fileStore != null ? usableSpace : Long.MAX_VALUE;
+	}
+
+	@Nullable
+	private static String readOwnerKey(@Nonnull final Path path) {
+		final UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+		if (view == null) {
+			return null;
+		}
+		try {
+			final ByteBuffer buffer = ByteBuffer.allocate(MAX_OWNER_KEY_LENGTH * 4);
+			view.read(OWNER_ATTRIBUTE, buffer);
+			buffer.flip();
+			return StandardCharsets.UTF_8.decode(buffer).toString();
+		} catch (IOException | IllegalArgumentException e) {
+			// The file has no owner.
+			return null;
+		}
+	}
+
+	private static void writeOwnerKey(@Nonnull final Path path, @Nonnull final String ownerKey) {
+		final UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+		try {
+			if (view != null) {
+				view.write(OWNER_ATTRIBUTE, StandardCharsets.UTF_8.encode(ownerKey));
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Error while recording the owner of the file. " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Method to get the total number of bytes of the uploaded files.
+	 *
+	 * @return The total bytes.
+	 */
+	public long getTotalBytes() {
+		return totalUsage.getBytes();
+	}
+
+	/**
+	 * Method to get the total number of uploaded files.
+	 *
+	 * @return The total files.
+	 */
+	public long getTotalFiles() {
+		return totalUsage.getFiles();
+	}
+
+	/**
+	 * Method to get the number of bytes of the files uploaded by an owner.
+	 *
+	 * @param ownerKey
+	 *            The owner key.
+	 * @return The bytes of the owner, 0 if the totals by owner are not kept.
+	 */
+	public long getOwnerBytes(@Nonnull final String ownerKey) {
+		final Usage ownerUsage = ownerUsages.get(ownerKey);
+		return ownerUsage != null ? ownerUsage.getBytes() : 0;
+	}
+
+	/**
+	 * Method to get the number of files uploaded by an owner.
+	 *
+	 * @param ownerKey
+	 *            The owner key.
+	 * @return The files of the owner, 0 if the totals by owner are not kept.
+	 */
+	public long getOwnerFiles(@Nonnull final String ownerKey) {
+		final Usage ownerUsage = ownerUsages.get(ownerKey);
+		return ownerUsage != null ? ownerUsage.getFiles() : 0;
+	}
+
+	/**
+	 * Bytes and files counters.
+	 */
+	private static final class Usage {
+		@Nonnull
+		private final LongAdder bytes = new LongAdder();
+		@Nonnull
+		private final LongAdder files = new LongAdder();
+
+		private void add(final long fileCount, final long byteCount) {
+			files.add(fileCount);
+			bytes.add(byteCount);
+		}
+
+		private long getBytes() {
+			return bytes.sum();
+		}
+
+		private long getFiles() {
+			return files.sum();
+		}
+
+		private long getRemainingBytes(final long maxBytes) {
+			return maxBytes > 0 ? maxBytes - bytes.sum() : Long.MAX_VALUE;
+		}
+
+		private boolean isExceeded(final long maxBytes, final long maxFiles) {
+			return (maxBytes > 0 && bytes.sum() > maxBytes) || (maxFiles > 0 && files.sum() > maxFiles);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package com.juanjolmm.security.impl.operator;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.tika.Tika;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.mime.MimeTypes;
+
+import com.juanjolmm.security.api.operator.ContentTypeDetector;
+
+/**
+ * ContentTypeDetector implementation based on the Tika library. The Tika
+ * facade (configuration, mime types registry and detectors chain) is built
+ * only once in the constructor and it is thread safe, so the same instance can
+ * be shared between threads.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class TikaContentTypeDetector implements ContentTypeDetector {
+
+	private static final String DEFAULT_CONTENT_TYPE_NOT_ALLOWED = "application/octet-stream";
+	@Nonnull
+	private final Tika tika;
+
+	/**
+	 * Lazy holder of the shared default detector, so it is only created when
+	 * it is used for first time.
+	 */
+	private static final class DefaultDetectorHolder {
+		private static final TikaContentTypeDetector INSTANCE = new TikaContentTypeDetector();
+	}
+
+	/**
+	 * Default constructor. Creates the Tika facade with the default
+	 * configuration.
+	 */
+	public TikaContentTypeDetector() {
+		this(new Tika());
+	}
+
+	/**
+	 * Constructor with a custom Tika facade.
+	 * 
+	 * @param tika
+	 *            The Tika facade to use in the detection.
+	 */
+	public TikaContentTypeDetector(@Nonnull final Tika tika) {
+		this.tika = tika;
+	}
+
+	/**
+	 * Method to get the detector with the default configuration shared by all
+	 * the uploaders, so the Tika facade is only built once per class loader.
+	 * 
+	 * @return The shared default detector.
+	 */
+	@Nonnull
+	public static TikaContentTypeDetector getDefault() {
+		return DefaultDetectorHolder.INSTANCE;
+	}
+
+	/**
+	 * Method to get the number of bytes that the Tika mime types detector
+	 * reads from the beginning of a stream. A shorter prefix can be detected
+	 * as a different content type than the whole stream.
+	 * 
+	 * @return The minimum length of a detection prefix.
+	 */
+	public static int getMinLength() {
+		return MimeTypes.getDefaultMimeTypes().getMinLength();
+	}
+
+	@Override
+	@Nonnull
+	public String detect(@Nonnull final InputStream inputStream) {
+		String detectedFileContentType;
+		try {
+			detectedFileContentType = tika.detect(TikaInputStream.get(inputStream));
+		} catch (IOException e) {
+			detectedFileContentType = DEFAULT_CONTENT_TYPE_NOT_ALLOWED;
+		} finally {
+			IOUtils.closeQuietly(inputStream);
+		}
+		return detectedFileContentType;
+	}
+}
@@ -0,0 +1,64 @@
+package com.juanjolmm.security.impl.operator;
+
+import java.security.SecureRandom;
+
+import javax.annotation.Nonnull;
+
+import com.juanjolmm.security.api.operator.FileNameGenerator;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.util.SecureFileUtils;
+
+/**
+ * Implementation of FileNameGenerator that creates unique names based on a
+ * ULID: 48 bits with the current time in milliseconds followed by 80 random
+ * bits, encoded with the Crockford base 32 alphabet in 26 characters. The
+ * names are sorted by creation time when they are compared
+ * lexicographically. The random bits come from a SecureRandom of every
+ * thread, so the names can not be predicted from other names and the threads
+ * do not share any lock.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class UlidFileNameGenerator implements FileNameGenerator {
+
+	private static final char[] CROCKFORD_ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+	private static final int ULID_LENGTH = 26;
+	private static final int TIME_LENGTH = 10;
+	private static final int BITS_PER_CHAR = 5;
+	private static final int CHAR_MASK = 0x1F;
+	private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+	@Override
+	@Nonnull
+	public String generate(@Nonnull final String initialFileName, final int attempt)
+			throws SecureFileUploadException {
+		final String fileExtension = SecureFileUtils.getFileExtension(initialFileName);
+		return generateUlid(System.currentTimeMillis()) + "." + fileExtension;
+	}
+
+	/**
+	 * Method to generate a new ULID.
+	 * 
+	 * @param timestamp
+	 *            The time in milliseconds encoded in the first 10 characters.
+	 * @return A new ULID with the provided time and random bits.
+	 */
+	@Nonnull
+	public static String generateUlid(final long timestamp) {
+		final SecureRandom random = RANDOM.get();
+		final char[] ulid = new char[ULID_LENGTH];
+		encode(ulid, 0, TIME_LENGTH, timestamp);
+		// 80 random bits: 40 bits for each half.
+		encode(ulid, TIME_LENGTH, 8, random.nextLong());
+		encode(ulid, TIME_LENGTH + 8, 8, random.nextLong());
+		return new String(ulid);
+	}
+
+	private static void encode(@Nonnull final char[] buffer, final int offset, final int length, long value) {
+		for (int i = offset + length - 1; i >= offset; i--) {
+			buffer[i] = CROCKFORD_ALPHABET[(int) (value & CHAR_MASK)];
+			value >>>= BITS_PER_CHAR;
+		}
+	}
+}
@@ -3,22 +3,59 @@ package com.juanjolmm.security.impl.service;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import com.juanjolmm.security.api.StorageModeEnum;
+import com.juanjolmm.security.api.UploadStageEnum;
+import com.juanjolmm.security.api.operator.ContentTypeDetector;
+import com.juanjolmm.security.api.operator.FileCatalog;
 import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
 import com.juanjolmm.security.api.operator.SecureFileOperator;
 import com.juanjolmm.security.api.operator.SecureRequestOperator;
+import com.juanjolmm.security.api.service.CatalogEntry;
+import com.juanjolmm.security.api.service.FileMetadata;
+import com.juanjolmm.security.api.service.FilePage;
 import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.api.service.UploadMetricsListener;
+import com.juanjolmm.security.api.service.UploadRequest;
+import com.juanjolmm.security.api.service.UploadResult;
+import com.juanjolmm.security.api.service.UploadedFile;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
 import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.operator.LogFileCatalog;
 import com.juanjolmm.security.impl.operator.SecureConfigurationLoaderImpl;
 import com.juanjolmm.security.impl.operator.SecureFileOperatorImpl;
 import com.juanjolmm.security.impl.operator.SecureRequestOperatorImpl;
+import com.juanjolmm.security.impl.operator.StorageQuota;
+import com.juanjolmm.security.impl.operator.TikaContentTypeDetector;
+import com.juanjolmm.security.impl.util.Checksums;
 import com.juanjolmm.security.impl.util.SecureFileUtils;
+import com.juanjolmm.security.impl.util.ValidationCache;
 
 /**
  * Abstract class to define the common methods and variables to use in other
@@ -29,8 +66,42 @@ import com.juanjolmm.security.impl.util.SecureFileUtils;
  */
 public abstract class AbstractSecureFileUploader implements SecureFileUploader {
 
+	private static Logger LOGGER = LoggerFactory.getLogger(AbstractSecureFileUploader.class);
+	private static final long BATCH_THREAD_KEEP_ALIVE_SECONDS = 60;
+	/**
+	 * Start time of the stages when the metrics are disabled.
+	 */
+	protected static final long NOT_MEASURED = Long.MIN_VALUE;
+	protected final SecureConfigurationLoader configLoader;
+	protected final ContentTypeDetector contentTypeDetector;
 	protected final SecureRequestOperator requestOperator;
 	protected final SecureFileOperator fileOperator;
+	/**
+	 * Catalog where the uploaded files are recorded, null if it is disabled.
+	 */
+	@Nullable
+	protected final FileCatalog catalog;
+	/**
+	 * Cache of the content types detected by get(), null if it is disabled.
+	 */
+	@Nullable
+	private final ValidationCache validationCache;
+	/**
+	 * Quota of the storage folder, null if no limit is configured.
+	 */
+	@Nullable
+	private final StorageQuota storageQuota;
+	private volatile ExecutorService batchExecutor;
+	/**
+	 * Listener of the stage timings, null if the metrics are disabled.
+	 */
+	@Nullable
+	private volatile UploadMetricsListener metricsListener;
+	/**
+	 * Number of rejected uploads by reason (ordinal of RejectionReasonEnum).
+	 */
+	@Nonnull
+	private final LongAdder[] rejections = newRejectionCounters();
 
 	/**
 	 * Default constructor.
@@ -45,59 +116,744 @@ public abstract class AbstractSecureFileUploader implements SecureFileUploader {
 	 * @param configLoader an implementation of SecureConfigurationLoader
 	 */
 	public AbstractSecureFileUploader(SecureConfigurationLoader configLoader) {
-		requestOperator = new SecureRequestOperatorImpl(configLoader);
+		this.configLoader = configLoader;
+		contentTypeDetector = TikaContentTypeDetector.getDefault();
+		requestOperator = new SecureRequestOperatorImpl(configLoader, contentTypeDetector);
 		fileOperator = new SecureFileOperatorImpl(configLoader);
+		catalog = openCatalog(configLoader);
+		validationCache = configLoader.getValidationCacheSize() > 0
+				? new ValidationCache(configLoader.getValidationCacheSize()) : null;
+		storageQuota = StorageQuota.getStorageQuota(configLoader, fileOperator);
+	}
+
+	@Nullable
+	private static FileCatalog openCatalog(@Nonnull final SecureConfigurationLoader configLoader) {
+		final String catalogFile = configLoader.getCatalogFile();
+		if (catalogFile != null) {
+			try {
+				return LogFileCatalog.open(catalogFile);
+			} catch (IOException e) {
+				LOGGER.error("Error while opening the catalog. Catalog disabled." + e.getMessage());
+			}
+		}
+		return null;
+	}
+
+	@Override
+	@Nonnull
+	public File upload(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+			@Nonnull final String requestContentType) throws SecureFileUploadException {
+		return uploadFile(inputStream, fileName, requestContentType).getFile();
+	}
+
+	@Override
+	@Nonnull
+	public UploadedFile uploadFile(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+			@Nonnull final String requestContentType) throws SecureFileUploadException {
+		return uploadFile(inputStream, fileName, requestContentType, null);
 	}
 
 	@Override
 	@Nonnull
-	public abstract File upload(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+	public UploadedFile uploadFile(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+			@Nonnull final String requestContentType, @Nullable final String ownerKey)
+			throws SecureFileUploadException {
+		final long startTime = startStage();
+		final UploadedFile uploadedFile;
+		try {
+			uploadedFile = storageQuota != null ? storeQuotaFile(inputStream, fileName, requestContentType, ownerKey)
+					: storeFile(inputStream, fileName, requestContentType);
+		} catch (SecureFileUploadException e) {
+			rejections[e.getReason().ordinal()].increment();
+			throw e;
+		}
+		endStage(UploadStageEnum.TOTAL, startTime, uploadedFile.getContentType(), uploadedFile.getSize());
+		return uploadedFile;
+	}
+
+	/**
+	 * Stores a new file within the quota: the quota is reserved before any byte
+	 * is written, released if the file is not stored and confirmed with the
+	 * size of the file if it is stored.
+	 */
+	@Nonnull
+	private UploadedFile storeQuotaFile(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+			@Nonnull final String requestContentType, @Nullable final String ownerKey)
+			throws SecureFileUploadException {
+		final long reservedBytes;
+		try {
+			reservedBytes = storageQuota.reserve(ownerKey);
+		} catch (SecureFileUploadException e) {
+			IOUtils.closeQuietly(inputStream);
+			throw e;
+		}
+		UploadedFile uploadedFile = null;
+		try {
+			uploadedFile = storeFile(inputStream, fileName, requestContentType);
+		} finally {
+			if (uploadedFile == null) {
+				storageQuota.release(ownerKey, reservedBytes);
+			}
+		}
+		if (!storageQuota.confirm(uploadedFile.getFile(), ownerKey, reservedBytes, uploadedFile.getSize())) {
+			// The confirmed size is released even if the file cannot be
+			// removed.
+			storageQuota.release(ownerKey, uploadedFile.getSize());
+			removeOverQuotaFile(uploadedFile.getFile());
+			throw new SecureFileUploadException(RejectionReasonEnum.QUOTA);
+		}
+		return uploadedFile;
+	}
+
+	/**
+	 * Removes a stored file that exceeds the quota. Its name was generated by
+	 * this uploader, so it is removed through the file operator without the
+	 * checks of the requested deletions.
+	 */
+	private void removeOverQuotaFile(@Nonnull final File file) {
+		try {
+			fileOperator.deleteUploadedFile(file, getContentDigest(file, file.getName()));
+			forgetUploadedFile(file);
+		} catch (FileNotFoundException | SecureFileUploadException e) {
+			LOGGER.error("Error while deleting a file over the quota. " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Method to check and store a new file, implemented by every uploader.
+	 * 
+	 * @param inputStream
+	 *            Request original input stream.
+	 * @param fileName
+	 *            The original user file name.
+	 * @param requestContentType
+	 *            The request Content-type.
+	 * @return The new created file with its information.
+	 * @throws SecureFileUploadException
+	 *             If the file is not allowable to be uploaded and stored.
+	 */
+	@Nonnull
+	protected abstract UploadedFile storeFile(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
 			@Nonnull final String requestContentType) throws SecureFileUploadException;
 
+	@Override
+	public void setMetricsListener(@Nullable final UploadMetricsListener listener) {
+		metricsListener = listener;
+	}
+
+	@Override
+	public long getRejectionCount(@Nonnull final RejectionReasonEnum reason) {
+		return rejections[reason.ordinal()].sum();
+	}
+
+	@Nonnull
+	private static LongAdder[] newRejectionCounters() {
+		final LongAdder[] counters = new LongAdder[RejectionReasonEnum.values().length];
+		for (int i = 0; i < counters.length; i++) {
+			counters[i] = new LongAdder();
+		}
+		return counters;
+	}
+
+	/**
+	 * Method to get the start time of a stage. The time is only read when the
+	 * metrics are enabled.
+	 * 
+	 * @return The start time in nanoseconds or NOT_MEASURED.
+	 */
+	protected final long startStage() {
+		return metricsListener != null ? System.nanoTime() : NOT_MEASURED;
+	}
+
+	/**
+	 * Method to report a completed stage to the metrics listener.
+	 * 
+	 * @param stage
+	 *            The completed stage.
+	 * @param startTime
+	 *            The start time returned by startStage.
+	 * @param contentType
+	 *            The request or detected content type.
+	 * @param bytes
+	 *            The bytes processed in the stage, 0 if they are not known.
+	 */
+	protected final void endStage(@Nonnull final UploadStageEnum stage, final long startTime,
+			@Nullable final String contentType, final long bytes) {
+		final UploadMetricsListener listener = metricsListener;
+		if (listener != null && startTime != NOT_MEASURED) {
+			listener.onStage(stage, contentType, System.nanoTime() - startTime, bytes);
+		}
+	}
+
+	/**
+	 * Method to check the request Content-type and the extension of the file
+	 * name.
+	 * 
+	 * @param requestContentType
+	 *            The request Content-type.
+	 * @param fileName
+	 *            The original user file name.
+	 * @return The extension of the file name.
+	 * @throws SecureFileUploadException
+	 *             If the Content-type or the extension are not allowed.
+	 */
+	@Nonnull
+	protected String checkRequest(@Nonnull final String requestContentType, @Nonnull final String fileName)
+			throws SecureFileUploadException {
+		final long startTime = startStage();
+		checkContentType(requestContentType);
+		final String fileExtension = SecureFileUtils.getFileExtension(fileName);
+		checkFileExtension(requestContentType, fileExtension);
+		endStage(UploadStageEnum.REQUEST_CHECK, startTime, requestContentType, 0);
+		return fileExtension;
+	}
+
+	@Override
+	@Nonnull
+	public List<UploadResult> uploadAll(@Nonnull final Collection<UploadRequest> requests) {
+		final List<UploadResult> results = new ArrayList<UploadResult>(requests.size());
+		if (requests.size() > 1) {
+			// The folders and the owner are resolved once for the whole batch
+			// instead of by every file that is stored first.
+			fileOperator.prepareSecureStorage();
+		}
+		if (requests.size() <= 1 || configLoader.getBatchParallelism() <= 1) {
+			for (UploadRequest request : requests) {
+				results.add(uploadRequest(request));
+			}
+		} else {
+			final ExecutorService executor = getBatchExecutor();
+			final List<UploadRequest> requestList = new ArrayList<UploadRequest>(requests);
+			final List<Future<UploadResult>> futures = new ArrayList<Future<UploadResult>>(requestList.size());
+			for (UploadRequest request : requestList) {
+				futures.add(executor.submit(() -> uploadRequest(request)));
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				results.add(getBatchResult(futures.get(i), requestList.get(i)));
+			}
+		}
+		return results;
+	}
+
+	@Nonnull
+	private UploadResult uploadRequest(@Nonnull final UploadRequest request) {
+		try {
+			return new UploadResult(request,
+					upload(request.getInputStream(), request.getFileName(), request.getRequestContentType()));
+		} catch (SecureFileUploadException e) {
+			return new UploadResult(request, e);
+		} catch (RuntimeException e) {
+			LOGGER.error("Unexpected error while uploading a file of a batch. " + e.getMessage());
+			IOUtils.closeQuietly(request.getInputStream());
+			return new UploadResult(request, new SecureFileUploadException(RejectionReasonEnum.OTHER, e));
+		}
+	}
+
+	@Nonnull
+	private UploadResult getBatchResult(@Nonnull final Future<UploadResult> future,
+			@Nonnull final UploadRequest request) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			future.cancel(true);
+		} catch (ExecutionException e) {
+			LOGGER.error("Unexpected error while uploading a file of a batch. " + e.getMessage());
+		}
+		return new UploadResult(request, new SecureFileUploadException(RejectionReasonEnum.OTHER));
+	}
+
+	/**
+	 * Method to get the bounded pool used in the batch uploads. It is created
+	 * the first time it is used and its threads finish when they are idle.
+	 */
+	@Nonnull
+	private ExecutorService getBatchExecutor() {
+		ExecutorService executor = batchExecutor;
+		if (executor == null) {
+			synchronized (this) {
+				executor = batchExecutor;
+				if (executor == null) {
+					final int parallelism = configLoader.getBatchParallelism();
+					final ThreadPoolExecutor threadPool = new ThreadPoolExecutor(parallelism, parallelism,
+							BATCH_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+							runnable -> {
+								final Thread thread = new Thread(runnable, "secure-file-upload-batch");
+								thread.setDaemon(true);
+								return thread;
+							});
+					threadPool.allowCoreThreadTimeOut(true);
+					batchExecutor = executor = threadPool;
+				}
+			}
+		}
+		return executor;
+	}
+
 	protected void checkContentType(@Nonnull final String requestContentType) throws SecureFileUploadException {
 		if (!requestOperator.isValidRequestContentType(requestContentType)) {
-			throw new SecureFileUploadException();
+			throw new SecureFileUploadException(RejectionReasonEnum.CONTENT_TYPE);
 		}
 	}
 
 	protected void checkFileExtension(@Nonnull final String requestContentType, @Nonnull final String fileExtension)
 			throws SecureFileUploadException {
 		if (!requestOperator.isValidFileExtension(requestContentType, fileExtension)) {
-			throw new SecureFileUploadException();
+			throw new SecureFileUploadException(RejectionReasonEnum.EXTENSION);
+		}
+	}
+
+	@Nonnull
+	protected String checkStreamHeader(@Nonnull final InputStream inputStream,
+			@Nonnull final String requestContentType, @Nonnull final String fileExtension)
+			throws SecureFileUploadException {
+		final long startTime = startStage();
+		final String detectedContentType = contentTypeDetector.detect(inputStream);
+		endStage(UploadStageEnum.DETECTION, startTime, requestContentType, 0);
+		if (!requestOperator.isValidDetectedContentType(detectedContentType, requestContentType, fileExtension)) {
+			throw new SecureFileUploadException(RejectionReasonEnum.HEADER_MISMATCH);
 		}
+		return detectedContentType;
 	}
 
-	protected void setSecureOwner(@Nonnull final File newFile) throws SecureFileUploadException {
+	@Nonnull
+	protected String checkStoredFileHeader(@Nonnull final File newFile, @Nonnull final String requestContentType,
+			@Nonnull final String fileExtension) throws SecureFileUploadException {
 		try {
-			fileOperator.setSecureFileOwner(newFile);
+			return checkStreamHeader(new FileInputStream(newFile), requestContentType, fileExtension);
+		} catch (IOException e) {
+			FileUtils.deleteQuietly(newFile);
+			throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
 		} catch (SecureFileUploadException e) {
 			FileUtils.deleteQuietly(newFile);
-			throw new SecureFileUploadException();
+			throw e;
 		}
 	}
 
-	protected void setSecurePermissionsInFile(@Nonnull final File newFile) throws SecureFileUploadException {
+	/**
+	 * Method to get the checksums computed while the uploaded content is
+	 * stored: the configured ones and the SHA-256 digest recorded in the
+	 * catalog and used to deduplicate the stored contents.
+	 * 
+	 * @return The checksum algorithms.
+	 */
+	@Nonnull
+	protected Collection<String> getUploadChecksums() {
+		final List<String> algorithms = configLoader.getUploadChecksums();
+		if ((catalog != null || isDeduplicated()) && !algorithms.contains(Checksums.SHA_256)) {
+			final List<String> uploadAlgorithms = new ArrayList<String>(algorithms);
+			uploadAlgorithms.add(Checksums.SHA_256);
+			return uploadAlgorithms;
+		}
+		return algorithms;
+	}
+
+	/**
+	 * Method to compute the checksums of a content.
+	 * 
+	 * @param inputStream
+	 *            The content. It is closed.
+	 * @param algorithms
+	 *            The checksum algorithms.
+	 * @return The hexadecimal checksums by algorithm.
+	 * @throws SecureFileUploadException
+	 *             If the content can not be read.
+	 */
+	@Nonnull
+	protected Map<String, String> computeChecksums(@Nonnull final InputStream inputStream,
+			@Nonnull final Collection<String> algorithms) throws SecureFileUploadException {
+		final Checksums checksums = new Checksums(algorithms);
+		final byte[] buffer = new byte[8 * 1024];
 		try {
-			fileOperator.setSecureFilePermissions(newFile);
+			int read;
+			while ((read = inputStream.read(buffer)) > 0) {
+				checksums.update(buffer, 0, read);
+			}
+		} catch (IOException e) {
+			throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
+		} finally {
+			IOUtils.closeQuietly(inputStream);
+		}
+		return checksums.getValues();
+	}
+
+	protected boolean isDeduplicated() {
+		return configLoader.getStorageMode() == StorageModeEnum.DEDUPLICATED;
+	}
+
+	/**
+	 * Method to get the content type of an already stored content, so an
+	 * upload of the same content is not detected again. The stored content
+	 * type is checked against the request.
+	 * 
+	 * @param newFile
+	 *            The new stored file, deleted if the content is not allowed,
+	 *            or null.
+	 * @param digest
+	 *            The hexadecimal SHA-256 digest of the uploaded content.
+	 * @param requestContentType
+	 *            The request Content-type.
+	 * @param fileExtension
+	 *            The extension of the original file name.
+	 * @return The content type of the stored content or null if the
+	 *         deduplicated storage mode is disabled or the content is not
+	 *         stored.
+	 * @throws SecureFileUploadException
+	 *             If the stored content type is not valid for the request.
+	 */
+	@Nullable
+	protected String getKnownContentType(@Nullable final File newFile, @Nullable final String digest,
+			@Nonnull final String requestContentType, @Nonnull final String fileExtension)
+			throws SecureFileUploadException {
+		final File contentFile = digest != null && isDeduplicated() ? fileOperator.getStoredContent(digest) : null;
+		if (contentFile == null) {
+			return null;
+		}
+		final String contentType = getStoredContentType(contentFile);
+		if (contentType == null
+				|| !requestOperator.isValidDetectedContentType(contentType, requestContentType, fileExtension)) {
+			if (newFile != null) {
+				FileUtils.deleteQuietly(newFile);
+			}
+			throw new SecureFileUploadException(RejectionReasonEnum.HEADER_MISMATCH);
+		}
+		return contentType;
+	}
+
+	@Nullable
+	private String getStoredContentType(@Nonnull final File contentFile) {
+		final FileMetadata metadata = fileOperator.getFileMetadata(contentFile);
+		if (metadata != null && metadata.isUnchanged(contentFile.length(), contentFile.lastModified(),
+				metadata.getWhiteListVersion())) {
+			return metadata.getContentType();
+		}
+		try (InputStream inputStream = new FileInputStream(contentFile)) {
+			return contentTypeDetector.detect(inputStream);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Method to upload an already stored content without writing it again: a
+	 * new file is linked to the stored content and recorded.
+	 * 
+	 * @param checksums
+	 *            The checksums of the uploaded content, with its SHA-256
+	 *            digest, or null.
+	 * @param fileName
+	 *            The original user file name.
+	 * @param requestContentType
+	 *            The request Content-type.
+	 * @param fileExtension
+	 *            The extension of the original file name.
+	 * @return The new file or null if the content is not stored.
+	 * @throws SecureFileUploadException
+	 *             If the stored content is not valid for the request or the
+	 *             new file can not be created.
+	 */
+	@Nullable
+	protected UploadedFile linkKnownContent(@Nullable final Map<String, String> checksums,
+			@Nonnull final String fileName, @Nonnull final String requestContentType,
+			@Nonnull final String fileExtension) throws SecureFileUploadException {
+		final String digest = checksums != null ? checksums.get(Checksums.SHA_256) : null;
+		final String contentType = getKnownContentType(null, digest, requestContentType, fileExtension);
+		if (contentType == null) {
+			return null;
+		}
+		final File contentFile = fileOperator.getStoredContent(digest);
+		if (contentFile == null) {
+			// The content was deleted after it was checked.
+			return null;
+		}
+		final File newFile = fileOperator.linkStoredContent(contentFile, fileName);
+		recordUpload(newFile, contentType, digest);
+		return new UploadedFile(newFile, contentType, newFile.length(), checksums);
+	}
+
+	/**
+	 * Method to finish the upload of a new validated file. The staging file
+	 * is published in the storage folder; in the deduplicated storage mode
+	 * the content is stored, or the file is linked to the same stored
+	 * content. Then the file is recorded.
+	 * 
+	 * @param stagedFile
+	 *            The new checked staging file.
+	 * @param fileName
+	 *            The original user file name.
+	 * @param contentType
+	 *            The detected content type of the file.
+	 * @param size
+	 *            The size in bytes of the stored content.
+	 * @param checksums
+	 *            The checksums of the stored content.
+	 * @return The uploaded file.
+	 * @throws SecureFileUploadException
+	 *             If the file can not be published or recorded.
+	 */
+	@Nonnull
+	protected UploadedFile completeUpload(@Nonnull final File stagedFile, @Nonnull final String fileName,
+			@Nonnull final String contentType, final long size, @Nonnull final Map<String, String> checksums)
+			throws SecureFileUploadException {
+		final long startTime = startStage();
+		final File newFile;
+		try {
+			newFile = fileOperator.publishStagedFile(stagedFile, fileName);
+		} catch (SecureFileUploadException e) {
+			FileUtils.deleteQuietly(stagedFile);
+			throw e;
+		}
+		final String digest = checksums.get(Checksums.SHA_256);
+		if (digest != null && isDeduplicated()) {
+			fileOperator.storeContent(newFile, digest);
+		}
+		recordUpload(newFile, contentType, digest);
+		endStage(UploadStageEnum.PUBLISH, startTime, contentType, size);
+		return new UploadedFile(newFile, contentType, size, checksums);
+	}
+
+	/**
+	 * Method to record a new uploaded file in the catalog and in the extended
+	 * attributes of the file. If the file can not be recorded in the catalog
+	 * it is deleted.
+	 */
+	private void recordUpload(@Nonnull final File newFile, @Nonnull final String contentType,
+			@Nullable final String digest) throws SecureFileUploadException {
+		fileOperator.setFileMetadata(newFile, contentType, configLoader.getWhiteList().getVersion(), digest);
+		if (catalog != null) {
+			try {
+				catalog.add(new CatalogEntry(newFile.getName(), newFile.getAbsolutePath(), newFile.length(),
+						contentType, System.currentTimeMillis(), newFile.lastModified(), digest));
+			} catch (SecureFileUploadException e) {
+				FileUtils.deleteQuietly(newFile);
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Method to create a new file in the staging folder with the content of
+	 * the upload.
+	 * 
+	 * @param inputStream
+	 *            The content of the upload.
+	 * @param fileName
+	 *            The original user file name.
+	 * @param checksumAlgorithms
+	 *            The checksums computed while the content is copied.
+	 * @param requestContentType
+	 *            The request Content-type.
+	 * @return The new staging file, with its size and checksums.
+	 * @throws SecureFileUploadException
+	 *             If the file can not be created.
+	 */
+	@Nonnull
+	protected UploadedFile createStagedFile(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+			@Nonnull final Collection<String> checksumAlgorithms, @Nonnull final String requestContentType)
+			throws SecureFileUploadException {
+		final long startTime = startStage();
+		final UploadedFile stagedUpload = fileOperator.createStagedFile(inputStream, fileName, checksumAlgorithms);
+		endStage(UploadStageEnum.COPY, startTime, requestContentType, stagedUpload.getSize());
+		return stagedUpload;
+	}
+
+	protected void setSecureOwner(@Nonnull final File newFile, @Nonnull final String requestContentType)
+			throws SecureFileUploadException {
+		final long startTime = startStage();
+		try {
+			fileOperator.setSecureFileOwner(newFile);
 		} catch (SecureFileUploadException e) {
 			FileUtils.deleteQuietly(newFile);
-			throw new SecureFileUploadException();
+			throw e;
 		}
+		endStage(UploadStageEnum.OWNER, startTime, requestContentType, 0);
 	}
 
 	@Override
 	@Nonnull
 	public List<File> list() {
+		if (catalog != null) {
+			final List<CatalogEntry> entries = catalog.list(Long.MIN_VALUE, Long.MAX_VALUE, null);
+			final List<File> files = new ArrayList<File>(entries.size());
+			for (CatalogEntry entry : entries) {
+				files.add(entry.getFile());
+			}
+			return files;
+		}
 		return fileOperator.listUploadedFiles();
 	}
 
+	@Override
+	@Nonnull
+	public FilePage list(@Nullable final String cursor, final int limit) throws SecureFileUploadException {
+		return fileOperator.listUploadedFiles(cursor, limit);
+	}
+
+	@Override
+	@Nonnull
+	public Stream<Path> stream() {
+		return fileOperator.streamUploadedFiles();
+	}
+
+	@Override
+	@Nonnull
+	public List<CatalogEntry> list(final long fromTime, final long toTime, @Nullable final String contentType)
+			throws SecureFileUploadException {
+		if (catalog == null) {
+			LOGGER.error("Error: The catalog is not configured.");
+			throw new SecureFileUploadException(RejectionReasonEnum.INVALID_REQUEST);
+		}
+		return catalog.list(fromTime, toTime, contentType);
+	}
+
 	@Override
 	@Nonnull
 	public File get(@Nonnull String fileName) throws FileNotFoundException, SecureFileUploadException {
-		final File uplodadedFile = fileOperator.getUplodadedFile(fileName);
-		final String contentType = SecureFileUtils.detectFileContentType(new FileInputStream(uplodadedFile));
+		final CatalogEntry entry = catalog != null ? catalog.get(fileName) : null;
+		final File uplodadedFile = entry != null ? entry.getFile() : fileOperator.getUplodadedFile(fileName);
+		final BasicFileAttributes attributes;
+		try {
+			attributes = Files.readAttributes(uplodadedFile.toPath(), BasicFileAttributes.class);
+		} catch (IOException e) {
+			throw new FileNotFoundException("The file does not exist.");
+		}
+		final long lastModified = attributes.lastModifiedTime().toMillis();
+		if (entry != null && entry.isUnchanged(attributes.size(), lastModified)) {
+			// The content type was detected when the file was uploaded.
+			checkContentType(entry.getContentType());
+			checkFileExtension(entry.getContentType(), SecureFileUtils.getFileExtension(fileName));
+			return uplodadedFile;
+		}
+		final String path = uplodadedFile.getAbsolutePath();
+		final String whiteListVersion = configLoader.getWhiteList().getVersion();
+		if (validationCache != null
+				&& validationCache.get(path, attributes.size(), lastModified, whiteListVersion) != null) {
+			return uplodadedFile;
+		}
+		final String contentType = checkUploadedFile(uplodadedFile, fileName, attributes, whiteListVersion);
+		if (validationCache != null) {
+			validationCache.put(path, attributes.size(), lastModified, whiteListVersion, contentType);
+		}
+		return uplodadedFile;
+	}
+
+	@Override
+	public void delete(@Nonnull final String fileName) throws FileNotFoundException, SecureFileUploadException {
+		// Only the path is checked: the stored names are generated and they
+		// do not follow the rules of the uploaded names.
+		if (fileName == null || fileName.isEmpty() || fileName.indexOf('/') >= 0 || fileName.indexOf('\\') >= 0
+				|| fileName.contains("..")) {
+			throw new SecureFileUploadException(RejectionReasonEnum.FILE_NAME);
+		}
+		final File uploadedFile = fileOperator.getUplodadedFile(fileName);
+		if (!isInStorageFolder(uploadedFile)) {
+			throw new SecureFileUploadException(RejectionReasonEnum.FILE_NAME);
+		}
+		// The size and the owner are read before the file is deleted.
+		final long size = storageQuota != null ? uploadedFile.length() : 0;
+		final String ownerKey = storageQuota != null ? storageQuota.getOwnerKey(uploadedFile) : null;
+		fileOperator.deleteUploadedFile(uploadedFile, getContentDigest(uploadedFile, fileName));
+		if (storageQuota != null) {
+			storageQuota.recordDelete(ownerKey, size);
+		}
+		forgetUploadedFile(uploadedFile);
+	}
+
+	private boolean isInStorageFolder(@Nonnull final File file) {
+		final Path storageRoot = new File(configLoader.getStorageFolder()).getAbsoluteFile().toPath().normalize();
+		final Path path = file.getAbsoluteFile().toPath().normalize();
+		return path.startsWith(storageRoot) && !path.equals(storageRoot);
+	}
+
+	/**
+	 * Removes a deleted file from the catalog and the validation cache.
+	 */
+	private void forgetUploadedFile(@Nonnull final File file) throws SecureFileUploadException {
+		if (catalog != null) {
+			catalog.remove(file.getName());
+		}
+		if (validationCache != null) {
+			validationCache.invalidate(file.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Returns the digest of the content of an uploaded file: the recorded one
+	 * or, in the deduplicated storage mode, the digest of the current
+	 * content.
+	 */
+	@Nullable
+	private String getContentDigest(@Nonnull final File uploadedFile, @Nonnull final String fileName)
+			throws FileNotFoundException, SecureFileUploadException {
+		final CatalogEntry entry = catalog != null ? catalog.get(fileName) : null;
+		if (entry != null && entry.getDigest() != null) {
+			return entry.getDigest();
+		}
+		final FileMetadata metadata = fileOperator.getFileMetadata(uploadedFile);
+		if (metadata != null && metadata.getDigest() != null) {
+			return metadata.getDigest();
+		}
+		return isDeduplicated() ? computeChecksums(new FileInputStream(uploadedFile),
+				Collections.singletonList(Checksums.SHA_256)).get(Checksums.SHA_256) : null;
+	}
+
+	/**
+	 * Method to check a file retrieved without catalog entry. The content
+	 * type stored in the extended attributes of the file is trusted if the
+	 * file and the white list have not changed since it was stored; in other
+	 * case the content type is detected again and stored.
+	 */
+	@Nonnull
+	private String checkUploadedFile(@Nonnull final File uplodadedFile, @Nonnull final String fileName,
+			@Nonnull final BasicFileAttributes attributes, @Nonnull final String whiteListVersion)
+			throws FileNotFoundException, SecureFileUploadException {
+		final long lastModified = attributes.lastModifiedTime().toMillis();
+		final FileMetadata metadata = fileOperator.getFileMetadata(uplodadedFile);
+		final boolean trusted = metadata != null
+				&& metadata.isUnchanged(attributes.size(), lastModified, whiteListVersion);
+		final String contentType;
+		if (trusted) {
+			contentType = metadata.getContentType();
+		} else {
+			try (InputStream inputStream = new FileInputStream(uplodadedFile)) {
+				contentType = contentTypeDetector.detect(inputStream);
+			} catch (FileNotFoundException e) {
+				throw e;
+			} catch (IOException e) {
+				throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
+			}
+		}
 		checkContentType(contentType);
 		checkFileExtension(contentType, SecureFileUtils.getFileExtension(fileName));
-		return uplodadedFile;
+		if (!trusted) {
+			// The digest is kept only if the content has not changed.
+			final String digest = metadata != null
+					&& metadata.isUnchanged(attributes.size(), lastModified, metadata.getWhiteListVersion())
+							? metadata.getDigest() : null;
+			fileOperator.setFileMetadata(uplodadedFile, contentType, whiteListVersion, digest);
+		}
+		return contentType;
+	}
+
+	/**
+	 * Method to get the cache of the validations made by get().
+	 * 
+	 * @return The cache with its hit and miss counters or null if it is
+	 *         disabled.
+	 */
+	@Nullable
+	public ValidationCache getValidationCache() {
+		return validationCache;
+	}
+
+	/**
+	 * Method to get the quota of the storage folder.
+	 * 
+	 * @return The quota with its running totals or null if no limit is
+	 *         configured.
+	 */
+	@Nullable
+	public StorageQuota getStorageQuota() {
+		return storageQuota;
 	}
 }
@@ -0,0 +1,112 @@
+package com.juanjolmm.security.impl.service;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.juanjolmm.security.api.service.AsyncSecureFileUploader;
+import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+
+/**
+ * AsyncSecureFileUploader implementation that runs a SecureFileUploader in a
+ * caller supplied executor (a thread pool or a virtual thread per task
+ * executor). The number of uploads in progress is bounded: when the limit is
+ * reached the new uploads are rejected immediately with reason BUSY.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class AsyncSecureFileUploaderImpl implements AsyncSecureFileUploader {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(AsyncSecureFileUploaderImpl.class);
+	@Nonnull
+	private final SecureFileUploader fileUploader;
+	@Nonnull
+	private final Executor executor;
+	@Nonnull
+	private final Semaphore inFlightPermits;
+
+	/**
+	 * Constructor that establish the uploader, the executor and the limit of
+	 * uploads in progress.
+	 * 
+	 * @param fileUploader
+	 *            The uploader that makes the checks and stores the files.
+	 * @param executor
+	 *            The executor where the uploads are run.
+	 * @param maxInFlightUploads
+	 *            The maximum number of uploads in progress.
+	 */
+	public AsyncSecureFileUploaderImpl(@Nonnull final SecureFileUploader fileUploader,
+			@Nonnull final Executor executor, final int maxInFlightUploads) {
+		if (maxInFlightUploads <= 0) {
+			throw new IllegalArgumentException("The maximum number of uploads in progress must be positive.");
+		}
+		this.fileUploader = fileUploader;
+		this.executor = executor;
+		this.inFlightPermits = new Semaphore(maxInFlightUploads);
+	}
+
+	@Override
+	@Nonnull
+	public CompletableFuture<File> uploadAsync(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+			@Nonnull final String requestContentType) {
+		final CompletableFuture<File> future = new CompletableFuture<File>();
+		if (!inFlightPermits.tryAcquire()) {
+			LOGGER.warn("Too many uploads in progress. Upload rejected.");
+			IOUtils.closeQuietly(inputStream);
+			future.completeExceptionally(new SecureFileUploadException(RejectionReasonEnum.BUSY));
+			return future;
+		}
+		try {
+			executor.execute(() -> upload(future, inputStream, fileName, requestContentType));
+		} catch (RejectedExecutionException e) {
+			inFlightPermits.release();
+			IOUtils.closeQuietly(inputStream);
+			LOGGER.warn("Upload rejected by the executor. " + e.getMessage());
+			future.completeExceptionally(new SecureFileUploadException(RejectionReasonEnum.BUSY));
+		}
+		return future;
+	}
+
+	private void upload(@Nonnull final CompletableFuture<File> future, @Nonnull final InputStream inputStream,
+			@Nonnull final String fileName, @Nonnull final String requestContentType) {
+		File newFile = null;
+		Throwable uploadException = null;
+		try {
+			newFile = fileUploader.upload(inputStream, fileName, requestContentType);
+		} catch (SecureFileUploadException | RuntimeException | Error e) {
+			uploadException = e;
+		} finally {
+			// The slot is released before completing the future, so it is
+			// available when the caller is notified.
+			inFlightPermits.release();
+		}
+		if (uploadException == null) {
+			future.complete(newFile);
+		} else {
+			future.completeExceptionally(uploadException);
+		}
+	}
+
+	/**
+	 * Method to get the number of uploads that can be started before reaching
+	 * the limit.
+	 * 
+	 * @return The number of available upload slots.
+	 */
+	public int getAvailableUploads() {
+		return inFlightPermits.availablePermits();
+	}
+}
@@ -0,0 +1,101 @@
+package com.juanjolmm.security.impl.service;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.juanjolmm.security.api.UploadStageEnum;
+import com.juanjolmm.security.api.service.UploadMetricsListener;
+import com.juanjolmm.security.impl.util.LatencyHistogram;
+
+/**
+ * UploadMetricsListener implementation that records the stage timings in a
+ * lock-free LatencyHistogram per stage and content type, so the percentiles
+ * (p50, p99, p999...) can be read at any time. The content types are grouped
+ * in lower case without parameters; when MAX_CONTENT_TYPES content types are
+ * recorded the new ones are grouped as OTHER_CONTENT_TYPE, because the
+ * request Content-type is provided by the user.
+ *
+ * @author jlopez1
+ *
+ */
+public final class HistogramUploadMetricsListener implements UploadMetricsListener {
+
+	/**
+	 * Maximum number of content types with their own histograms.
+	 */
+	public static final int MAX_CONTENT_TYPES = 256;
+	/**
+	 * Content type of the uploads without content type or with a content type
+	 * over the limit.
+	 */
+	@Nonnull
+	public static final String OTHER_CONTENT_TYPE = "other";
+	private static final int STAGES = UploadStageEnum.values().length;
+	@Nonnull
+	private final ConcurrentMap<String, LatencyHistogram[]> histograms =
+			new ConcurrentHashMap<String, LatencyHistogram[]>();
+
+	@Override
+	public void onStage(@Nonnull final UploadStageEnum stage, @Nullable final String contentType, final long nanos,
+			final long bytes) {
+		getHistograms(getKey(contentType))[stage.ordinal()].record(nanos, bytes);
+	}
+
+	/**
+	 * Method to get the histogram of a stage and content type.
+	 *
+	 * @param stage
+	 *            The stage.
+	 * @param contentType
+	 *            The content type.
+	 * @return The histogram or null if nothing was recorded for the content
+	 *         type.
+	 */
+	@Nullable
+	public LatencyHistogram getHistogram(@Nonnull final UploadStageEnum stage, @Nullable final String contentType) {
+		final LatencyHistogram[] contentTypeHistograms = histograms.get(getKey(contentType));
+		return contentTypeHistograms != null ? contentTypeHistograms[stage.ordinal()] : null;
+	}
+
+	/**
+	 * Method to get the content types with recorded stages.
+	 *
+	 * @return The content types (lower case and without parameters).
+	 */
+	@Nonnull
+	public Set<String> getContentTypes() {
+		return Collections.unmodifiableSet(histograms.keySet());
+	}
+
+	@Nonnull
+	private LatencyHistogram[] getHistograms(@Nonnull final String key) {
+		final LatencyHistogram[] contentTypeHistograms = histograms.get(key);
+		if (contentTypeHistograms != null) {
+			return contentTypeHistograms;
+		}
+		return histograms.computeIfAbsent(histograms.size() < MAX_CONTENT_TYPES ? key : OTHER_CONTENT_TYPE,
+				newKey -> {
+					final LatencyHistogram[] newHistograms = new LatencyHistogram[STAGES];
+					for (int i = 0; i < STAGES; i++) {
+						newHistograms[i] = new LatencyHistogram();
+					}
+					return newHistograms;
+				});
+	}
+
+	@Nonnull
+	private static String getKey(@Nullable final String contentType) {
+		if (contentType == null) {
+			return OTHER_CONTENT_TYPE;
+		}
+		final int parametersIndex = contentType.indexOf(';');
+		final String key = (parametersIndex >= 0 ? contentType.substring(0, parametersIndex) : contentType).trim();
+		return key.isEmpty() ? OTHER_CONTENT_TYPE : key.toLowerCase(Locale.ROOT);
+	}
+}
@@ -0,0 +1,100 @@
+package com.juanjolmm.security.impl.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.inject.Singleton;
+
+import org.apache.commons.io.IOUtils;
+
+import com.juanjolmm.security.api.UploadStageEnum;
+import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
+import com.juanjolmm.security.api.qualifiers.Hybrid;
+import com.juanjolmm.security.api.service.UploadedFile;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.util.ThresholdBuffer;
+
+/**
+ * SecureFileUploader implementation that makes all the checks before storing
+ * the file, like the in memory implementation, but only keeps in memory the
+ * uploads up to the configured memory threshold. Bigger uploads are spilled
+ * to a private temporary file, so the memory used by each upload is bounded.
+ * The header check and the storage read the same buffer without copying it.
+ * 
+ * @author jlopez1
+ *
+ */
+@Hybrid
+@Singleton
+public final class SecureFileUploaderHybrid extends AbstractSecureFileUploader {
+
+	/**
+	 * Default constructor.
+	 */
+	public SecureFileUploaderHybrid() {
+		super();
+	}
+
+	/**
+	 * Constructor with custom configLoader
+	 *
+	 * @param configLoader an implementation of SecureConfigurationLoader
+	 */
+	public SecureFileUploaderHybrid(SecureConfigurationLoader configLoader) {
+		super(configLoader);
+	}
+
+	@Override
+	@Nonnull
+	protected UploadedFile storeFile(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+			@Nonnull final String requestContentType) throws SecureFileUploadException {
+		if (inputStream != null && fileName != null && requestContentType != null) {
+			final String fileExtension = checkRequest(requestContentType, fileName);
+			final long startTime = startStage();
+			final ThresholdBuffer buffer = readBuffer(inputStream);
+			endStage(UploadStageEnum.BUFFER, startTime, requestContentType, buffer.size());
+			try {
+				// Known contents are neither detected nor written again.
+				final Map<String, String> checksums = isDeduplicated()
+						? computeChecksums(buffer.newInputStream(), getUploadChecksums()) : null;
+				final UploadedFile knownFile = linkKnownContent(checksums, fileName, requestContentType,
+						fileExtension);
+				if (knownFile != null) {
+					return knownFile;
+				}
+				final String detectedContentType = checkStreamHeader(buffer.newInputStream(), requestContentType,
+						fileExtension);
+				final UploadedFile stagedUpload = createStagedFile(buffer.newInputStream(), fileName,
+						checksums != null ? Collections.<String>emptyList() : getUploadChecksums(), requestContentType);
+				final File stagedFile = stagedUpload.getFile();
+				setSecureOwner(stagedFile, requestContentType);
+				return completeUpload(stagedFile, fileName, detectedContentType, stagedUpload.getSize(),
+						checksums != null ? checksums : stagedUpload.getChecksums());
+			} catch (IOException e) {
+				throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
+			} finally {
+				buffer.close();
+			}
+		} else {
+			throw new SecureFileUploadException(RejectionReasonEnum.INVALID_REQUEST);
+		}
+	}
+
+	@Nonnull
+	private ThresholdBuffer readBuffer(@Nonnull final InputStream inputStream) throws SecureFileUploadException {
+		try {
+			return ThresholdBuffer.read(inputStream, configLoader.getMemoryThreshold(), configLoader.getMaxFileSize());
+		} catch (ThresholdBuffer.MaxSizeExceededException e) {
+			throw new SecureFileUploadException(RejectionReasonEnum.SIZE);
+		} catch (IOException e) {
+			throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
+		} finally {
+			IOUtils.closeQuietly(inputStream);
+		}
+	}
+}
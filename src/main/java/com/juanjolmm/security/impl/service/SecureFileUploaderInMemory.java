@@ -3,11 +3,17 @@ package com.juanjolmm.security.impl.service;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
+import javax.inject.Singleton;
 
+import com.juanjolmm.security.api.UploadStageEnum;
 import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
 import com.juanjolmm.security.api.qualifiers.InMemory;
+import com.juanjolmm.security.api.service.UploadedFile;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
 import com.juanjolmm.security.exception.SecureFileUploadException;
 import com.juanjolmm.security.impl.util.SecureFileUtils;
 
@@ -21,6 +27,7 @@ import com.juanjolmm.security.impl.util.SecureFileUtils;
  *
  */
 @InMemory
+@Singleton
 public final class SecureFileUploaderInMemory extends AbstractSecureFileUploader {
 
 	/**
@@ -41,28 +48,30 @@ public final class SecureFileUploaderInMemory extends AbstractSecureFileUploader
 
 	@Override
 	@Nonnull
-	public File upload(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+	protected UploadedFile storeFile(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
 			@Nonnull final String requestContentType) throws SecureFileUploadException {
 		if (inputStream != null && fileName != null && requestContentType != null) {
-			checkContentType(requestContentType);
-			final String fileExtension = SecureFileUtils.getFileExtension(fileName);
-			checkFileExtension(requestContentType, fileExtension);
+			final String fileExtension = checkRequest(requestContentType, fileName);
+			final long startTime = startStage();
 			byte[] bytes = SecureFileUtils.getBytesFromInputStream(inputStream);
-			checkStreamHeader(new ByteArrayInputStream(bytes), requestContentType, fileExtension);
-			final File newFile = fileOperator.createNewFileInSecureStorage(new ByteArrayInputStream(bytes), fileName);
-			setSecureOwner(newFile);
-			setSecurePermissionsInFile(newFile);
-			return newFile;
+			endStage(UploadStageEnum.BUFFER, startTime, requestContentType, bytes.length);
+			// Known contents are neither detected nor written again.
+			final Map<String, String> checksums = isDeduplicated()
+					? computeChecksums(new ByteArrayInputStream(bytes), getUploadChecksums()) : null;
+			final UploadedFile knownFile = linkKnownContent(checksums, fileName, requestContentType, fileExtension);
+			if (knownFile != null) {
+				return knownFile;
+			}
+			final String detectedContentType = checkStreamHeader(new ByteArrayInputStream(bytes), requestContentType,
+					fileExtension);
+			final UploadedFile stagedUpload = createStagedFile(new ByteArrayInputStream(bytes), fileName,
+					checksums != null ? Collections.<String>emptyList() : getUploadChecksums(), requestContentType);
+			final File stagedFile = stagedUpload.getFile();
+			setSecureOwner(stagedFile, requestContentType);
+			return completeUpload(stagedFile, fileName, detectedContentType, stagedUpload.getSize(),
+					checksums != null ? checksums : stagedUpload.getChecksums());
 		} else {
-			throw new SecureFileUploadException();
-		}
-	}
-
-	private void checkStreamHeader(@Nonnull final InputStream inputStream, @Nonnull final String requestContentType,
-			@Nonnull final String fileExtension)
-			throws SecureFileUploadException {
-		if (!requestOperator.isValidStreamHeader(inputStream, requestContentType, fileExtension)) {
-			throw new SecureFileUploadException();
+			throw new SecureFileUploadException(RejectionReasonEnum.INVALID_REQUEST);
 		}
 	}
 }
@@ -1,18 +1,17 @@
 package com.juanjolmm.security.impl.service;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
 import java.io.InputStream;
 
 import javax.annotation.Nonnull;
+import javax.inject.Singleton;
 
 import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
-import org.apache.commons.io.FileUtils;
-
 import com.juanjolmm.security.api.qualifiers.Stored;
+import com.juanjolmm.security.api.service.UploadedFile;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
 import com.juanjolmm.security.exception.SecureFileUploadException;
-import com.juanjolmm.security.impl.util.SecureFileUtils;
+import com.juanjolmm.security.impl.util.Checksums;
 
 /**
  * SecureFileUploader implementation that make the header check in the file.
@@ -23,6 +22,7 @@ import com.juanjolmm.security.impl.util.SecureFileUtils;
  *
  */
 @Stored
+@Singleton
 public final class SecureFileUploaderStored extends AbstractSecureFileUploader {
 
 	/**
@@ -43,33 +43,22 @@ public final class SecureFileUploaderStored extends AbstractSecureFileUploader {
 
 	@Override
 	@Nonnull
-	public File upload(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+	protected UploadedFile storeFile(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
 			@Nonnull final String requestContentType) throws SecureFileUploadException {
 		if (inputStream != null && fileName != null && requestContentType != null) {
-			checkContentType(requestContentType);
-			final String fileExtension = SecureFileUtils.getFileExtension(fileName);
-			checkFileExtension(requestContentType, fileExtension);
-			final File newFile = fileOperator.createNewFileInSecureStorage(inputStream, fileName);
-			setSecureOwner(newFile);
-			setSecurePermissionsInFile(newFile);
-			checkStreamHeader(newFile, requestContentType, fileExtension);
-			return newFile;
+			final String fileExtension = checkRequest(requestContentType, fileName);
+			final UploadedFile stagedUpload = createStagedFile(inputStream, fileName, getUploadChecksums(),
+					requestContentType);
+			final File stagedFile = stagedUpload.getFile();
+			setSecureOwner(stagedFile, requestContentType);
+			final String knownContentType = getKnownContentType(stagedFile,
+					stagedUpload.getChecksum(Checksums.SHA_256), requestContentType, fileExtension);
+			final String detectedContentType = knownContentType != null ? knownContentType
+					: checkStoredFileHeader(stagedFile, requestContentType, fileExtension);
+			return completeUpload(stagedFile, fileName, detectedContentType, stagedUpload.getSize(),
+					stagedUpload.getChecksums());
 		} else {
-			throw new SecureFileUploadException();
-		}
-	}
-
-	private void checkStreamHeader(@Nonnull final File newFile, @Nonnull final String requestContentType,
-			@Nonnull final String fileExtension)
-			throws SecureFileUploadException {
-		try {
-			if (!requestOperator.isValidStreamHeader(new FileInputStream(newFile), requestContentType, fileExtension)) {
-				FileUtils.deleteQuietly(newFile);
-				throw new SecureFileUploadException();
-			}
-		} catch (IOException e) {
-			FileUtils.deleteQuietly(newFile);
-			throw new SecureFileUploadException();
+			throw new SecureFileUploadException(RejectionReasonEnum.INVALID_REQUEST);
 		}
 	}
 }
@@ -0,0 +1,122 @@
+package com.juanjolmm.security.impl.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.inject.Singleton;
+
+import org.apache.commons.io.IOUtils;
+
+import com.juanjolmm.security.api.UploadStageEnum;
+import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
+import com.juanjolmm.security.api.qualifiers.Streaming;
+import com.juanjolmm.security.api.service.UploadedFile;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.util.Checksums;
+
+/**
+ * SecureFileUploader implementation that makes the header check in a single
+ * pass. Only the first bytes of the stream (detection prefix) are read in
+ * memory and checked before writing anything, and then the rest of the stream
+ * is copied directly to the storage. Bad uploads are rejected after reading
+ * the prefix. Container formats (Office documents and zip files) can not be
+ * identified with the prefix, so they are checked again when the whole file
+ * has been stored. This implementation keeps the memory bounded to the
+ * detection prefix size.
+ * 
+ * @author jlopez1
+ *
+ */
+@Streaming
+@Singleton
+public final class SecureFileUploaderStreaming extends AbstractSecureFileUploader {
+
+	/**
+	 * Content types detected from the prefix of container formats. The final
+	 * content type of these formats depends on the whole content.
+	 */
+	private static final Set<String> CONTAINER_CONTENT_TYPES = Collections.unmodifiableSet(new HashSet<String>(
+			Arrays.asList("application/zip", "application/x-tika-ooxml", "application/x-tika-msoffice")));
+
+	/**
+	 * Default constructor.
+	 */
+	public SecureFileUploaderStreaming() {
+		super();
+	}
+
+	/**
+	 * Constructor with custom configLoader
+	 *
+	 * @param configLoader an implementation of SecureConfigurationLoader
+	 */
+	public SecureFileUploaderStreaming(SecureConfigurationLoader configLoader) {
+		super(configLoader);
+	}
+
+	@Override
+	@Nonnull
+	protected UploadedFile storeFile(@Nonnull final InputStream inputStream, @Nonnull final String fileName,
+			@Nonnull final String requestContentType) throws SecureFileUploadException {
+		if (inputStream != null && fileName != null && requestContentType != null) {
+			final String fileExtension = checkRequest(requestContentType, fileName);
+			final byte[] prefix = new byte[configLoader.getDetectionPrefixSize()];
+			final int prefixLength = readPrefix(inputStream, prefix);
+			final boolean isWholeStream = prefixLength < prefix.length;
+			final long startTime = startStage();
+			final String prefixContentType = contentTypeDetector
+					.detect(new ByteArrayInputStream(prefix, 0, prefixLength));
+			endStage(UploadStageEnum.DETECTION, startTime, requestContentType, prefixLength);
+			final boolean isFinalContentType = isWholeStream || !CONTAINER_CONTENT_TYPES.contains(prefixContentType);
+			if (isFinalContentType) {
+				checkPrefixContentType(inputStream, prefixContentType, requestContentType, fileExtension);
+			}
+			final UploadedFile stagedUpload = createStagedFile(
+					new SequenceInputStream(new ByteArrayInputStream(prefix, 0, prefixLength), inputStream), fileName,
+					getUploadChecksums(), requestContentType);
+			final File stagedFile = stagedUpload.getFile();
+			setSecureOwner(stagedFile, requestContentType);
+			final String detectedContentType;
+			if (isFinalContentType) {
+				detectedContentType = prefixContentType;
+			} else {
+				final String knownContentType = getKnownContentType(stagedFile,
+						stagedUpload.getChecksum(Checksums.SHA_256), requestContentType, fileExtension);
+				detectedContentType = knownContentType != null ? knownContentType
+						: checkStoredFileHeader(stagedFile, requestContentType, fileExtension);
+			}
+			return completeUpload(stagedFile, fileName, detectedContentType, stagedUpload.getSize(),
+					stagedUpload.getChecksums());
+		} else {
+			throw new SecureFileUploadException(RejectionReasonEnum.INVALID_REQUEST);
+		}
+	}
+
+	private int readPrefix(@Nonnull final InputStream inputStream, @Nonnull final byte[] prefix)
+			throws SecureFileUploadException {
+		try {
+			return IOUtils.read(inputStream, prefix);
+		} catch (IOException e) {
+			IOUtils.closeQuietly(inputStream);
+			throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
+		}
+	}
+
+	private void checkPrefixContentType(@Nonnull final InputStream inputStream,
+			@Nonnull final String prefixContentType, @Nonnull final String requestContentType,
+			@Nonnull final String fileExtension) throws SecureFileUploadException {
+		if (!requestOperator.isValidDetectedContentType(prefixContentType, requestContentType, fileExtension)) {
+			IOUtils.closeQuietly(inputStream);
+			throw new SecureFileUploadException(RejectionReasonEnum.HEADER_MISMATCH);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.juanjolmm.security.impl.util;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded admission of concurrent operations: up to maxConcurrent operations
+ * run at the same time, up to maxQueued operations wait (in arrival order) for
+ * a free slot during the timeout, and the rest are rejected immediately, so
+ * the callers fail fast instead of piling up while the resource is saturated.
+ * The admitted operations must call release when they finish.
+ *
+ * @author jlopez1
+ *
+ */
+public final class AdmissionController {
+
+	private final int maxConcurrent;
+	private final int maxQueued;
+	private final long timeoutMillis;
+	private final Semaphore permits;
+	private final AtomicInteger queued = new AtomicInteger();
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * Constructor that establish the limits.
+	 *
+	 * @param maxConcurrent
+	 *            The maximum number of operations running at the same time,
+	 *            greater than 0.
+	 * @param maxQueued
+	 *            The maximum number of operations waiting for a free slot.
+	 * @param timeoutMillis
+	 *            The maximum time that an operation waits for a free slot.
+	 */
+	public AdmissionController(final int maxConcurrent, final int maxQueued, final long timeoutMillis) {
+		if (maxConcurrent <= 0) {
+			throw new IllegalArgumentException("The maximum concurrent operations must be greater than 0.");
+		}
+		this.maxConcurrent = maxConcurrent;
+		this.maxQueued = Math.max(maxQueued, 0);
+		this.timeoutMillis = Math.max(timeoutMillis, 0);
+		this.permits = new Semaphore(maxConcurrent, true);
+	}
+
+	/**
+	 * Method to admit a new operation. If there is no free slot the operation
+	 * waits for one while the queue is not full and the timeout does not
+	 * expire.
+	 *
+	 * @return True if the operation is admitted, false if it is rejected.
+	 */
+	public boolean tryAcquire() {
+		if (permits.tryAcquire()) {
+			return true;
+		}
+		if (queued.incrementAndGet() > maxQueued) {
+			queued.decrementAndGet();
+			rejected.increment();
+			return false;
+		}
+		try {
+			if (permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+				return true;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			queued.decrementAndGet();
+		}
+		rejected.increment();
+		return false;
+	}
+
+	/**
+	 * Method to release the slot of an admitted operation.
+	 */
+	public void release() {
+		permits.release();
+	}
+
+	/**
+	 * Method to get the maximum number of operations running at the same
+	 * time.
+	 *
+	 * @return The maximum number of concurrent operations.
+	 */
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	/**
+	 * Method to get the number of admitted operations in progress.
+	 *
+	 * @return The number of running operations.
+	 */
+	public int getActiveCount() {
+		return maxConcurrent - permits.availablePermits();
+	}
+
+	/**
+	 * Method to get the number of operations waiting for a free slot.
+	 *
+	 * @return The number of queued operations.
+	 */
+	public int getQueuedCount() {
+		return queued.get();
+	}
+
+	/**
+	 * Method to get the number of rejected operations.
+	 *
+	 * @return The number of rejected operations.
+	 */
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+}
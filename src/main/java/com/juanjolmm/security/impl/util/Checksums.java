@@ -0,0 +1,165 @@
+package com.juanjolmm.security.impl.util;
+
+import java.lang.reflect.Constructor;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Class to compute several checksums of a content in only one pass. The
+ * supported algorithms are CRC32, CRC32C (Java 9 or newer) and the message
+ * digests of the platform (SHA-256...). The values are hexadecimal strings.
+ * <p>
+ * An instance is not thread safe and it is used for only one content.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class Checksums {
+
+	@Nonnull
+	public static final String SHA_256 = "SHA-256";
+	@Nonnull
+	public static final String CRC32 = "CRC32";
+	@Nonnull
+	public static final String CRC32C = "CRC32C";
+	/**
+	 * Constructor of java.util.zip.CRC32C, null if the platform does not
+	 * provide it.
+	 */
+	@Nullable
+	private static final Constructor<? extends Checksum> CRC32C_CONSTRUCTOR = findCrc32cConstructor();
+	@Nonnull
+	private final String[] algorithms;
+	@Nonnull
+	private final Object[] functions;
+
+	/**
+	 * Constructor with the algorithms to compute.
+	 * 
+	 * @param algorithms
+	 *            The checksum algorithms. They must be supported.
+	 * @throws IllegalArgumentException
+	 *             If an algorithm is not supported.
+	 */
+	public Checksums(@Nonnull final Collection<String> algorithms) {
+		this.algorithms = algorithms.toArray(new String[algorithms.size()]);
+		functions = new Object[this.algorithms.length];
+		for (int i = 0; i < this.algorithms.length; i++) {
+			functions[i] = newFunction(this.algorithms[i]);
+			if (functions[i] == null) {
+				throw new IllegalArgumentException("Unsupported checksum algorithm: " + this.algorithms[i]);
+			}
+		}
+	}
+
+	/**
+	 * Method to check if an algorithm is supported by the platform.
+	 * 
+	 * @param algorithm
+	 *            The checksum algorithm.
+	 * @return true if the algorithm is supported.
+	 */
+	public static boolean isSupported(@Nonnull final String algorithm) {
+		return newFunction(algorithm) != null;
+	}
+
+	/**
+	 * Method to get the supported algorithms of a list, in the same order and
+	 * without repetitions.
+	 * 
+	 * @param algorithms
+	 *            The checksum algorithms.
+	 * @return The supported algorithms.
+	 */
+	@Nonnull
+	public static List<String> getSupported(@Nonnull final Collection<String> algorithms) {
+		final List<String> supported = new ArrayList<String>(algorithms.size());
+		for (String algorithm : algorithms) {
+			if (!supported.contains(algorithm) && isSupported(algorithm)) {
+				supported.add(algorithm);
+			}
+		}
+		return supported;
+	}
+
+	@Nullable
+	private static Object newFunction(@Nonnull final String algorithm) {
+		if (CRC32.equals(algorithm)) {
+			return new CRC32();
+		} else if (CRC32C.equals(algorithm)) {
+			try {
+				return CRC32C_CONSTRUCTOR != null ? CRC32C_CONSTRUCTOR.newInstance() : null;
+			} catch (ReflectiveOperationException e) {
+				return null;
+			}
+		}
+		try {
+			return MessageDigest.getInstance(algorithm);
+		} catch (NoSuchAlgorithmException e) {
+			return null;
+		}
+	}
+
+	@Nullable
+	private static Constructor<? extends Checksum> findCrc32cConstructor() {
+		try {
+			return Class.forName("java.util.zip.CRC32C").asSubclass(Checksum.class).getConstructor();
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	public boolean isEmpty() {
+		return algorithms.length == 0;
+	}
+
+	/**
+	 * Method to add a part of the content.
+	 * 
+	 * @param bytes
+	 *            The buffer with the bytes.
+	 * @param offset
+	 *            The offset of the first byte.
+	 * @param length
+	 *            The number of bytes.
+	 */
+	public void update(@Nonnull final byte[] bytes, final int offset, final int length) {
+		for (Object function : functions) {
+			if (function instanceof Checksum) {
+				((Checksum) function).update(bytes, offset, length);
+			} else {
+				((MessageDigest) function).update(bytes, offset, length);
+			}
+		}
+	}
+
+	/**
+	 * Method to get the checksums of the content added.
+	 * 
+	 * @return The hexadecimal checksum of every algorithm, in the same order
+	 *         as the algorithms.
+	 */
+	@Nonnull
+	public Map<String, String> getValues() {
+		final Map<String, String> values = new LinkedHashMap<String, String>(algorithms.length * 2);
+		for (int i = 0; i < algorithms.length; i++) {
+			if (functions[i] instanceof Checksum) {
+				values.put(algorithms[i], String.format("%08x", ((Checksum) functions[i]).getValue()));
+			} else {
+				values.put(algorithms[i], SecureFileUtils.toHexString(((MessageDigest) functions[i]).digest()));
+			}
+		}
+		return Collections.unmodifiableMap(values);
+	}
+}
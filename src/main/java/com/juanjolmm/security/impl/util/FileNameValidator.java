@@ -0,0 +1,198 @@
+package com.juanjolmm.security.impl.util;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Validator of uploaded file names. The name is scanned once, code point by
+ * code point, against the same Unicode categories that the former regular
+ * expressions used:
+ * <ul>
+ * <li>Base name: L (letters), N (numbers), Zs (space), Pd (dash
+ * punctuation) and Pc (connector punctuation); min 1, max 50 code
+ * points.</li>
+ * <li>Extension: L (letters) and N (numbers); min 1, max 4 code points.</li>
+ * </ul>
+ * Any path before the last '/' or '\' is ignored and the extension starts
+ * after the last dot, as FilenameUtils does. Names with null characters are
+ * always rejected. The validation result is packed in a primitive long, so
+ * nothing is allocated unless the base name or the extension are requested as
+ * strings.
+ *
+ * @author jlopez1
+ *
+ */
+public final class FileNameValidator {
+
+	/**
+	 * Value returned when the file name is not valid.
+	 */
+	public static final long INVALID = -1L;
+	private static final int MAX_BASE_NAME_LENGTH = 50;
+	private static final int MAX_EXTENSION_LENGTH = 4;
+
+	private FileNameValidator() {
+	}
+
+	/**
+	 * Method to validate the base name and the extension of a file name.
+	 *
+	 * @param fileName
+	 *            The file name, it can contain a path.
+	 * @return The packed positions of the base name and the extension, to be
+	 *         used with {@link #getBaseName(String, long)} and
+	 *         {@link #getExtension(String, long)}, or {@link #INVALID} if the
+	 *         base name or the extension are not valid.
+	 */
+	public static long validate(@Nullable final String fileName) {
+		if (fileName == null) {
+			return INVALID;
+		}
+		final int baseNameStart = indexOfBaseName(fileName);
+		final int extensionSeparator = fileName.lastIndexOf('.');
+		if (baseNameStart < 0 || extensionSeparator < baseNameStart
+				|| !isValidExtension(fileName, extensionSeparator + 1, fileName.length())
+				|| !isValidBaseName(fileName, baseNameStart, extensionSeparator)) {
+			return INVALID;
+		}
+		return pack(baseNameStart, extensionSeparator);
+	}
+
+	/**
+	 * Method to validate only the extension of a file name.
+	 *
+	 * @param fileName
+	 *            The file name, it can contain a path.
+	 * @return The packed positions of the base name and the extension, to be
+	 *         used with {@link #getExtension(String, long)}, or
+	 *         {@link #INVALID} if the extension is not valid. The base name is
+	 *         not validated.
+	 */
+	public static long validateExtension(@Nullable final String fileName) {
+		if (fileName == null) {
+			return INVALID;
+		}
+		final int baseNameStart = indexOfBaseName(fileName);
+		final int extensionSeparator = fileName.lastIndexOf('.');
+		if (baseNameStart < 0 || extensionSeparator < baseNameStart
+				|| !isValidExtension(fileName, extensionSeparator + 1, fileName.length())) {
+			return INVALID;
+		}
+		return pack(baseNameStart, extensionSeparator);
+	}
+
+	/**
+	 * Method to check if a file name has a valid base name and extension.
+	 *
+	 * @param fileName
+	 *            The file name, it can contain a path.
+	 * @return true if the base name and the extension are valid.
+	 */
+	public static boolean isValid(@Nullable final String fileName) {
+		return validate(fileName) != INVALID;
+	}
+
+	/**
+	 * Method to get the base name of a validated file name.
+	 *
+	 * @param fileName
+	 *            The validated file name.
+	 * @param validation
+	 *            The value returned by {@link #validate(String)}.
+	 * @return The base name (without path and extension).
+	 */
+	@Nonnull
+	public static String getBaseName(@Nonnull final String fileName, final long validation) {
+		checkValidation(validation);
+		return fileName.substring((int) (validation >>> 32), (int) validation);
+	}
+
+	/**
+	 * Method to get the extension of a validated file name.
+	 *
+	 * @param fileName
+	 *            The validated file name.
+	 * @param validation
+	 *            The value returned by {@link #validate(String)} or
+	 *            {@link #validateExtension(String)}.
+	 * @return The extension (without the dot).
+	 */
+	@Nonnull
+	public static String getExtension(@Nonnull final String fileName, final long validation) {
+		checkValidation(validation);
+		return fileName.substring((int) validation + 1);
+	}
+
+	private static void checkValidation(final long validation) {
+		if (validation == INVALID) {
+			throw new IllegalArgumentException("The file name is not valid");
+		}
+	}
+
+	private static long pack(final int baseNameStart, final int extensionSeparator) {
+		return ((long) baseNameStart << 32) | extensionSeparator;
+	}
+
+	/**
+	 * Returns the start of the base name or -1 if the name contains a null
+	 * character, which is rejected even inside the ignored path.
+	 */
+	private static int indexOfBaseName(@Nonnull final String fileName) {
+		int start = 0;
+		for (int i = 0; i < fileName.length(); i++) {
+			final char c = fileName.charAt(i);
+			if (c == '/' || c == '\\') {
+				start = i + 1;
+			} else if (c == '\u0000') {
+				return -1;
+			}
+		}
+		return start;
+	}
+
+	private static boolean isValidBaseName(@Nonnull final String fileName, final int start, final int end) {
+		int length = 0;
+		for (int i = start; i < end; length++) {
+			final int codePoint = fileName.codePointAt(i);
+			if (length == MAX_BASE_NAME_LENGTH || !isBaseNameCodePoint(codePoint)) {
+				return false;
+			}
+			i += Character.charCount(codePoint);
+		}
+		return length > 0;
+	}
+
+	private static boolean isValidExtension(@Nonnull final String fileName, final int start, final int end) {
+		int length = 0;
+		for (int i = start; i < end; length++) {
+			final int codePoint = fileName.codePointAt(i);
+			if (length == MAX_EXTENSION_LENGTH || !isLetterOrNumber(Character.getType(codePoint))) {
+				return false;
+			}
+			i += Character.charCount(codePoint);
+		}
+		return length > 0;
+	}
+
+	private static boolean isBaseNameCodePoint(final int codePoint) {
+		final int type = Character.getType(codePoint);
+		return isLetterOrNumber(type) || type == Character.SPACE_SEPARATOR || type == Character.DASH_PUNCTUATION
+				|| type == Character.CONNECTOR_PUNCTUATION;
+	}
+
+	private static boolean isLetterOrNumber(final int type) {
+		switch (type) {
+		case Character.UPPERCASE_LETTER:
+		case Character.LOWERCASE_LETTER:
+		case Character.TITLECASE_LETTER:
+		case Character.MODIFIER_LETTER:
+		case Character.OTHER_LETTER:
+		case Character.DECIMAL_DIGIT_NUMBER:
+		case Character.LETTER_NUMBER:
+		case Character.OTHER_NUMBER:
+			return true;
+		default:
+			return false;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package com.juanjolmm.security.impl.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds. The values are counted in
+ * log-linear buckets: 8 buckets per power of two, so the percentiles are
+ * returned with a relative error lower than 12.5% and the memory is constant
+ * (488 counters for the whole range of long values).
+ *
+ * @author jlopez1
+ *
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (63 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAdder totalBytes = new LongAdder();
+
+	/**
+	 * Method to record a new value.
+	 *
+	 * @param nanos
+	 *            The latency in nanoseconds. Negative values are recorded as
+	 *            0.
+	 * @param bytes
+	 *            The bytes processed.
+	 */
+	public void record(final long nanos, final long bytes) {
+		final long value = Math.max(nanos, 0);
+		counts.incrementAndGet(getBucket(value));
+		count.increment();
+		totalNanos.add(value);
+		totalBytes.add(bytes);
+	}
+
+	/**
+	 * Method to get the number of recorded values.
+	 *
+	 * @return The number of recorded values.
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Method to get the sum of the recorded latencies.
+	 *
+	 * @return The total nanoseconds.
+	 */
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	/**
+	 * Method to get the sum of the recorded bytes.
+	 *
+	 * @return The total bytes.
+	 */
+	public long getTotalBytes() {
+		return totalBytes.sum();
+	}
+
+	/**
+	 * Method to get the latency below which the provided percentage of the
+	 * values are. The upper bound of its bucket is returned.
+	 *
+	 * @param percentile
+	 *            The percentile, from 0 to 100 (e.g. 99.9).
+	 * @return The latency in nanoseconds, 0 if no values are recorded.
+	 */
+	public long getValueAtPercentile(final double percentile) {
+		final long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+		long accumulated = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			accumulated += snapshot[i];
+			if (accumulated >= rank) {
+				return getBucketUpperValue(i);
+			}
+		}
+		return getBucketUpperValue(BUCKETS - 1);
+	}
+
+	private static int getBucket(final long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	private static long getBucketUpperValue(final int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		final long subBucket = bucket % SUB_BUCKETS;
+		final long lowerValue = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+		final long upperValue = lowerValue + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+		return upperValue < 0 ? Long.MAX_VALUE : upperValue;
+	}
+}
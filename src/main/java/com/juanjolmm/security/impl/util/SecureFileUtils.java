@@ -2,18 +2,19 @@ package com.juanjolmm.security.impl.util;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
-import java.util.UUID;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import javax.annotation.Nonnull;
 
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.tika.Tika;
-import org.apache.tika.io.TikaInputStream;
 
+import com.juanjolmm.security.api.operator.FileNameGenerator;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
 import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.operator.OriginalFileNameGenerator;
+import com.juanjolmm.security.impl.operator.TikaContentTypeDetector;
+import com.juanjolmm.security.impl.operator.UlidFileNameGenerator;
 
 /**
  * Class that have some methods to manage file names.
@@ -23,18 +24,9 @@ import com.juanjolmm.security.exception.SecureFileUploadException;
  */
 public final class SecureFileUtils {
 
-	/**
-	 * Regex pattern to validate file names. L: Letters; N: Numbers; Zs: Space;
-	 * Pd: Dash punctuation; Pc: Connector punctuation; Min 1, Max 50
-	 */
-	private static final String UTF8_FILE_NAME_REGEX = "(?u)[\\p{L}\\p{N}\\p{Zs}\\p{Pd}\\p{Pc}]{1,50}";
-	/**
-	 * Regex pattern to validate file extensions. L: Letters; N: Numbers; Min 1,
-	 * Max 4
-	 */
-	private static final String UTF8_FILE_EXTENSION_REGEX = "(?u)[\\p{L}\\p{N}]{1,4}";
-
-	private static final String DEFAULT_CONTENT_TYPE_NOT_ALLOWED = "application/octet-stream";
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private static final FileNameGenerator ORIGINAL_FILE_NAME_GENERATOR = new OriginalFileNameGenerator();
+	private static final FileNameGenerator SECURE_FILE_NAME_GENERATOR = new UlidFileNameGenerator();
 
 	/**
 	 * Method to create a new file name based in the original name.
@@ -48,48 +40,29 @@ public final class SecureFileUtils {
 	@Nonnull
 	public static String getOriginalBasedFileName(@Nonnull final String initialFileName)
 			throws SecureFileUploadException {
-		final String fileNameWithoutExtension = getValidFileNameWithoutExtension(initialFileName);
-		return fileNameWithoutExtension + getFileNameCommonAppend(initialFileName);
-	}
-
-	@Nonnull
-	private static String getValidFileNameWithoutExtension(@Nonnull final String fileName)
-			throws SecureFileUploadException {
-		final String fileNameWithoutExtension;
-		if ((fileNameWithoutExtension = FilenameUtils.getBaseName(fileName)) != null
-				&& fileNameWithoutExtension.matches(UTF8_FILE_NAME_REGEX)) {
-			return fileNameWithoutExtension;
-		} else {
-			throw new SecureFileUploadException();
-		}
-	}
-
-	@Nonnull
-	private static String getFileNameCommonAppend(@Nonnull final String initialFileName)
-			throws SecureFileUploadException {
-		final String currentTimestamp = getCurrentTimestampString();
-		String fileNameExtension = getFileExtension(initialFileName);
-		return "_" + currentTimestamp + "." + fileNameExtension;
+		return ORIGINAL_FILE_NAME_GENERATOR.generate(initialFileName, 0);
 	}
 
 	/**
-	 * Method to create a new unique file name based on a random UUID.
+	 * Method to create a new unique file name based on a ULID, so the names
+	 * are sorted by creation time.
 	 * 
 	 * @param initialFileName
 	 *            the initial file name
-	 * @return A new unique file name based on a random UUID.
+	 * @return A new unique file name based on a ULID.
 	 * @throws SecureFileUploadException
 	 *             If the initial name is not valid.
 	 */
 	@Nonnull
 	public static String getSecureFileName(@Nonnull final String initialFileName) throws SecureFileUploadException {
-		String uuid = UUID.randomUUID().toString().replaceAll("-", "");
-		return uuid + getFileNameCommonAppend(initialFileName);
+		return SECURE_FILE_NAME_GENERATOR.generate(initialFileName, 0);
 	}
 
-	@Nonnull
-	private static String getCurrentTimestampString() {
-		return new SimpleDateFormat("yyyyMMddHHmmss").format(Calendar.getInstance().getTime());
+	private static long checkValidation(final long validation) throws SecureFileUploadException {
+		if (validation == FileNameValidator.INVALID) {
+			throw new SecureFileUploadException(RejectionReasonEnum.FILE_NAME);
+		}
+		return validation;
 	}
 
 	/**
@@ -103,13 +76,40 @@ public final class SecureFileUtils {
 	 */
 	@Nonnull
 	public static String getFileExtension(@Nonnull final String fileName) throws SecureFileUploadException {
-		final String fileExtension;
-		if ((fileExtension = FilenameUtils.getExtension(fileName)) != null
-				&& fileExtension.matches(UTF8_FILE_EXTENSION_REGEX)) {
-			return fileExtension;
-		} else {
-			throw new SecureFileUploadException();
+		return FileNameValidator.getExtension(fileName,
+				checkValidation(FileNameValidator.validateExtension(fileName)));
+	}
+
+	/**
+	 * Method to create a new SHA-256 message digest.
+	 * 
+	 * @return A new SHA-256 message digest.
+	 */
+	@Nonnull
+	public static MessageDigest newSha256Digest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform supports SHA-256.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Method to encode bytes as a lower case hexadecimal string.
+	 * 
+	 * @param bytes
+	 *            The bytes to encode.
+	 * @return The hexadecimal string.
+	 */
+	@Nonnull
+	public static String toHexString(@Nonnull final byte[] bytes) {
+		final char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+			hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
 		}
+		return new String(hex);
 	}
 
 	/**
@@ -126,13 +126,14 @@ public final class SecureFileUtils {
 		try {
 			return IOUtils.toByteArray(inputStream);
 		} catch (IOException e) {
-			throw new SecureFileUploadException();
+			throw new SecureFileUploadException(RejectionReasonEnum.IO, e);
 		}
 
 	}
 
 	/**
 	 * Method to get the mime type (or mime type) of the provided input stream.
+	 * The detection is made with a shared detector that is created only once.
 	 * 
 	 * @param inputStream
 	 *            The input stream to be checked.
@@ -140,15 +141,6 @@ public final class SecureFileUtils {
 	 */
 	@Nonnull
 	public static String detectFileContentType(@Nonnull final InputStream inputStream) {
-		String detectedFileContentType;
-		try {
-			final Tika tika = new Tika();
-			detectedFileContentType = tika.detect(TikaInputStream.get(inputStream));
-		} catch (IOException e) {
-			detectedFileContentType = DEFAULT_CONTENT_TYPE_NOT_ALLOWED;
-		} finally {
-			IOUtils.closeQuietly(inputStream);
-		}
-		return detectedFileContentType;
+		return TikaContentTypeDetector.getDefault().detect(inputStream);
 	}
 }
@@ -0,0 +1,59 @@
+package com.juanjolmm.security.impl.util;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Class to get the shard folders of the stored files. The shard of a file is
+ * derived only from its name, so a stored file can be found without listing
+ * the storage folder. Each level is a folder named with two hexadecimal
+ * digits, so every level has at most 256 folders.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class StorageShards {
+
+	/**
+	 * Maximum number of shard levels.
+	 */
+	public static final int MAX_LEVELS = 4;
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	/**
+	 * Multiplier to spread the hash code bits, so names with a common prefix
+	 * (as the time based names) are distributed between all the shards.
+	 */
+	private static final int HASH_MIX = 0x9E3779B9;
+
+	private StorageShards() {
+	}
+
+	/**
+	 * Method to get the relative path of the shard folder of a file.
+	 * 
+	 * @param fileName
+	 *            The stored file name.
+	 * @param levels
+	 *            The number of shard levels, from 0 to {@link #MAX_LEVELS}.
+	 * @return The relative path of the shard folder, using '/' as
+	 *         separator, or an empty string if levels is 0.
+	 */
+	@Nonnull
+	public static String getShardPath(@Nonnull final String fileName, final int levels) {
+		if (levels <= 0) {
+			return "";
+		}
+		final int shardLevels = Math.min(levels, MAX_LEVELS);
+		final int hash = fileName.hashCode() * HASH_MIX;
+		final char[] path = new char[shardLevels * 3 - 1];
+		for (int level = 0; level < shardLevels; level++) {
+			final int shard = (hash >>> (24 - level * 8)) & 0xFF;
+			final int offset = level * 3;
+			path[offset] = HEX_DIGITS[shard >>> 4];
+			path[offset + 1] = HEX_DIGITS[shard & 0xF];
+			if (offset + 2 < path.length) {
+				path[offset + 2] = '/';
+			}
+		}
+		return new String(path);
+	}
+}
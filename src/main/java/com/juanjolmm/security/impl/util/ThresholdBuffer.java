@@ -0,0 +1,183 @@
+package com.juanjolmm.security.impl.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Buffer that keeps the content of a stream in memory up to a threshold and
+ * spills it to a private temporary file when the threshold is exceeded. The
+ * buffered content can be read several times without copying it.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class ThresholdBuffer implements Closeable {
+
+	private static final String TEMP_FILE_PREFIX = "secure-file-upload-";
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+	private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+	@Nonnull
+	private byte[] buffer;
+	private int count;
+	private long size;
+	@Nullable
+	private Path tempFile;
+
+	private ThresholdBuffer(final int threshold) {
+		buffer = new byte[Math.min(threshold, INITIAL_BUFFER_SIZE)];
+	}
+
+	/**
+	 * Method to read the whole input stream into a new buffer. The input
+	 * stream is not closed.
+	 * 
+	 * @param inputStream
+	 *            The source input stream.
+	 * @param threshold
+	 *            The maximum number of bytes kept in memory.
+	 * @param maxSize
+	 *            The maximum number of bytes to read.
+	 * @return The buffer with the stream content.
+	 * @throws IOException
+	 *             If the stream can not be read, the temporary file can not
+	 *             be written or the stream is bigger than the maximum size
+	 *             (MaxSizeExceededException).
+	 */
+	@Nonnull
+	public static ThresholdBuffer read(@Nonnull final InputStream inputStream, final int threshold,
+			final long maxSize) throws IOException {
+		final ThresholdBuffer thresholdBuffer = new ThresholdBuffer(threshold);
+		try {
+			thresholdBuffer.fill(inputStream, threshold, maxSize);
+		} catch (IOException e) {
+			thresholdBuffer.close();
+			throw e;
+		}
+		return thresholdBuffer;
+	}
+
+	private void fill(@Nonnull final InputStream inputStream, final int threshold, final long maxSize)
+			throws IOException {
+		int read;
+		while (count < threshold && (read = inputStream.read(buffer, count, buffer.length - count)) != -1) {
+			count += read;
+			if (count == buffer.length && count < threshold) {
+				buffer = Arrays.copyOf(buffer, (int) Math.min((long) buffer.length * 2, threshold));
+			}
+		}
+		size = count;
+		if (count == threshold) {
+			spill(inputStream, maxSize);
+		}
+		if (size > maxSize) {
+			throw new MaxSizeExceededException();
+		}
+	}
+
+	private void spill(@Nonnull final InputStream inputStream, final long maxSize) throws IOException {
+		final byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
+		int read = inputStream.read(copyBuffer);
+		if (read != -1) {
+			tempFile = createPrivateTempFile();
+			try (OutputStream outputStream = Files.newOutputStream(tempFile, StandardOpenOption.WRITE)) {
+				outputStream.write(buffer, 0, count);
+				while (read != -1 && size <= maxSize) {
+					outputStream.write(copyBuffer, 0, read);
+					size += read;
+					read = inputStream.read(copyBuffer);
+				}
+			}
+			buffer = new byte[0];
+			count = 0;
+		}
+	}
+
+	@Nonnull
+	private static Path createPrivateTempFile() throws IOException {
+		if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+			return Files.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX,
+					PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		}
+		return Files.createTempFile(TEMP_FILE_PREFIX, TEMP_FILE_SUFFIX);
+	}
+
+	/**
+	 * Method to know if the content is kept in memory.
+	 * 
+	 * @return True if the content is in memory, false if it has been spilled
+	 *         to a temporary file.
+	 */
+	public boolean isInMemory() {
+		return tempFile == null;
+	}
+
+	/**
+	 * Method to get the number of buffered bytes.
+	 * 
+	 * @return The size of the content.
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Method to get a new input stream over the buffered content. The memory
+	 * buffer is wrapped, not copied.
+	 * 
+	 * @return A new input stream with the content.
+	 * @throws IOException
+	 *             If the temporary file can not be opened.
+	 */
+	@Nonnull
+	public InputStream newInputStream() throws IOException {
+		final Path file = tempFile;
+		if (file == null) {
+			return new ByteArrayInputStream(buffer, 0, count);
+		}
+		return new FileInputStream(file.toFile());
+	}
+
+	/**
+	 * Method to release the memory and delete the temporary file (if any).
+	 */
+	@Override
+	public void close() {
+		final Path file = tempFile;
+		if (file != null) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				file.toFile().deleteOnExit();
+			}
+			tempFile = null;
+		}
+		buffer = new byte[0];
+		count = 0;
+	}
+
+	/**
+	 * Exception thrown when the stream is bigger than the maximum size.
+	 */
+	public static final class MaxSizeExceededException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		private MaxSizeExceededException() {
+			super("Stream bigger than the maximum size.");
+		}
+	}
+}
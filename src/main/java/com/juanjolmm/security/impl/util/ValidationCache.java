@@ -0,0 +1,221 @@
+package com.juanjolmm.security.impl.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Size bounded cache of the content types of the files already validated.
+ * An entry is only valid while the file keeps the same size and
+ * modification time and the white list keeps the same version; when the
+ * white list version changes all the entries are discarded. The least
+ * recently used entries are evicted first.
+ * <p>
+ * The cache is split in segments with their own lock, so concurrent lookups
+ * of different files do not block each other.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class ValidationCache {
+
+	private static final int SEGMENTS = 16;
+	@Nonnull
+	private final Segment[] segments;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Constructor with the maximum number of entries.
+	 * 
+	 * @param maxEntries
+	 *            The maximum number of files in the cache.
+	 */
+	public ValidationCache(final int maxEntries) {
+		final int segmentEntries = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+		segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(segmentEntries);
+		}
+	}
+
+	/**
+	 * Method to get the validated content type of a file.
+	 * 
+	 * @param path
+	 *            The path of the file.
+	 * @param size
+	 *            The current size of the file.
+	 * @param lastModified
+	 *            The current modification time of the file.
+	 * @param whiteListVersion
+	 *            The current version of the white list.
+	 * @return The content type of the file or null if the file is not in the
+	 *         cache or it has changed.
+	 */
+	@Nullable
+	public String get(@Nonnull final String path, final long size, final long lastModified,
+			@Nonnull final String whiteListVersion) {
+		final String contentType = getSegment(path).get(path, size, lastModified, whiteListVersion);
+		if (contentType != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return contentType;
+	}
+
+	/**
+	 * Method to add the validated content type of a file.
+	 * 
+	 * @param path
+	 *            The path of the file.
+	 * @param size
+	 *            The size of the validated file.
+	 * @param lastModified
+	 *            The modification time of the validated file.
+	 * @param whiteListVersion
+	 *            The version of the white list used in the validation.
+	 * @param contentType
+	 *            The validated content type.
+	 */
+	public void put(@Nonnull final String path, final long size, final long lastModified,
+			@Nonnull final String whiteListVersion, @Nonnull final String contentType) {
+		getSegment(path).put(path, new Validation(size, lastModified, contentType), whiteListVersion);
+	}
+
+	/**
+	 * Method to remove a file from the cache.
+	 * 
+	 * @param path
+	 *            The path of the file.
+	 */
+	public void invalidate(@Nonnull final String path) {
+		getSegment(path).remove(path);
+	}
+
+	/**
+	 * Method to remove all the files from the cache.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * Method to get the number of files in the cache.
+	 * 
+	 * @return The number of files.
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Method to get the number of lookups that found a valid entry.
+	 * 
+	 * @return The number of hits.
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * Method to get the number of lookups that did not find a valid entry.
+	 * 
+	 * @return The number of misses.
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	@Nonnull
+	private Segment getSegment(@Nonnull final String path) {
+		final int hash = path.hashCode();
+		return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * Validated file.
+	 */
+	private static final class Validation {
+		private final long size;
+		private final long lastModified;
+		@Nonnull
+		private final String contentType;
+
+		private Validation(final long size, final long lastModified, @Nonnull final String contentType) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.contentType = contentType;
+		}
+	}
+
+	/**
+	 * LRU map of a part of the files.
+	 */
+	private static final class Segment {
+		@Nonnull
+		private final Map<String, Validation> validations;
+		@Nullable
+		private String whiteListVersion;
+
+		private Segment(final int maxEntries) {
+			validations = new LinkedHashMap<String, Validation>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(final Map.Entry<String, Validation> eldest) {
+					return size() > maxEntries;
+				}
+			};
+		}
+
+		@Nullable
+		private synchronized String get(@Nonnull final String path, final long size, final long lastModified,
+				@Nonnull final String currentWhiteListVersion) {
+			if (!currentWhiteListVersion.equals(whiteListVersion)) {
+				validations.clear();
+				whiteListVersion = currentWhiteListVersion;
+				return null;
+			}
+			final Validation validation = validations.get(path);
+			if (validation == null) {
+				return null;
+			} else if (validation.size != size || validation.lastModified != lastModified) {
+				validations.remove(path);
+				return null;
+			}
+			return validation.contentType;
+		}
+
+		private synchronized void put(@Nonnull final String path, @Nonnull final Validation validation,
+				@Nonnull final String currentWhiteListVersion) {
+			if (!currentWhiteListVersion.equals(whiteListVersion)) {
+				validations.clear();
+				whiteListVersion = currentWhiteListVersion;
+			}
+			validations.put(path, validation);
+		}
+
+		private synchronized void remove(@Nonnull final String path) {
+			validations.remove(path);
+		}
+
+		private synchronized void clear() {
+			validations.clear();
+		}
+
+		private synchronized int size() {
+			return validations.size();
+		}
+	}
+}
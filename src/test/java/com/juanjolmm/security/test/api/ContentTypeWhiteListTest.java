@@ -0,0 +1,104 @@
+package com.juanjolmm.security.test.api;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.api.ContentTypeWhiteList;
+
+/**
+ * Test class of ContentTypeWhiteList.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class ContentTypeWhiteListTest {
+
+	private ContentTypeWhiteList whiteList;
+
+	@Before
+	public void init() {
+		final Map<String, List<String>> contentTypes = new HashMap<String, List<String>>();
+		contentTypes.put("text/plain", Arrays.asList("txt"));
+		contentTypes.put("Image/JPEG", Arrays.asList("jpg", "JPEG"));
+		contentTypes.put("audio/*", Arrays.asList("mp3", "ogg"));
+		contentTypes.put("application/msword", Arrays.asList("doc", "rtf"));
+		contentTypes.put("application/rtf", Arrays.asList("rtf"));
+		whiteList = new ContentTypeWhiteList(contentTypes);
+	}
+
+	@Test
+	public void allowedContentTypeTest() {
+		Assert.assertTrue(whiteList.isAllowedContentType("text/plain"));
+		Assert.assertTrue(whiteList.isAllowedContentType("TEXT/Plain"));
+		Assert.assertTrue(whiteList.isAllowedContentType("text/plain; charset=UTF-8"));
+		Assert.assertTrue(whiteList.isAllowedContentType(" image/jpeg "));
+		Assert.assertFalse(whiteList.isAllowedContentType("text/html"));
+		Assert.assertFalse(whiteList.isAllowedContentType("text/plainx"));
+		Assert.assertFalse(whiteList.isAllowedContentType(""));
+		Assert.assertFalse(whiteList.isAllowedContentType(null));
+	}
+
+	@Test
+	public void wildcardContentTypeTest() {
+		Assert.assertTrue(whiteList.isAllowedContentType("audio/mpeg"));
+		Assert.assertTrue(whiteList.isAllowedExtension("Audio/OGG; codecs=opus", "ogg"));
+		Assert.assertFalse(whiteList.isAllowedExtension("audio/mpeg", "wav"));
+		Assert.assertFalse(whiteList.isAllowedContentType("video/mp4"));
+		Assert.assertFalse(whiteList.isAllowedContentType("audio"));
+	}
+
+	@Test
+	public void allowedExtensionTest() {
+		Assert.assertTrue(whiteList.isAllowedExtension("image/jpeg", "jpg"));
+		Assert.assertTrue(whiteList.isAllowedExtension("image/jpeg", "JPG"));
+		Assert.assertTrue(whiteList.isAllowedExtension("image/jpeg", "jpeg"));
+		Assert.assertFalse(whiteList.isAllowedExtension("image/jpeg", "png"));
+		Assert.assertFalse(whiteList.isAllowedExtension("image/png", "png"));
+		Assert.assertFalse(whiteList.isAllowedExtension("image/jpeg", null));
+	}
+
+	@Test
+	public void extensionContentTypesTest() {
+		Assert.assertEquals(Arrays.asList("application/msword", "application/rtf"), whiteList.getContentTypes("RTF"));
+		Assert.assertEquals(Arrays.asList("jpg", "jpeg"), whiteList.getExtensions("image/jpeg"));
+		Assert.assertTrue(whiteList.getContentTypes("exe").isEmpty());
+		Assert.assertNull(whiteList.getExtensions("image/png"));
+	}
+
+	@Test
+	public void versionTest() {
+		final Map<String, List<String>> contentTypes = new HashMap<String, List<String>>();
+		contentTypes.put("text/plain", Arrays.asList("txt"));
+		final ContentTypeWhiteList other = new ContentTypeWhiteList(contentTypes);
+		Assert.assertNotEquals(whiteList.getVersion(), other.getVersion());
+		Assert.assertEquals(other.getVersion(), new ContentTypeWhiteList(contentTypes).getVersion());
+	}
+
+	@Test
+	public void allocationFreeLookupTest() {
+		final java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+		final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		final long threadId = Thread.currentThread().getId();
+		final String contentType = "Text/Plain; charset=UTF-8";
+		boolean allowed = true;
+		for (int i = 0; i < 20000; i++) {
+			allowed &= whiteList.isAllowedExtension(contentType, "TXT");
+		}
+		final long before = allocationBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 20000; i++) {
+			allowed &= whiteList.isAllowedExtension(contentType, "TXT");
+		}
+		final long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+		Assert.assertTrue(allowed);
+		Assert.assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+	}
+}
@@ -4,14 +4,21 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
 import com.juanjolmm.security.api.service.SecureFileUploader;
 import com.juanjolmm.security.exception.SecureFileUploadException;
 import com.juanjolmm.security.factory.SecureFileUploaderFactory;
+import com.juanjolmm.security.impl.operator.SecureConfigurationLoaderImpl;
 
 /**
  * Test class of SecureFileUploaderFactory.
@@ -166,4 +173,32 @@ public final class SecureFileUploaderFactoryTest {
 		final File file = fileUploader.get(newFile.getName());
 		Assert.assertNotNull(file);
 	}
+
+	@Test
+	public void sharedUploadersTest() throws InterruptedException, ExecutionException {
+		SecureFileUploaderFactory.warmUp();
+		Assert.assertSame(SecureFileUploaderFactory.getDefaultSecureFileUploader(),
+				SecureFileUploaderFactory.getStoredSecureFileUploader());
+		Assert.assertSame(SecureFileUploaderFactory.getHybridSecureFileUploader(),
+				SecureFileUploaderFactory.getHybridSecureFileUploader());
+		Assert.assertNotSame(SecureFileUploaderFactory.getStoredSecureFileUploader(),
+				SecureFileUploaderFactory.getInMemorySecureFileUploader());
+		final SecureConfigurationLoader configLoader = new SecureConfigurationLoaderImpl();
+		final SecureFileUploader streamingUploader = SecureFileUploaderFactory
+				.getStreamingSecureFileUploader(configLoader);
+		Assert.assertNotSame(SecureFileUploaderFactory.getStreamingSecureFileUploader(), streamingUploader);
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<SecureFileUploader>> futures = new ArrayList<Future<SecureFileUploader>>();
+			for (int i = 0; i < 64; i++) {
+				futures.add(executor
+						.submit(() -> SecureFileUploaderFactory.getStreamingSecureFileUploader(configLoader)));
+			}
+			for (Future<SecureFileUploader> future : futures) {
+				Assert.assertSame(streamingUploader, future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
@@ -0,0 +1,137 @@
+package com.juanjolmm.security.test.impl.operator;
+
+import java.util.List;
+
+import com.juanjolmm.security.api.ContentTypeWhiteList;
+import com.juanjolmm.security.api.FileNameModeEnum;
+import com.juanjolmm.security.api.StorageModeEnum;
+import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
+import com.juanjolmm.security.impl.operator.SecureConfigurationLoaderImpl;
+
+/**
+ * Configuration loader for tests that returns the values of the test
+ * properties files. Tests override the methods of the values they need to
+ * change.
+ * 
+ * @author jlopez1
+ *
+ */
+public class DelegatingConfigurationLoader implements SecureConfigurationLoader {
+
+	private final SecureConfigurationLoader delegate = new SecureConfigurationLoaderImpl();
+
+	@Override
+	public boolean existsContentType(final String contentType) {
+		return delegate.existsContentType(contentType);
+	}
+
+	@Override
+	public List<String> getContentTypeExtensions(final String contentType) {
+		return delegate.getContentTypeExtensions(contentType);
+	}
+
+	@Override
+	public ContentTypeWhiteList getWhiteList() {
+		return delegate.getWhiteList();
+	}
+
+	@Override
+	public long getMaxFileSize() {
+		return delegate.getMaxFileSize();
+	}
+
+	@Override
+	public int getDetectionPrefixSize() {
+		return delegate.getDetectionPrefixSize();
+	}
+
+	@Override
+	public int getMemoryThreshold() {
+		return delegate.getMemoryThreshold();
+	}
+
+	@Override
+	public int getBatchParallelism() {
+		return delegate.getBatchParallelism();
+	}
+
+	@Override
+	public String getStorageFolder() {
+		return delegate.getStorageFolder();
+	}
+
+	@Override
+	public int getStorageShardLevels() {
+		return delegate.getStorageShardLevels();
+	}
+
+	@Override
+	public StorageModeEnum getStorageMode() {
+		return delegate.getStorageMode();
+	}
+
+	@Override
+	public int getMaxConcurrentWrites() {
+		return delegate.getMaxConcurrentWrites();
+	}
+
+	@Override
+	public int getMaxQueuedWrites() {
+		return delegate.getMaxQueuedWrites();
+	}
+
+	@Override
+	public long getQueuedWriteTimeout() {
+		return delegate.getQueuedWriteTimeout();
+	}
+
+	@Override
+	public long getQuotaMaxBytes() {
+		return delegate.getQuotaMaxBytes();
+	}
+
+	@Override
+	public long getQuotaMaxFiles() {
+		return delegate.getQuotaMaxFiles();
+	}
+
+	@Override
+	public long getOwnerQuotaMaxBytes() {
+		return delegate.getOwnerQuotaMaxBytes();
+	}
+
+	@Override
+	public long getOwnerQuotaMaxFiles() {
+		return delegate.getOwnerQuotaMaxFiles();
+	}
+
+	@Override
+	public long getMinUsableSpace() {
+		return delegate.getMinUsableSpace();
+	}
+
+	@Override
+	public String getCatalogFile() {
+		return delegate.getCatalogFile();
+	}
+
+	@Override
+	public int getValidationCacheSize() {
+		return delegate.getValidationCacheSize();
+	}
+
+	@Override
+	public List<String> getUploadChecksums() {
+		return delegate.getUploadChecksums();
+	}
+
+	@Override
+	public FileNameModeEnum getFileNameMode() {
+		return delegate.getFileNameMode();
+	}
+
+	@Override
+	public String getSecureFileOwner() {
+		return delegate.getSecureFileOwner();
+	}
+}
@@ -0,0 +1,158 @@
+package com.juanjolmm.security.test.impl.operator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.api.service.CatalogEntry;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.operator.LogFileCatalog;
+
+/**
+ * Test class of LogFileCatalog.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class LogFileCatalogTest {
+
+	private static final String CATALOG_FILE = "target/catalog-test/uploads.catalog";
+	private LogFileCatalog catalog;
+
+	@Before
+	public void init() throws IOException {
+		FileUtils.deleteQuietly(new File(CATALOG_FILE).getParentFile());
+		catalog = LogFileCatalog.open(CATALOG_FILE);
+	}
+
+	@After
+	public void close() throws IOException {
+		catalog.close();
+	}
+
+	@Test
+	public void addAndGetTest() throws SecureFileUploadException, IOException {
+		catalog.add(newEntry("file1.txt", "text/plain", 1000));
+		Assert.assertSame(catalog, LogFileCatalog.open(CATALOG_FILE));
+		Assert.assertEquals(1, catalog.size());
+		final CatalogEntry entry = catalog.get("file1.txt");
+		Assert.assertEquals("text/plain", entry.getContentType());
+		Assert.assertEquals(1000, entry.getUploadTime());
+		Assert.assertNull(catalog.get("file2.txt"));
+	}
+
+	@Test
+	public void listTest() throws SecureFileUploadException {
+		catalog.add(newEntry("file1.txt", "text/plain", 1000));
+		catalog.add(newEntry("file2.png", "image/png", 2000));
+		catalog.add(newEntry("file3.txt", "text/plain", 3000));
+		catalog.add(newEntry("file4.txt", "text/plain", 3000));
+		Assert.assertEquals(4, catalog.list(Long.MIN_VALUE, Long.MAX_VALUE, null).size());
+		final List<CatalogEntry> entries = catalog.list(1000, 3000, null);
+		Assert.assertEquals(2, entries.size());
+		Assert.assertEquals("file1.txt", entries.get(0).getFileName());
+		Assert.assertEquals("file2.png", entries.get(1).getFileName());
+		Assert.assertEquals(3, catalog.list(0, 4000, "TEXT/plain").size());
+		Assert.assertTrue(catalog.list(3000, 3000, null).isEmpty());
+	}
+
+	@Test
+	public void reloadTest() throws SecureFileUploadException, IOException {
+		catalog.add(newEntry("file1.txt", "text/plain", 1000));
+		catalog.add(newEntry("file\tname\\2.txt", "text/plain", 2000));
+		catalog.add(newEntry("file3.txt", "text/plain", 3000));
+		catalog.remove("file3.txt");
+		catalog.add(newEntry("file1.txt", "text/plain", 4000));
+		catalog.close();
+		catalog = LogFileCatalog.open(CATALOG_FILE);
+		Assert.assertEquals(2, catalog.size());
+		Assert.assertEquals(4000, catalog.get("file1.txt").getUploadTime());
+		Assert.assertEquals("0123abcd", catalog.get("file\tname\\2.txt").getDigest());
+		Assert.assertEquals(500, catalog.get("file1.txt").getLastModified());
+		Assert.assertNull(catalog.get("file3.txt"));
+		Assert.assertEquals(2, catalog.list(0, 5000, null).size());
+	}
+
+	@Test
+	public void tornTailTest() throws SecureFileUploadException, IOException {
+		catalog.add(newEntry("file1.txt", "text/plain", 1000));
+		catalog.add(newEntry("file2.txt", "text/plain", 2000));
+		catalog.close();
+		final long length = new File(CATALOG_FILE).length();
+		final RandomAccessFile logFile = new RandomAccessFile(CATALOG_FILE, "rw");
+		try {
+			// A crash in the middle of the last record.
+			logFile.setLength(length - 5);
+		} finally {
+			logFile.close();
+		}
+		catalog = LogFileCatalog.open(CATALOG_FILE);
+		Assert.assertEquals(1, catalog.size());
+		catalog.add(newEntry("file3.txt", "text/plain", 3000));
+		catalog.close();
+		catalog = LogFileCatalog.open(CATALOG_FILE);
+		Assert.assertEquals(2, catalog.size());
+		Assert.assertNotNull(catalog.get("file3.txt"));
+	}
+
+	@Test
+	public void corruptedRecordTest() throws SecureFileUploadException, IOException {
+		catalog.add(newEntry("file1.txt", "text/plain", 1000));
+		catalog.add(newEntry("file2.txt", "text/plain", 2000));
+		catalog.close();
+		final String content = FileUtils.readFileToString(new File(CATALOG_FILE), StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(new File(CATALOG_FILE), content.replace("file2.txt", "file9.txt"),
+				StandardCharsets.UTF_8);
+		catalog = LogFileCatalog.open(CATALOG_FILE);
+		Assert.assertEquals(1, catalog.size());
+		Assert.assertNull(catalog.get("file9.txt"));
+	}
+
+	@Test
+	public void corruptedMiddleRecordTest() throws SecureFileUploadException, IOException {
+		catalog.add(newEntry("file1.txt", "text/plain", 1000));
+		catalog.add(newEntry("file2.txt", "text/plain", 2000));
+		catalog.add(newEntry("file3.txt", "text/plain", 3000));
+		catalog.close();
+		final String content = FileUtils.readFileToString(new File(CATALOG_FILE), StandardCharsets.UTF_8);
+		FileUtils.writeStringToFile(new File(CATALOG_FILE), content.replace("file2.txt", "file9.txt"),
+				StandardCharsets.UTF_8);
+		final long length = new File(CATALOG_FILE).length();
+		catalog = LogFileCatalog.open(CATALOG_FILE);
+		// The records after the corrupted one are kept and not truncated.
+		Assert.assertEquals(2, catalog.size());
+		Assert.assertNotNull(catalog.get("file3.txt"));
+		Assert.assertEquals(length, new File(CATALOG_FILE).length());
+		catalog.add(newEntry("file4.txt", "text/plain", 4000));
+		catalog.close();
+		catalog = LogFileCatalog.open(CATALOG_FILE);
+		Assert.assertEquals(3, catalog.size());
+		Assert.assertNotNull(catalog.get("file3.txt"));
+		Assert.assertNotNull(catalog.get("file4.txt"));
+	}
+
+	@Test
+	public void compactionTest() throws SecureFileUploadException, IOException {
+		for (int i = 0; i < 3000; i++) {
+			catalog.add(newEntry("file.txt", "text/plain", i));
+		}
+		catalog.close();
+		final long length = new File(CATALOG_FILE).length();
+		catalog = LogFileCatalog.open(CATALOG_FILE);
+		Assert.assertEquals(1, catalog.size());
+		Assert.assertTrue(new File(CATALOG_FILE).length() < length / 1000);
+		Assert.assertEquals(2999, catalog.get("file.txt").getUploadTime());
+	}
+
+	private static CatalogEntry newEntry(final String fileName, final String contentType, final long uploadTime) {
+		return new CatalogEntry(fileName, "/storage/" + fileName, 10, contentType, uploadTime, 500, "0123abcd");
+	}
+}
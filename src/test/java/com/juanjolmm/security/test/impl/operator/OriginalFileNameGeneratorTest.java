@@ -0,0 +1,35 @@
+package com.juanjolmm.security.test.impl.operator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.operator.OriginalFileNameGenerator;
+
+/**
+ * Test class of OriginalFileNameGenerator.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class OriginalFileNameGeneratorTest {
+
+	private final OriginalFileNameGenerator generator = new OriginalFileNameGenerator();
+
+	@Test
+	public void generateTest() throws SecureFileUploadException {
+		final String fileName = generator.generate("path/initial Name.txt", 0);
+		Assert.assertTrue(fileName, fileName.matches("initial Name_\\d{14}\\.txt"));
+	}
+
+	@Test
+	public void attemptTest() throws SecureFileUploadException {
+		final String fileName = generator.generate("initialName.txt", 3);
+		Assert.assertTrue(fileName, fileName.matches("initialName_\\d{14}_3\\.txt"));
+	}
+
+	@Test(expected = SecureFileUploadException.class)
+	public void invalidNameTest() throws SecureFileUploadException {
+		generator.generate("initial$Name.txt", 0);
+	}
+}
@@ -0,0 +1,149 @@
+package com.juanjolmm.security.test.impl.operator;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.api.operator.SecureConfigurationLoader;
+import com.juanjolmm.security.impl.operator.ReloadingSecureConfigurationLoader;
+import com.juanjolmm.security.impl.operator.TikaContentTypeDetector;
+
+/**
+ * Test class of ReloadingSecureConfigurationLoader.
+ *
+ * @author jlopez1
+ *
+ */
+public final class ReloadingSecureConfigurationLoaderTest {
+
+	private static final String CONFIG_FILE = "secure-file-upload_config.properties";
+	private static final String WHITELIST_FILE = "secure-file-upload_whitelist.properties";
+
+	private File configFolder;
+	private URLClassLoader classLoader;
+
+	@Before
+	public void init() throws IOException {
+		configFolder = new File("target/reloading-config-" + System.nanoTime());
+		writeConfig("max.file.size = 1000\nsecure.file.owner = owner1\n");
+		writeWhiteList("text/plain = txt\n");
+		classLoader = new URLClassLoader(new URL[] { configFolder.toURI().toURL() }, null);
+	}
+
+	@After
+	public void close() throws IOException {
+		classLoader.close();
+		FileUtils.deleteQuietly(configFolder);
+	}
+
+	@Test
+	public void reloadTest() throws IOException {
+		try (ReloadingSecureConfigurationLoader loader = new ReloadingSecureConfigurationLoader(classLoader,
+				ReloadingSecureConfigurationLoader.DEFAULT_POLLING_INTERVAL)) {
+			Assert.assertEquals(1000, loader.getMaxFileSize());
+			Assert.assertEquals("owner1", loader.getSecureFileOwner());
+			Assert.assertTrue(loader.existsContentType("text/plain"));
+			Assert.assertFalse(loader.existsContentType("image/png"));
+			final SecureConfigurationLoader snapshot = loader.getSnapshot();
+			final String whiteListVersion = loader.getWhiteList().getVersion();
+
+			writeConfig("max.file.size = 2000\n");
+			writeWhiteList("text/plain = txt\nimage/png = png\n");
+			Assert.assertTrue(loader.reload());
+			Assert.assertEquals(2000, loader.getMaxFileSize());
+			Assert.assertNull(loader.getSecureFileOwner());
+			Assert.assertTrue(loader.existsContentType("image/png"));
+			Assert.assertNotEquals(whiteListVersion, loader.getWhiteList().getVersion());
+			// Previous snapshots are immutable
+			Assert.assertEquals(1000, snapshot.getMaxFileSize());
+			Assert.assertFalse(snapshot.existsContentType("image/png"));
+		}
+	}
+
+	@Test
+	public void missingFileKeepsSnapshotTest() throws IOException {
+		try (ReloadingSecureConfigurationLoader loader = new ReloadingSecureConfigurationLoader(classLoader,
+				ReloadingSecureConfigurationLoader.DEFAULT_POLLING_INTERVAL)) {
+			Assert.assertTrue(new File(configFolder, WHITELIST_FILE).delete());
+			Assert.assertFalse(loader.reload());
+			Assert.assertEquals(1000, loader.getMaxFileSize());
+			Assert.assertTrue(loader.existsContentType("text/plain"));
+		}
+	}
+
+	@Test
+	public void invalidSnapshotTest() throws IOException {
+		try (ReloadingSecureConfigurationLoader loader = new ReloadingSecureConfigurationLoader(classLoader,
+				ReloadingSecureConfigurationLoader.DEFAULT_POLLING_INTERVAL)) {
+			// A white list being written.
+			writeWhiteList("");
+			Assert.assertFalse(loader.reload());
+			Assert.assertTrue(loader.existsContentType("text/plain"));
+			writeWhiteList("text/plain = txt\n");
+			writeConfig("secure.file.owner = owner2\n");
+			Assert.assertFalse(loader.reload());
+			Assert.assertEquals(1000, loader.getMaxFileSize());
+			Assert.assertEquals("owner1", loader.getSecureFileOwner());
+		}
+	}
+
+	@Test
+	public void pinnedStorageFolderTest() throws IOException {
+		try (ReloadingSecureConfigurationLoader loader = new ReloadingSecureConfigurationLoader(classLoader,
+				ReloadingSecureConfigurationLoader.DEFAULT_POLLING_INTERVAL)) {
+			final String storageFolder = loader.getStorageFolder();
+			writeConfig("max.file.size = 2000\ndefault.storage.folder = other-folder\n");
+			Assert.assertTrue(loader.reload());
+			Assert.assertEquals(2000, loader.getMaxFileSize());
+			Assert.assertEquals(storageFolder, loader.getStorageFolder());
+			Assert.assertEquals(storageFolder, loader.getSnapshot().getStorageFolder());
+		}
+	}
+
+	@Test
+	public void minDetectionPrefixSizeTest() throws IOException {
+		writeConfig("max.file.size = 1000\ndetection.prefix.size = 100\n");
+		try (ReloadingSecureConfigurationLoader loader = new ReloadingSecureConfigurationLoader(classLoader,
+				ReloadingSecureConfigurationLoader.DEFAULT_POLLING_INTERVAL)) {
+			Assert.assertEquals(TikaContentTypeDetector.getMinLength(), loader.getDetectionPrefixSize());
+			writeConfig("max.file.size = 1000\ndetection.prefix.size = 131072\n");
+			Assert.assertTrue(loader.reload());
+			Assert.assertEquals(128 * 1024, loader.getDetectionPrefixSize());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void missingFileTest() throws IOException {
+		FileUtils.deleteQuietly(new File(configFolder, CONFIG_FILE));
+		new ReloadingSecureConfigurationLoader(classLoader, ReloadingSecureConfigurationLoader.DEFAULT_POLLING_INTERVAL)
+				.close();
+	}
+
+	@Test
+	public void watchedChangeTest() throws IOException, InterruptedException {
+		try (ReloadingSecureConfigurationLoader loader = new ReloadingSecureConfigurationLoader(classLoader, 50)) {
+			writeConfig("max.file.size = 3000\n");
+			final long deadline = System.currentTimeMillis() + 10000;
+			while (loader.getMaxFileSize() != 3000 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			Assert.assertEquals(3000, loader.getMaxFileSize());
+		}
+	}
+
+	private void writeConfig(final String content) throws IOException {
+		FileUtils.writeStringToFile(new File(configFolder, CONFIG_FILE), content, StandardCharsets.UTF_8);
+	}
+
+	private void writeWhiteList(final String content) throws IOException {
+		FileUtils.writeStringToFile(new File(configFolder, WHITELIST_FILE), content, StandardCharsets.UTF_8);
+	}
+}
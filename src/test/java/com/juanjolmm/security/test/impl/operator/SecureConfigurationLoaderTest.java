@@ -52,6 +52,31 @@ public final class SecureConfigurationLoaderTest {
 		Assert.assertEquals(10 * 1024 * 1024, secureConfigurationLoader.getMaxFileSize());
 	}
 	
+	@Test
+	public void getDetectionPrefixSizeTest() throws SecureFileUploadException {
+		secureConfigurationLoader = new SecureConfigurationLoaderImpl();
+		Assert.assertEquals(64 * 1024, secureConfigurationLoader.getDetectionPrefixSize());
+	}
+
+	@Test
+	public void getMemoryThresholdTest() throws SecureFileUploadException {
+		secureConfigurationLoader = new SecureConfigurationLoaderImpl();
+		Assert.assertEquals(1024 * 1024, secureConfigurationLoader.getMemoryThreshold());
+	}
+
+	@Test
+	public void getBatchParallelismTest() throws SecureFileUploadException {
+		secureConfigurationLoader = new SecureConfigurationLoaderImpl();
+		Assert.assertEquals(Runtime.getRuntime().availableProcessors(),
+				secureConfigurationLoader.getBatchParallelism());
+	}
+
+	@Test
+	public void getStorageShardLevelsTest() throws SecureFileUploadException {
+		secureConfigurationLoader = new SecureConfigurationLoaderImpl();
+		Assert.assertEquals(0, secureConfigurationLoader.getStorageShardLevels());
+	}
+
 	@Test
 	public void getDefaultStorageFolderTest() throws SecureFileUploadException {
 		secureConfigurationLoader = new SecureConfigurationLoaderImpl();
@@ -4,14 +4,41 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.NullInputStream;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.juanjolmm.security.api.operator.FileNameGenerator;
+import com.juanjolmm.security.api.service.FileMetadata;
+import com.juanjolmm.security.api.service.FilePage;
+import com.juanjolmm.security.api.service.UploadedFile;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
 import com.juanjolmm.security.exception.SecureFileUploadException;
 import com.juanjolmm.security.impl.operator.SecureConfigurationLoaderImpl;
 import com.juanjolmm.security.impl.operator.SecureFileOperatorImpl;
@@ -40,6 +67,182 @@ public final class SecureFileOperatorImplTest {
 		Assert.assertNotNull(newFile);
 	}
 
+	@Test
+	public void prepareSecureStorageTest() throws SecureFileUploadException {
+		final File storageFolder = new File("target/prepared-uploads");
+		FileUtils.deleteQuietly(storageFolder);
+		FileUtils.deleteQuietly(new File("target/prepared-uploads_staging"));
+		final SecureFileOperatorImpl preparedOperator = new SecureFileOperatorImpl(
+				new DelegatingConfigurationLoader() {
+					@Override
+					public String getStorageFolder() {
+						return storageFolder.getPath();
+					}
+				});
+		preparedOperator.prepareSecureStorage();
+		Assert.assertTrue(storageFolder.isDirectory());
+		Assert.assertTrue(new File("target/prepared-uploads_staging").isDirectory());
+		final File newFile = preparedOperator.createNewFileInSecureStorage(
+				new ByteArrayInputStream("Example bytes".getBytes(StandardCharsets.UTF_8)), "file.txt");
+		Assert.assertTrue(newFile.isFile());
+	}
+
+	@Test
+	public void createNewFileFromChannelTest() throws SecureFileUploadException, IOException {
+		final RandomAccessFile source = new RandomAccessFile("src/test/resources/files/Tulips.jpg", "r");
+		final File newFile = fileOperator.createNewFileInSecureStorage(source.getChannel(), "Tulips.jpg");
+		Assert.assertEquals(new File("src/test/resources/files/Tulips.jpg").length(), newFile.length());
+	}
+
+	@Test
+	public void createNewFileFromStreamChannelTest() throws SecureFileUploadException {
+		final byte[] content = "Example bytes".getBytes(StandardCharsets.UTF_8);
+		final File newFile = fileOperator.createNewFileInSecureStorage(
+				Channels.newChannel(new ByteArrayInputStream(content)), "file1.txt");
+		Assert.assertEquals(content.length, newFile.length());
+	}
+
+	@Test
+	public void createNewFileFromPipeTest() throws Exception {
+		final File pipe = new File("target/upload-pipe-" + System.nanoTime());
+		int exitCode = -1;
+		try {
+			exitCode = new ProcessBuilder("mkfifo", pipe.getPath()).start().waitFor();
+		} catch (IOException e) {
+			// mkfifo not available
+		}
+		Assume.assumeTrue("Named pipes not supported", exitCode == 0);
+		final byte[] content = "Example bytes".getBytes(StandardCharsets.UTF_8);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<?> writer = executor.submit(() -> {
+				FileUtils.writeByteArrayToFile(pipe, content);
+				return null;
+			});
+			// The channel of a pipe reports no size, so it is copied.
+			final File newFile = fileOperator.createNewFileInSecureStorage(new FileInputStream(pipe), "file1.txt");
+			writer.get(10, TimeUnit.SECONDS);
+			Assert.assertEquals(content.length, newFile.length());
+		} finally {
+			executor.shutdownNow();
+			FileUtils.deleteQuietly(pipe);
+		}
+	}
+
+	@Test
+	public void checksumsInSamePassTest() throws SecureFileUploadException, IOException {
+		final List<String> algorithms = Arrays.asList("CRC32", "SHA-256");
+		final UploadedFile fromFile = fileOperator.createNewFileInSecureStorage(
+				new FileInputStream("src/test/resources/files/Tulips.jpg"), "Tulips.jpg", algorithms);
+		final byte[] content = FileUtils.readFileToByteArray(new File("src/test/resources/files/Tulips.jpg"));
+		final UploadedFile fromStream = fileOperator.createNewFileInSecureStorage(new ByteArrayInputStream(content),
+				"Tulips.jpg", algorithms);
+		Assert.assertEquals(new File("src/test/resources/files/Tulips.jpg").length(), fromFile.getSize());
+		Assert.assertEquals(fromFile.getSize(), fromFile.getFile().length());
+		Assert.assertEquals(fromFile.getChecksums(), fromStream.getChecksums());
+		Assert.assertEquals(2, fromFile.getChecksums().size());
+	}
+
+	@Test(expected = SecureFileUploadException.class)
+	public void checksumsMaxFileSizeTest() throws SecureFileUploadException, IOException {
+		final File bigFile = new File("target/checksums-big.txt");
+		try (RandomAccessFile file = new RandomAccessFile(bigFile, "rw")) {
+			file.setLength(10 * 1024 * 1024 + 1);
+		}
+		fileOperator.createNewFileInSecureStorage(new FileInputStream(bigFile), "big.txt", Arrays.asList("CRC32"));
+	}
+
+	@Test(expected = SecureFileUploadException.class)
+	public void unsupportedChecksumTest() throws SecureFileUploadException {
+		fileOperator.createNewFileInSecureStorage(new ByteArrayInputStream(new byte[10]), "file1.txt",
+				Arrays.asList("NOT-AN-ALGORITHM"));
+	}
+
+	@Test
+	public void stagedFileTest() throws SecureFileUploadException, IOException {
+		final File storageFolder = new File("target/staging-storage");
+		FileUtils.deleteQuietly(storageFolder);
+		final SecureFileOperatorImpl stagingOperator = new SecureFileOperatorImpl(new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return storageFolder.getPath();
+			}
+		});
+		final UploadedFile stagedFile = stagingOperator.createStagedFile(
+				new ByteArrayInputStream("Example bytes".getBytes(StandardCharsets.UTF_8)), "file1.txt",
+				Arrays.asList("CRC32"));
+		Assert.assertEquals(new File("target/staging-storage_staging").getAbsoluteFile(),
+				stagedFile.getFile().getParentFile().getAbsoluteFile());
+		Assert.assertTrue(stagingOperator.listUploadedFiles().isEmpty());
+		final File newFile = stagingOperator.publishStagedFile(stagedFile.getFile(), "file1.txt");
+		Assert.assertFalse(stagedFile.getFile().exists());
+		Assert.assertEquals(13, newFile.length());
+		Assert.assertEquals(1, stagingOperator.listUploadedFiles().size());
+	}
+
+	@Test
+	public void stagingCleanUpTest() throws SecureFileUploadException, IOException {
+		final File storageFolder = new File("target/staging-cleanup-" + System.nanoTime());
+		final File stagingFolder = new File(storageFolder.getPath() + "_staging");
+		stagingFolder.mkdirs();
+		final File[] interruptedFiles = new File[100];
+		for (int i = 0; i < interruptedFiles.length; i++) {
+			interruptedFiles[i] = new File(stagingFolder, "interrupted" + i + ".part");
+			FileUtils.writeStringToFile(interruptedFiles[i], "Partial content", StandardCharsets.UTF_8);
+			Assert.assertTrue(interruptedFiles[i].setLastModified(System.currentTimeMillis() - 3600 * 1000));
+		}
+		final File currentFile = new File(stagingFolder, "current.part");
+		FileUtils.writeStringToFile(currentFile, "Partial content", StandardCharsets.UTF_8);
+		Assert.assertTrue(currentFile.setLastModified(System.currentTimeMillis() + 3600 * 1000));
+		new SecureFileOperatorImpl(new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return storageFolder.getPath();
+			}
+		});
+		for (File interruptedFile : interruptedFiles) {
+			Assert.assertFalse(interruptedFile.exists());
+		}
+		Assert.assertTrue(currentFile.exists());
+		FileUtils.deleteQuietly(stagingFolder);
+	}
+
+	@Test
+	public void fileNameCollisionTest() throws SecureFileUploadException, IOException {
+		final FileNameGenerator generator = new FileNameGenerator() {
+			@Override
+			public String generate(final String initialFileName, final int attempt) {
+				return "collision_" + attempt + ".txt";
+			}
+		};
+		final SecureFileOperatorImpl collisionOperator = new SecureFileOperatorImpl(
+				new SecureConfigurationLoaderImpl(), generator);
+		final File firstFile = collisionOperator.createNewFileInSecureStorage(
+				new ByteArrayInputStream("first".getBytes(StandardCharsets.UTF_8)), "a.txt");
+		final File secondFile = collisionOperator.createNewFileInSecureStorage(
+				new ByteArrayInputStream("second".getBytes(StandardCharsets.UTF_8)), "a.txt");
+		try {
+			Assert.assertNotEquals(firstFile, secondFile);
+			Assert.assertEquals("first", FileUtils.readFileToString(firstFile, StandardCharsets.UTF_8));
+			Assert.assertEquals("second", FileUtils.readFileToString(secondFile, StandardCharsets.UTF_8));
+		} finally {
+			FileUtils.deleteQuietly(firstFile);
+			FileUtils.deleteQuietly(secondFile);
+		}
+	}
+
+	@Test(expected = SecureFileUploadException.class)
+	public void maxFileSizeChannelTest() throws SecureFileUploadException {
+		final InputStream inputStream = new NullInputStream(10 * 1024 * 1024 + 1);
+		fileOperator.createNewFileInSecureStorage(Channels.newChannel(inputStream), "file1.txt");
+	}
+
+	@Test(expected = SecureFileUploadException.class)
+	public void maxFileSizeStreamTest() throws SecureFileUploadException {
+		final InputStream inputStream = new NullInputStream(10 * 1024 * 1024 + 1);
+		fileOperator.createNewFileInSecureStorage(inputStream, "file1.txt");
+	}
+
 	@Test
 	public void copyStreamToMaxSizeFileTest() throws SecureFileUploadException {
 		String exampleString = "Example bytes";
@@ -73,6 +276,39 @@ public final class SecureFileOperatorImplTest {
 		fileOperator.setSecureFilePermissions(newFile);
 	}
 
+	@Test
+	public void secureFilePermissionsAtCreationTest() throws SecureFileUploadException, IOException {
+		Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+		final UploadedFile stagedFile = fileOperator.createStagedFile(
+				new FileInputStream("src/test/resources/files/executable.bat"), "executable.bat",
+				Arrays.<String>asList());
+		Assert.assertEquals(PosixFilePermissions.fromString("rw-------"),
+				Files.getPosixFilePermissions(stagedFile.getFile().toPath()));
+		final File newFile = fileOperator.publishStagedFile(stagedFile.getFile(), "executable.bat");
+		Assert.assertEquals(PosixFilePermissions.fromString("rw-------"),
+				Files.getPosixFilePermissions(newFile.toPath()));
+	}
+
+	@Test
+	public void setCurrentSecureFileOwnerTest() throws SecureFileUploadException, IOException {
+		Assume.assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+		final File firstFile = fileOperator.createNewFileInSecureStorage(
+				new FileInputStream("src/test/resources/files/real2.png"), "real2.png");
+		final String currentOwner = Files.getOwner(firstFile.toPath()).getName();
+		final SecureFileOperatorImpl ownerOperator = new SecureFileOperatorImpl(new DelegatingConfigurationLoader() {
+			@Override
+			public String getSecureFileOwner() {
+				return currentOwner;
+			}
+		});
+		for (int i = 0; i < 3; i++) {
+			final File newFile = ownerOperator.createNewFileInSecureStorage(
+					new FileInputStream("src/test/resources/files/real2.png"), "real2.png");
+			ownerOperator.setSecureFileOwner(newFile);
+			Assert.assertEquals(currentOwner, Files.getOwner(newFile.toPath()).getName());
+		}
+	}
+
 	@Test
 	public void maxFileSizeCopyStreamToMaxSizeFileTest() throws SecureFileUploadException, FileNotFoundException {
 		// Should change max file size in properties
@@ -103,6 +339,225 @@ public final class SecureFileOperatorImplTest {
 		Assert.assertTrue(fileRetrieved != null);
 	}
 	
+	@Test
+	public void shardedStorageTest() throws SecureFileUploadException, IOException {
+		final File storageFolder = new File("target/sharded-uploads");
+		FileUtils.deleteQuietly(storageFolder);
+		final SecureFileOperatorImpl shardedOperator = new SecureFileOperatorImpl(new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return storageFolder.getPath();
+			}
+
+			@Override
+			public int getStorageShardLevels() {
+				return 2;
+			}
+		});
+		final File flatFile = new File(storageFolder, "flat.txt");
+		FileUtils.writeStringToFile(flatFile, "flat", StandardCharsets.UTF_8);
+		final File newFile = shardedOperator.createNewFileInSecureStorage(
+				new ByteArrayInputStream("sharded".getBytes(StandardCharsets.UTF_8)), "file1.txt");
+		final String shardPath = newFile.getParentFile().getParentFile().getName() + "/"
+				+ newFile.getParentFile().getName();
+		Assert.assertTrue(shardPath.matches("[0-9a-f]{2}/[0-9a-f]{2}"));
+		Assert.assertEquals(storageFolder.getAbsoluteFile(),
+				newFile.getParentFile().getParentFile().getParentFile().getAbsoluteFile());
+		Assert.assertEquals(newFile, shardedOperator.getUplodadedFile(newFile.getName()));
+		Assert.assertEquals(flatFile, shardedOperator.getUplodadedFile("flat.txt"));
+		Assert.assertEquals(2, shardedOperator.listUploadedFiles().size());
+	}
+
+	@Test
+	public void pagedListTest() throws SecureFileUploadException, IOException {
+		assertPagedList(0);
+		assertPagedList(2);
+	}
+
+	private static void assertPagedList(final int shardLevels) throws SecureFileUploadException, IOException {
+		final File storageFolder = new File("target/paged-uploads-" + shardLevels);
+		FileUtils.deleteQuietly(storageFolder);
+		final SecureFileOperatorImpl pagedOperator = new SecureFileOperatorImpl(new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return storageFolder.getPath();
+			}
+
+			@Override
+			public int getStorageShardLevels() {
+				return shardLevels;
+			}
+		});
+		Assert.assertFalse(pagedOperator.listUploadedFiles(null, 10).hasNext());
+		final Set<File> uploadedFiles = new HashSet<File>();
+		for (int i = 0; i < 53; i++) {
+			uploadedFiles.add(pagedOperator.createNewFileInSecureStorage(
+					new ByteArrayInputStream("paged".getBytes(StandardCharsets.UTF_8)), "file" + i + ".txt"));
+		}
+		final Set<File> listedFiles = new HashSet<File>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			final FilePage page = pagedOperator.listUploadedFiles(cursor, 10);
+			Assert.assertTrue(page.getFiles().size() <= 10);
+			for (File file : page.getFiles()) {
+				Assert.assertTrue(listedFiles.add(file));
+			}
+			cursor = page.getNextCursor();
+			pages++;
+		} while (cursor != null);
+		Assert.assertEquals(6, pages);
+		Assert.assertEquals(uploadedFiles, listedFiles);
+		Assert.assertEquals(53, pagedOperator.listUploadedFiles().size());
+		try (Stream<Path> stream = pagedOperator.streamUploadedFiles()) {
+			Assert.assertEquals(5, stream.limit(5).count());
+		}
+		try (Stream<Path> stream = pagedOperator.streamUploadedFiles()) {
+			Assert.assertEquals(53, stream.count());
+		}
+	}
+
+	@Test
+	public void busyStorageTest() throws Exception {
+		final File storageFolder = new File("target/busy-uploads");
+		FileUtils.deleteQuietly(storageFolder);
+		final SecureFileOperatorImpl busyOperator = new SecureFileOperatorImpl(new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return storageFolder.getPath();
+			}
+
+			@Override
+			public int getMaxConcurrentWrites() {
+				return 1;
+			}
+
+			@Override
+			public int getMaxQueuedWrites() {
+				return 0;
+			}
+		});
+		final PipedOutputStream writer = new PipedOutputStream();
+		final PipedInputStream slowUpload = new PipedInputStream(writer);
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final Future<File> firstUpload = executor
+					.submit(() -> busyOperator.createNewFileInSecureStorage(slowUpload, "slow.txt"));
+			final long deadline = System.currentTimeMillis() + 10000;
+			while (busyOperator.getAdmissionController().getActiveCount() == 0
+					&& System.currentTimeMillis() < deadline) {
+				Thread.sleep(5);
+			}
+			try {
+				busyOperator.createNewFileInSecureStorage(new ByteArrayInputStream(new byte[10]), "file1.txt");
+				Assert.fail("Upload not rejected");
+			} catch (SecureFileUploadException e) {
+				Assert.assertEquals(RejectionReasonEnum.BUSY, e.getReason());
+			}
+			writer.write("Example bytes".getBytes(StandardCharsets.UTF_8));
+			writer.close();
+			Assert.assertEquals(13, firstUpload.get(10, TimeUnit.SECONDS).length());
+			Assert.assertEquals(0, busyOperator.getAdmissionController().getActiveCount());
+			Assert.assertEquals(1, busyOperator.getAdmissionController().getRejectedCount());
+			Assert.assertNotNull(busyOperator.createNewFileInSecureStorage(
+					new ByteArrayInputStream(new byte[10]), "file2.txt"));
+		} finally {
+			executor.shutdownNow();
+		}
+		Assert.assertNull(fileOperator.getAdmissionController());
+	}
+
+	@Test
+	public void failedClientReleasesSlotTest() throws SecureFileUploadException {
+		final File storageFolder = new File("target/failed-client-uploads");
+		FileUtils.deleteQuietly(storageFolder);
+		final SecureFileOperatorImpl busyOperator = new SecureFileOperatorImpl(new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return storageFolder.getPath();
+			}
+
+			@Override
+			public int getMaxConcurrentWrites() {
+				return 1;
+			}
+
+			@Override
+			public int getMaxQueuedWrites() {
+				return 0;
+			}
+		});
+		// The slot is held while the content is received, so a client that
+		// fails in the middle of the upload must release it.
+		final InputStream failingUpload = new InputStream() {
+			private int read;
+
+			@Override
+			public int read() throws IOException {
+				if (++read > 10) {
+					throw new IOException("Connection reset");
+				}
+				Assert.assertEquals(1, busyOperator.getAdmissionController().getActiveCount());
+				return 'a';
+			}
+		};
+		try {
+			busyOperator.createNewFileInSecureStorage(failingUpload, "failed.txt");
+			Assert.fail("Failed upload not rejected");
+		} catch (SecureFileUploadException e) {
+			Assert.assertEquals(RejectionReasonEnum.IO, e.getReason());
+		}
+		Assert.assertEquals(0, busyOperator.getAdmissionController().getActiveCount());
+		Assert.assertNotNull(busyOperator.createNewFileInSecureStorage(new ByteArrayInputStream(new byte[10]),
+				"file1.txt"));
+	}
+
+	@Test
+	public void deleteBetweenPagesTest() throws SecureFileUploadException, IOException {
+		final File storageFolder = new File("target/paged-delete-uploads");
+		FileUtils.deleteQuietly(storageFolder);
+		final SecureFileOperatorImpl pagedOperator = new SecureFileOperatorImpl(new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return storageFolder.getPath();
+			}
+		});
+		final Set<File> uploadedFiles = new HashSet<File>();
+		for (int i = 0; i < 25; i++) {
+			uploadedFiles.add(pagedOperator.createNewFileInSecureStorage(
+					new ByteArrayInputStream("paged".getBytes(StandardCharsets.UTF_8)), "file" + i + ".txt"));
+		}
+		final FilePage firstPage = pagedOperator.listUploadedFiles(null, 10);
+		final List<File> listedFiles = new ArrayList<File>(firstPage.getFiles());
+		// A file of the first page is deleted, so an offset would skip a file
+		// of the next page.
+		final File deletedFile = listedFiles.get(3);
+		Files.delete(deletedFile.toPath());
+		uploadedFiles.remove(deletedFile);
+		String cursor = firstPage.getNextCursor();
+		while (cursor != null) {
+			final FilePage page = pagedOperator.listUploadedFiles(cursor, 10);
+			listedFiles.addAll(page.getFiles());
+			cursor = page.getNextCursor();
+		}
+		listedFiles.remove(deletedFile);
+		Assert.assertEquals(uploadedFiles.size(), listedFiles.size());
+		Assert.assertEquals(uploadedFiles, new HashSet<File>(listedFiles));
+		for (int i = 1; i < listedFiles.size(); i++) {
+			Assert.assertTrue(listedFiles.get(i - 1).getName().compareTo(listedFiles.get(i).getName()) < 0);
+		}
+	}
+
+	@Test(expected = SecureFileUploadException.class)
+	public void invalidCursorTest() throws SecureFileUploadException {
+		fileOperator.listUploadedFiles("invalid", 10);
+	}
+
+	@Test(expected = SecureFileUploadException.class)
+	public void invalidLimitTest() throws SecureFileUploadException {
+		fileOperator.listUploadedFiles(null, 0);
+	}
+
 	@Test(expected=FileNotFoundException.class)
 	public void nullGetUplodadedFileTest() throws FileNotFoundException {
 		final File fileRetrieved = fileOperator.getUplodadedFile("dsddsds.esd");
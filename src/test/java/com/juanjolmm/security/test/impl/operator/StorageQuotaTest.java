@@ -0,0 +1,280 @@
+package com.juanjolmm.security.test.impl.operator;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.api.FileNameModeEnum;
+import com.juanjolmm.security.api.StorageModeEnum;
+import com.juanjolmm.security.api.service.UploadedFile;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.operator.SecureFileOperatorImpl;
+import com.juanjolmm.security.impl.operator.StorageQuota;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
+
+/**
+ * Test class of StorageQuota.
+ *
+ * @author jlopez1
+ *
+ */
+public final class StorageQuotaTest {
+
+	private static final byte[] CONTENT = "Example text content".getBytes(StandardCharsets.UTF_8);
+	private File storageFolder;
+
+	@Before
+	public void init() {
+		// Every test uses its own folder because the quotas are shared by
+		// storage folder.
+		storageFolder = new File("target/quota-uploads-" + System.nanoTime());
+	}
+
+	@Test
+	public void filesQuotaTest() throws SecureFileUploadException, FileNotFoundException {
+		final SecureFileUploaderStored uploader = new SecureFileUploaderStored(
+				new QuotaConfigurationLoader(storageFolder, 0, 2, 0, 0, 0));
+		final StorageQuota quota = uploader.getStorageQuota();
+		Assert.assertNotNull(quota);
+		Assert.assertEquals(0, quota.getTotalFiles());
+		final UploadedFile first = upload(uploader, null);
+		upload(uploader, null);
+		Assert.assertEquals(2, quota.getTotalFiles());
+		Assert.assertEquals(CONTENT.length * 2, quota.getTotalBytes());
+		assertRejected(uploader, null, RejectionReasonEnum.QUOTA);
+		Assert.assertEquals(1, uploader.getRejectionCount(RejectionReasonEnum.QUOTA));
+		uploader.delete(first.getFile().getName());
+		Assert.assertEquals(1, quota.getTotalFiles());
+		Assert.assertEquals(CONTENT.length, quota.getTotalBytes());
+		upload(uploader, null);
+		// New uploaders of the same storage folder share the quota.
+		Assert.assertSame(quota, new SecureFileUploaderStored(new QuotaConfigurationLoader(storageFolder, 0, 2, 0, 0,
+				0)).getStorageQuota());
+	}
+
+	@Test
+	public void ownerQuotaTest() throws SecureFileUploadException {
+		final SecureFileUploaderStored uploader = new SecureFileUploaderStored(
+				new QuotaConfigurationLoader(storageFolder, 0, 0, CONTENT.length, 0, 0));
+		final StorageQuota quota = uploader.getStorageQuota();
+		upload(uploader, "owner1");
+		assertRejected(uploader, "owner1", RejectionReasonEnum.QUOTA);
+		upload(uploader, "owner2");
+		upload(uploader, null);
+		Assert.assertEquals(CONTENT.length, quota.getOwnerBytes("owner1"));
+		Assert.assertEquals(1, quota.getOwnerFiles("owner2"));
+		Assert.assertEquals(3, quota.getTotalFiles());
+		assertRejected(uploader, "", RejectionReasonEnum.INVALID_REQUEST);
+	}
+
+	@Test
+	public void deduplicatedOwnersTest() throws SecureFileUploadException, FileNotFoundException {
+		final QuotaConfigurationLoader configLoader = new QuotaConfigurationLoader(storageFolder, 0, 10, 0, 1, 0) {
+			@Override
+			public StorageModeEnum getStorageMode() {
+				return StorageModeEnum.DEDUPLICATED;
+			}
+		};
+		final SecureFileUploaderStored uploader = new SecureFileUploaderStored(configLoader);
+		final StorageQuota quota = uploader.getStorageQuota();
+		// The files of the same content share the inode, so the owner
+		// quotas are refused and the owners are not charged.
+		final UploadedFile first = upload(uploader, "owner1");
+		upload(uploader, "owner2");
+		upload(uploader, "owner1");
+		Assert.assertEquals(3, quota.getTotalFiles());
+		Assert.assertEquals(0, quota.getOwnerFiles("owner1"));
+		uploader.delete(first.getFile().getName());
+		Assert.assertEquals(2, quota.getTotalFiles());
+		Assert.assertEquals(CONTENT.length * 2, quota.getTotalBytes());
+		Assert.assertEquals(0, quota.getOwnerFiles("owner1"));
+		Assert.assertEquals(0, quota.getOwnerBytes("owner2"));
+		final StorageQuota rebuiltQuota = new StorageQuota(configLoader, new SecureFileOperatorImpl(configLoader));
+		Assert.assertEquals(2, rebuiltQuota.getTotalFiles());
+		Assert.assertEquals(0, rebuiltQuota.getOwnerFiles("owner2"));
+	}
+
+	@Test
+	public void bytesQuotaTest() throws SecureFileUploadException {
+		final SecureFileUploaderStored uploader = new SecureFileUploaderStored(
+				new QuotaConfigurationLoader(storageFolder, CONTENT.length + 10, 0, 0, 0, 0));
+		final StorageQuota quota = uploader.getStorageQuota();
+		upload(uploader, null);
+		// Only 10 bytes remain, so the second file is deleted after it is
+		// stored.
+		assertRejected(uploader, null, RejectionReasonEnum.QUOTA);
+		Assert.assertEquals(1, quota.getTotalFiles());
+		Assert.assertEquals(CONTENT.length, quota.getTotalBytes());
+		Assert.assertEquals(1, FileUtils.listFiles(storageFolder, null, true).size());
+	}
+
+	@Test
+	public void overQuotaLongNameTest() throws SecureFileUploadException {
+		final SecureFileUploaderStored uploader = new SecureFileUploaderStored(
+				new QuotaConfigurationLoader(storageFolder, CONTENT.length + 10, 0, 0, 0, 0) {
+					@Override
+					public FileNameModeEnum getFileNameMode() {
+						return FileNameModeEnum.ORIGINAL;
+					}
+				});
+		final StorageQuota quota = uploader.getStorageQuota();
+		final String fileName = "abcdefghijabcdefghijabcdefghijabcdefghij.txt";
+		uploader.uploadFile(new ByteArrayInputStream(CONTENT), fileName, "text/plain", null);
+		// The stored name of the file over the quota is not a valid uploaded
+		// name, but the file is removed and its bytes released.
+		try {
+			uploader.uploadFile(new ByteArrayInputStream(CONTENT), fileName, "text/plain", null);
+			Assert.fail("Upload not rejected");
+		} catch (SecureFileUploadException e) {
+			Assert.assertEquals(RejectionReasonEnum.QUOTA, e.getReason());
+		}
+		Assert.assertEquals(1, quota.getTotalFiles());
+		Assert.assertEquals(CONTENT.length, quota.getTotalBytes());
+		Assert.assertEquals(1, FileUtils.listFiles(storageFolder, null, true).size());
+	}
+
+	@Test
+	public void concurrentUploadsTest() throws Exception {
+		final int maxFiles = 5;
+		final SecureFileUploaderStored uploader = new SecureFileUploaderStored(
+				new QuotaConfigurationLoader(storageFolder, 0, maxFiles, 0, 0, 0));
+		final StorageQuota quota = uploader.getStorageQuota();
+		final int threads = 16;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final CountDownLatch start = new CountDownLatch(1);
+			final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < threads * 4; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					try {
+						upload(uploader, null);
+						return true;
+					} catch (SecureFileUploadException e) {
+						Assert.assertEquals(RejectionReasonEnum.QUOTA, e.getReason());
+						return false;
+					}
+				}));
+			}
+			start.countDown();
+			int uploaded = 0;
+			for (Future<Boolean> result : results) {
+				if (result.get(30, TimeUnit.SECONDS)) {
+					uploaded++;
+				}
+			}
+			Assert.assertEquals(maxFiles, uploaded);
+		} finally {
+			executor.shutdownNow();
+		}
+		Assert.assertEquals(maxFiles, quota.getTotalFiles());
+		Assert.assertEquals(CONTENT.length * maxFiles, quota.getTotalBytes());
+		Assert.assertEquals(maxFiles, FileUtils.listFiles(storageFolder, null, true).size());
+	}
+
+	@Test
+	public void usableSpaceTest() {
+		final SecureFileUploaderStored uploader = new SecureFileUploaderStored(
+				new QuotaConfigurationLoader(storageFolder, 0, 0, 0, 0, Long.MAX_VALUE));
+		assertRejected(uploader, null, RejectionReasonEnum.STORAGE_FULL);
+	}
+
+	@Test
+	public void rebuildTest() throws SecureFileUploadException, IOException {
+		final QuotaConfigurationLoader configLoader = new QuotaConfigurationLoader(storageFolder, 0, 100, 0, 2, 0);
+		final SecureFileUploaderStored uploader = new SecureFileUploaderStored(configLoader);
+		final int files = 30;
+		for (int i = 0; i < files; i++) {
+			upload(uploader, i < 2 ? "owner1" : null);
+		}
+		final StorageQuota rebuiltQuota = new StorageQuota(configLoader, new SecureFileOperatorImpl(configLoader));
+		Assert.assertEquals(files, rebuiltQuota.getTotalFiles());
+		Assert.assertEquals(CONTENT.length * files, rebuiltQuota.getTotalBytes());
+		Assume.assumeTrue("User extended attributes not supported", Files.getFileStore(storageFolder.toPath())
+				.supportsFileAttributeView(UserDefinedFileAttributeView.class));
+		Assert.assertEquals(2, rebuiltQuota.getOwnerFiles("owner1"));
+		Assert.assertEquals(CONTENT.length * 2, rebuiltQuota.getOwnerBytes("owner1"));
+	}
+
+	private static UploadedFile upload(final SecureFileUploaderStored uploader, final String ownerKey)
+			throws SecureFileUploadException {
+		return uploader.uploadFile(new ByteArrayInputStream(CONTENT), "file.txt", "text/plain", ownerKey);
+	}
+
+	private static void assertRejected(final SecureFileUploaderStored uploader, final String ownerKey,
+			final RejectionReasonEnum reason) {
+		try {
+			upload(uploader, ownerKey);
+			Assert.fail("Upload not rejected");
+		} catch (SecureFileUploadException e) {
+			Assert.assertEquals(reason, e.getReason());
+		}
+	}
+
+	private static class QuotaConfigurationLoader extends DelegatingConfigurationLoader {
+		private final File storageFolder;
+		private final long maxBytes;
+		private final long maxFiles;
+		private final long maxOwnerBytes;
+		private final long maxOwnerFiles;
+		private final long minUsableSpace;
+
+		private QuotaConfigurationLoader(final File storageFolder, final long maxBytes, final long maxFiles,
+				final long maxOwnerBytes, final long maxOwnerFiles, final long minUsableSpace) {
+			this.storageFolder = storageFolder;
+			this.maxBytes = maxBytes;
+			this.maxFiles = maxFiles;
+			this.maxOwnerBytes = maxOwnerBytes;
+			this.maxOwnerFiles = maxOwnerFiles;
+			this.minUsableSpace = minUsableSpace;
+		}
+
+		@Override
+		public String getStorageFolder() {
+			return storageFolder.getPath();
+		}
+
+		@Override
+		public long getQuotaMaxBytes() {
+			return maxBytes;
+		}
+
+		@Override
+		public long getQuotaMaxFiles() {
+			return maxFiles;
+		}
+
+		@Override
+		public long getOwnerQuotaMaxBytes() {
+			return maxOwnerBytes;
+		}
+
+		@Override
+		public long getOwnerQuotaMaxFiles() {
+			return maxOwnerFiles;
+		}
+
+		@Override
+		public long getMinUsableSpace() {
+			return minUsableSpace;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.juanjolmm.security.test.impl.operator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.tika.Tika;
+import org.apache.tika.io.TikaInputStream;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.api.operator.ContentTypeDetector;
+import com.juanjolmm.security.impl.operator.TikaContentTypeDetector;
+
+/**
+ * Test class of TikaContentTypeDetector.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class TikaContentTypeDetectorTest {
+
+	private ContentTypeDetector detector;
+
+	@Before
+	public void init() {
+		detector = new TikaContentTypeDetector();
+	}
+
+	@Test
+	public void detectPngTest() throws FileNotFoundException {
+		Assert.assertEquals("image/png", detector.detect(new FileInputStream("src/test/resources/files/real.png")));
+	}
+
+	@Test
+	public void detectFakePngTest() throws FileNotFoundException {
+		Assert.assertEquals("image/jpeg",
+				detector.detect(new FileInputStream("src/test/resources/files/TulisFakePNG.png")));
+	}
+
+	@Test
+	public void sharedDetectorTest() throws IOException {
+		final ContentTypeDetector sharedDetector = TikaContentTypeDetector.getDefault();
+		Assert.assertSame(sharedDetector, TikaContentTypeDetector.getDefault());
+		// The shared detector detects the same types as a new Tika facade.
+		for (File file : new File("src/test/resources/files").listFiles()) {
+			final String expected;
+			try (InputStream inputStream = new FileInputStream(file)) {
+				expected = new Tika().detect(TikaInputStream.get(inputStream));
+			}
+			Assert.assertEquals(file.getName(), expected, sharedDetector.detect(new FileInputStream(file)));
+			Assert.assertEquals(file.getName(), expected, sharedDetector.detect(new FileInputStream(file)));
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.juanjolmm.security.test.impl.operator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.operator.UlidFileNameGenerator;
+
+/**
+ * Test class of UlidFileNameGenerator.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class UlidFileNameGeneratorTest {
+
+	private final UlidFileNameGenerator generator = new UlidFileNameGenerator();
+
+	@Test
+	public void generateTest() throws SecureFileUploadException {
+		final String fileName = generator.generate("path/initialName.txt", 0);
+		Assert.assertTrue(fileName, fileName.matches("[0-9A-HJKMNP-TV-Z]{26}\\.txt"));
+	}
+
+	@Test(expected = SecureFileUploadException.class)
+	public void invalidExtensionTest() throws SecureFileUploadException {
+		generator.generate("initialName.exe!", 0);
+	}
+
+	@Test
+	public void sortableTest() {
+		final List<String> ulids = new ArrayList<String>();
+		final long timestamp = System.currentTimeMillis();
+		for (int i = 0; i < 100; i++) {
+			ulids.add(UlidFileNameGenerator.generateUlid(timestamp + i * 1000L));
+		}
+		final List<String> sortedUlids = new ArrayList<String>(ulids);
+		Collections.sort(sortedUlids);
+		Assert.assertEquals(ulids, sortedUlids);
+		Assert.assertEquals("0000000000", UlidFileNameGenerator.generateUlid(0).substring(0, 10));
+		Assert.assertEquals("7ZZZZZZZZZ", UlidFileNameGenerator.generateUlid((1L << 48) - 1).substring(0, 10));
+	}
+
+	@Test
+	public void uniqueTest() throws Exception {
+		final Set<String> fileNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		final int threads = 8;
+		final int namesPerThread = 20000;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		final List<Future<?>> futures = new ArrayList<Future<?>>();
+		try {
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < namesPerThread; j++) {
+						fileNames.add(generator.generate("initialName.txt", 0));
+					}
+					return null;
+				}));
+			}
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertEquals(threads * namesPerThread, fileNames.size());
+	}
+}
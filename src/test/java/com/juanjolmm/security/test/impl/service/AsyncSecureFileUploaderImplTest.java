@@ -0,0 +1,88 @@
+package com.juanjolmm.security.test.impl.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.exception.RejectionReasonEnum;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.service.AsyncSecureFileUploaderImpl;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
+
+/**
+ * Test class of AsyncSecureFileUploaderImpl.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class AsyncSecureFileUploaderImplTest {
+
+	private ExecutorService executor;
+
+	@Before
+	public void init() {
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@After
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void uploadAsyncTest() throws FileNotFoundException, InterruptedException, ExecutionException {
+		final AsyncSecureFileUploaderImpl fileUploader = new AsyncSecureFileUploaderImpl(
+				new SecureFileUploaderStored(), executor, 4);
+		final CompletableFuture<File> future = fileUploader
+				.uploadAsync(new FileInputStream("src/test/resources/files/real.png"), "real.png", "image/png");
+		Assert.assertTrue(future.get().exists());
+		Assert.assertEquals(4, fileUploader.getAvailableUploads());
+	}
+
+	@Test
+	public void notValidUploadAsyncTest() throws FileNotFoundException, InterruptedException {
+		final AsyncSecureFileUploaderImpl fileUploader = new AsyncSecureFileUploaderImpl(
+				new SecureFileUploaderStored(), executor, 4);
+		final CompletableFuture<File> future = fileUploader.uploadAsync(
+				new FileInputStream("src/test/resources/files/TulisFakePNG.png"), "Tulips.png", "image/png");
+		try {
+			future.get();
+			Assert.fail("Fake PNG should be rejected");
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof SecureFileUploadException);
+		}
+	}
+
+	@Test
+	public void maxInFlightUploadsTest() throws FileNotFoundException {
+		final List<Runnable> pendingTasks = new ArrayList<Runnable>();
+		final AsyncSecureFileUploaderImpl fileUploader = new AsyncSecureFileUploaderImpl(
+				new SecureFileUploaderStored(), pendingTasks::add, 1);
+		final CompletableFuture<File> first = fileUploader
+				.uploadAsync(new FileInputStream("src/test/resources/files/real.png"), "real.png", "image/png");
+		final CompletableFuture<File> second = fileUploader
+				.uploadAsync(new FileInputStream("src/test/resources/files/real.png"), "real.png", "image/png");
+		Assert.assertFalse(first.isDone());
+		Assert.assertTrue(second.isCompletedExceptionally());
+		try {
+			second.join();
+		} catch (CompletionException e) {
+			Assert.assertEquals(RejectionReasonEnum.BUSY, ((SecureFileUploadException) e.getCause()).getReason());
+		}
+		pendingTasks.get(0).run();
+		Assert.assertTrue(first.isDone() && !first.isCompletedExceptionally());
+		Assert.assertEquals(1, fileUploader.getAvailableUploads());
+	}
+}
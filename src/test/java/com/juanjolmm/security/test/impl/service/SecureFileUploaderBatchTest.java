@@ -0,0 +1,66 @@
+package com.juanjolmm.security.test.impl.service;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.api.service.UploadRequest;
+import com.juanjolmm.security.api.service.UploadResult;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
+
+/**
+ * Test class of the batch uploads of AbstractSecureFileUploader.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class SecureFileUploaderBatchTest {
+
+	private SecureFileUploader fileUploader;
+
+	@Before
+	public void init() {
+		fileUploader = new SecureFileUploaderStored();
+	}
+
+	@Test
+	public void uploadAllTest() throws FileNotFoundException {
+		final List<UploadRequest> requests = new ArrayList<UploadRequest>();
+		requests.add(new UploadRequest(new FileInputStream("src/test/resources/files/real.png"), "real.png",
+				"image/png"));
+		requests.add(new UploadRequest(new FileInputStream("src/test/resources/files/TulisFakePNG.png"),
+				"Tulips.png", "image/png"));
+		requests.add(new UploadRequest(new FileInputStream("src/test/resources/files/word.doc"), "word.doc",
+				"application/msword"));
+		requests.add(new UploadRequest(new FileInputStream("src/test/resources/files/executable.bat"),
+				"executable.bat", "text/plain"));
+		requests.add(new UploadRequest(new FileInputStream("src/test/resources/files/Tulips.jpg"), "Tulips.jpg",
+				"image/jpeg"));
+		long startMilliSecs = System.currentTimeMillis();
+		final List<UploadResult> results = fileUploader.uploadAll(requests);
+		long stopMilliSecs = System.currentTimeMillis();
+		System.out.println("Batch upload took: " + ((stopMilliSecs - startMilliSecs)) + " ms.");
+		Assert.assertEquals(requests.size(), results.size());
+		for (int i = 0; i < requests.size(); i++) {
+			Assert.assertSame(requests.get(i), results.get(i).getRequest());
+		}
+		Assert.assertTrue(results.get(0).isSuccess() && results.get(0).getFile().exists());
+		Assert.assertFalse(results.get(1).isSuccess());
+		Assert.assertNotNull(results.get(1).getException());
+		Assert.assertTrue(results.get(2).isSuccess());
+		Assert.assertFalse(results.get(3).isSuccess());
+		Assert.assertTrue(results.get(4).isSuccess());
+	}
+
+	@Test
+	public void emptyUploadAllTest() {
+		Assert.assertTrue(fileUploader.uploadAll(Collections.<UploadRequest> emptyList()).isEmpty());
+	}
+}
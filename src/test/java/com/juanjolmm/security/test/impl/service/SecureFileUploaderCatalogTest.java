@@ -0,0 +1,108 @@
+package com.juanjolmm.security.test.impl.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.api.service.CatalogEntry;
+import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.service.SecureFileUploaderInMemory;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStreaming;
+import com.juanjolmm.security.test.impl.operator.DelegatingConfigurationLoader;
+
+/**
+ * Test class of the uploads recorded in the catalog.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class SecureFileUploaderCatalogTest {
+
+	private static final File STORAGE_FOLDER = new File("target/catalog-uploads");
+	private DelegatingConfigurationLoader configLoader;
+
+	@Before
+	public void init() {
+		FileUtils.deleteQuietly(STORAGE_FOLDER);
+		configLoader = new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return STORAGE_FOLDER.getPath();
+			}
+
+			@Override
+			public String getCatalogFile() {
+				return STORAGE_FOLDER.getPath() + ".catalog";
+			}
+		};
+	}
+
+	@Test
+	public void catalogTest() throws SecureFileUploadException, IOException, NoSuchAlgorithmException {
+		final long before = System.currentTimeMillis();
+		final SecureFileUploader storedUploader = new SecureFileUploaderStored(configLoader);
+		final SecureFileUploader inMemoryUploader = new SecureFileUploaderInMemory(configLoader);
+		final SecureFileUploader streamingUploader = new SecureFileUploaderStreaming(configLoader);
+		final File textFile = storedUploader.upload(new FileInputStream("src/test/resources/files/txt.txt"),
+				"txt.txt", "text/plain");
+		final File imageFile = inMemoryUploader.upload(new FileInputStream("src/test/resources/files/real2.png"),
+				"real2.png", "image/png");
+		final File wordFile = streamingUploader.upload(new FileInputStream("src/test/resources/files/word2.docx"),
+				"word2.docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+		final long after = System.currentTimeMillis() + 1;
+
+		final List<CatalogEntry> entries = storedUploader.list(before, after, null);
+		Assert.assertTrue(entries.size() >= 3);
+		final List<CatalogEntry> imageEntries = inMemoryUploader.list(before, after, "image/png");
+		Assert.assertEquals(1, imageEntries.size());
+		final CatalogEntry imageEntry = imageEntries.get(0);
+		Assert.assertEquals(imageFile.getName(), imageEntry.getFileName());
+		Assert.assertEquals(imageFile.length(), imageEntry.getSize());
+		Assert.assertEquals(sha256Hex(imageFile), imageEntry.getDigest());
+		Assert.assertEquals(1, streamingUploader.list(before, after,
+				"application/vnd.openxmlformats-officedocument.wordprocessingml.document").size());
+
+		Assert.assertTrue(storedUploader.list().contains(textFile.getAbsoluteFile()));
+		Assert.assertEquals(wordFile.getAbsoluteFile(), storedUploader.get(wordFile.getName()));
+		Assert.assertEquals(textFile.getAbsoluteFile(), streamingUploader.get(textFile.getName()));
+	}
+
+	@Test
+	public void modifiedFileTest() throws SecureFileUploadException, IOException {
+		final SecureFileUploader uploader = new SecureFileUploaderStored(configLoader);
+		final File textFile = uploader.upload(new FileInputStream("src/test/resources/files/txt.txt"), "txt.txt",
+				"text/plain");
+		textFile.setWritable(true);
+		FileUtils.copyFile(new File("src/test/resources/files/real2.png"), textFile);
+		// The catalog entry no longer describes the file, so the content type
+		// is detected again.
+		try {
+			uploader.get(textFile.getName());
+			Assert.fail("Modified file not rejected");
+		} catch (SecureFileUploadException e) {
+			Assert.assertEquals(RejectionReasonEnum.EXTENSION, e.getReason());
+		}
+	}
+
+	private static String sha256Hex(final File file) throws IOException, NoSuchAlgorithmException {
+		final byte[] digest = MessageDigest.getInstance("SHA-256").digest(FileUtils.readFileToByteArray(file));
+		return String.format("%064x", new BigInteger(1, digest));
+	}
+
+	@Test(expected = SecureFileUploadException.class)
+	public void noCatalogTest() throws SecureFileUploadException {
+		new SecureFileUploaderStored().list(0, Long.MAX_VALUE, null);
+	}
+}
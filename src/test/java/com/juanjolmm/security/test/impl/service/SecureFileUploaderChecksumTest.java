@@ -0,0 +1,116 @@
+package com.juanjolmm.security.test.impl.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.api.StorageModeEnum;
+import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.api.service.UploadedFile;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.service.SecureFileUploaderHybrid;
+import com.juanjolmm.security.impl.service.SecureFileUploaderInMemory;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStreaming;
+import com.juanjolmm.security.test.impl.operator.DelegatingConfigurationLoader;
+
+/**
+ * Test class of the checksums computed while the files are uploaded.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class SecureFileUploaderChecksumTest {
+
+	private static final File STORAGE_FOLDER = new File("target/checksum-uploads");
+	private static final String WORD_CONTENT_TYPE = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+	private DelegatingConfigurationLoader configLoader;
+
+	@Before
+	public void init() {
+		FileUtils.deleteQuietly(STORAGE_FOLDER);
+		FileUtils.deleteQuietly(new File(STORAGE_FOLDER.getPath() + "_content"));
+		configLoader = newConfigLoader(StorageModeEnum.FILE);
+	}
+
+	private static DelegatingConfigurationLoader newConfigLoader(final StorageModeEnum storageMode) {
+		return new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return STORAGE_FOLDER.getPath();
+			}
+
+			@Override
+			public StorageModeEnum getStorageMode() {
+				return storageMode;
+			}
+
+			@Override
+			public List<String> getUploadChecksums() {
+				return Arrays.asList("CRC32", "SHA-256");
+			}
+		};
+	}
+
+	@Test
+	public void uploadChecksumsTest() throws SecureFileUploadException, IOException, NoSuchAlgorithmException {
+		final SecureFileUploader[] uploaders = { new SecureFileUploaderStored(configLoader),
+				new SecureFileUploaderInMemory(configLoader), new SecureFileUploaderStreaming(configLoader),
+				new SecureFileUploaderHybrid(configLoader) };
+		for (SecureFileUploader uploader : uploaders) {
+			assertChecksums(uploader.uploadFile(new FileInputStream("src/test/resources/files/word2.docx"),
+					"word2.docx", WORD_CONTENT_TYPE), "src/test/resources/files/word2.docx", WORD_CONTENT_TYPE);
+			assertChecksums(
+					uploader.uploadFile(new FileInputStream("src/test/resources/files/txt.txt"), "txt.txt",
+							"text/plain"),
+					"src/test/resources/files/txt.txt", "text/plain");
+		}
+	}
+
+	@Test
+	public void deduplicatedChecksumsTest() throws SecureFileUploadException, IOException, NoSuchAlgorithmException {
+		final DelegatingConfigurationLoader deduplicatedLoader = newConfigLoader(StorageModeEnum.DEDUPLICATED);
+		final SecureFileUploader uploader = new SecureFileUploaderInMemory(deduplicatedLoader);
+		for (int i = 0; i < 2; i++) {
+			assertChecksums(uploader.uploadFile(new FileInputStream("src/test/resources/files/real2.png"),
+					"real2.png", "image/png"), "src/test/resources/files/real2.png", "image/png");
+		}
+	}
+
+	private static void assertChecksums(final UploadedFile uploadedFile, final String sourceFile,
+			final String contentType) throws IOException, NoSuchAlgorithmException {
+		final byte[] content = FileUtils.readFileToByteArray(new File(sourceFile));
+		final CRC32 crc = new CRC32();
+		crc.update(content);
+		Assert.assertEquals(contentType, uploadedFile.getContentType());
+		Assert.assertEquals(content.length, uploadedFile.getSize());
+		Assert.assertEquals(content.length, uploadedFile.getFile().length());
+		Assert.assertEquals(String.format("%08x", crc.getValue()), uploadedFile.getChecksum("CRC32"));
+		Assert.assertEquals(
+				String.format("%064x", new BigInteger(1, MessageDigest.getInstance("SHA-256").digest(content))),
+				uploadedFile.getChecksum("SHA-256"));
+	}
+
+	@Test
+	public void noChecksumsTest() throws SecureFileUploadException, IOException {
+		final UploadedFile uploadedFile = new SecureFileUploaderStored(new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return STORAGE_FOLDER.getPath();
+			}
+		}).uploadFile(new FileInputStream("src/test/resources/files/txt.txt"), "txt.txt", "text/plain");
+		Assert.assertTrue(uploadedFile.getChecksums().isEmpty());
+		Assert.assertEquals(uploadedFile.getFile().length(), uploadedFile.getSize());
+	}
+}
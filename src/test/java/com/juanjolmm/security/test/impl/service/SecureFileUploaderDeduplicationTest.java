@@ -0,0 +1,144 @@
+package com.juanjolmm.security.test.impl.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.api.StorageModeEnum;
+import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.service.SecureFileUploaderHybrid;
+import com.juanjolmm.security.impl.service.SecureFileUploaderInMemory;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStreaming;
+import com.juanjolmm.security.test.impl.operator.DelegatingConfigurationLoader;
+
+/**
+ * Test class of the deduplicated storage mode.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class SecureFileUploaderDeduplicationTest {
+
+	private static final File STORAGE_FOLDER = new File("target/deduplicated-uploads");
+	private static final File CONTENT_FOLDER = new File("target/deduplicated-uploads_content");
+	private DelegatingConfigurationLoader configLoader;
+
+	@Before
+	public void init() {
+		FileUtils.deleteQuietly(STORAGE_FOLDER);
+		FileUtils.deleteQuietly(CONTENT_FOLDER);
+		configLoader = new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return STORAGE_FOLDER.getPath();
+			}
+
+			@Override
+			public StorageModeEnum getStorageMode() {
+				return StorageModeEnum.DEDUPLICATED;
+			}
+		};
+	}
+
+	@Test
+	public void deduplicatedUploadTest() throws SecureFileUploadException, IOException {
+		final SecureFileUploader[] uploaders = { new SecureFileUploaderStored(configLoader),
+				new SecureFileUploaderInMemory(configLoader), new SecureFileUploaderStreaming(configLoader),
+				new SecureFileUploaderHybrid(configLoader) };
+		final File firstFile = uploaders[0].upload(new FileInputStream("src/test/resources/files/real2.png"),
+				"real2.png", "image/png");
+		for (SecureFileUploader uploader : uploaders) {
+			final File file = uploader.upload(new FileInputStream("src/test/resources/files/real2.png"), "copy.png",
+					"image/png");
+			Assert.assertNotEquals(firstFile.getName(), file.getName());
+			Assert.assertTrue(Files.isSameFile(firstFile.toPath(), file.toPath()));
+		}
+		Assert.assertEquals(1, listContents().size());
+		Assert.assertEquals(5, uploaders[0].list().size());
+		Assert.assertEquals(firstFile.getAbsoluteFile(), uploaders[1].get(firstFile.getName()).getAbsoluteFile());
+
+		final File wordFile = uploaders[2].upload(new FileInputStream("src/test/resources/files/word2.docx"),
+				"word2.docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+		final File wordCopy = uploaders[2].upload(new FileInputStream("src/test/resources/files/word2.docx"),
+				"word2.docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+		Assert.assertTrue(Files.isSameFile(wordFile.toPath(), wordCopy.toPath()));
+		Assert.assertEquals(2, listContents().size());
+	}
+
+	@Test
+	public void knownContentRejectedTest() throws SecureFileUploadException, IOException {
+		final SecureFileUploader uploader = new SecureFileUploaderInMemory(configLoader);
+		uploader.upload(new FileInputStream("src/test/resources/files/real2.png"), "real2.png", "image/png");
+		try {
+			uploader.upload(new FileInputStream("src/test/resources/files/real2.png"), "real2.txt", "text/plain");
+			Assert.fail("The stored content is not a text file.");
+		} catch (SecureFileUploadException e) {
+			Assert.assertEquals(1, uploader.list().size());
+		}
+		try {
+			new SecureFileUploaderStored(configLoader).upload(
+					new FileInputStream("src/test/resources/files/real2.png"), "real2.txt", "text/plain");
+			Assert.fail("The stored content is not a text file.");
+		} catch (SecureFileUploadException e) {
+			Assert.assertEquals(1, uploader.list().size());
+		}
+	}
+
+	@Test
+	public void deleteTest() throws SecureFileUploadException, IOException {
+		final SecureFileUploader uploader = new SecureFileUploaderStored(configLoader);
+		final File firstFile = uploader.upload(new FileInputStream("src/test/resources/files/txt.txt"), "txt.txt",
+				"text/plain");
+		final File secondFile = uploader.upload(new FileInputStream("src/test/resources/files/txt.txt"), "txt.txt",
+				"text/plain");
+		Assert.assertEquals(1, listContents().size());
+		uploader.delete(firstFile.getName());
+		Assert.assertFalse(firstFile.exists());
+		Assert.assertEquals(1, listContents().size());
+		uploader.delete(secondFile.getName());
+		Assert.assertFalse(secondFile.exists());
+		Assert.assertEquals(0, listContents().size());
+		Assert.assertEquals(0, uploader.list().size());
+	}
+
+	@Test
+	public void deleteFileModeTest() throws SecureFileUploadException, IOException {
+		final SecureFileUploader uploader = new SecureFileUploaderStored(new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return STORAGE_FOLDER.getPath();
+			}
+		});
+		final File file = uploader.upload(new FileInputStream("src/test/resources/files/txt.txt"), "txt.txt",
+				"text/plain");
+		uploader.delete(file.getName());
+		Assert.assertFalse(file.exists());
+		Assert.assertFalse(CONTENT_FOLDER.exists());
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void deleteNotFoundTest() throws SecureFileUploadException, IOException {
+		new SecureFileUploaderStored(configLoader).delete("notfound.txt");
+	}
+
+	@Test(expected = SecureFileUploadException.class)
+	public void deleteInvalidNameTest() throws SecureFileUploadException, IOException {
+		new SecureFileUploaderStored(configLoader).delete("../pom.xml");
+	}
+
+	private static Collection<File> listContents() {
+		return CONTENT_FOLDER.exists() ? FileUtils.listFiles(CONTENT_FOLDER, null, true)
+				: Collections.<File>emptyList();
+	}
+}
@@ -0,0 +1,132 @@
+package com.juanjolmm.security.test.impl.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.api.UploadStageEnum;
+import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.service.HistogramUploadMetricsListener;
+import com.juanjolmm.security.impl.service.SecureFileUploaderHybrid;
+import com.juanjolmm.security.impl.service.SecureFileUploaderInMemory;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStreaming;
+import com.juanjolmm.security.impl.util.LatencyHistogram;
+import com.juanjolmm.security.test.impl.operator.DelegatingConfigurationLoader;
+
+/**
+ * Test class of the stage metrics of the uploads.
+ *
+ * @author jlopez1
+ *
+ */
+public final class SecureFileUploaderMetricsTest {
+
+	private static final File STORAGE_FOLDER = new File("target/metrics-uploads");
+	private DelegatingConfigurationLoader configLoader;
+
+	@Before
+	public void init() {
+		FileUtils.deleteQuietly(STORAGE_FOLDER);
+		configLoader = new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return STORAGE_FOLDER.getPath();
+			}
+		};
+	}
+
+	@Test
+	public void stageMetricsTest() throws SecureFileUploadException, IOException {
+		final SecureFileUploader[] uploaders = { new SecureFileUploaderStored(configLoader),
+				new SecureFileUploaderInMemory(configLoader), new SecureFileUploaderStreaming(configLoader),
+				new SecureFileUploaderHybrid(configLoader) };
+		final long size = new File("src/test/resources/files/real2.png").length();
+		for (SecureFileUploader uploader : uploaders) {
+			final HistogramUploadMetricsListener listener = new HistogramUploadMetricsListener();
+			uploader.setMetricsListener(listener);
+			uploader.upload(new FileInputStream("src/test/resources/files/real2.png"), "real2.png",
+					"image/png; charset=binary");
+			Assert.assertEquals(1, listener.getContentTypes().size());
+			for (UploadStageEnum stage : new UploadStageEnum[] { UploadStageEnum.REQUEST_CHECK,
+					UploadStageEnum.DETECTION, UploadStageEnum.COPY, UploadStageEnum.OWNER, UploadStageEnum.PUBLISH,
+					UploadStageEnum.TOTAL }) {
+				final LatencyHistogram histogram = listener.getHistogram(stage, "IMAGE/PNG");
+				Assert.assertEquals(uploader.getClass() + " " + stage, 1, histogram.getCount());
+				Assert.assertTrue(histogram.getValueAtPercentile(99) > 0);
+			}
+			Assert.assertEquals(size, listener.getHistogram(UploadStageEnum.COPY, "image/png").getTotalBytes());
+			Assert.assertEquals(size, listener.getHistogram(UploadStageEnum.TOTAL, "image/png").getTotalBytes());
+			final boolean buffered = uploader instanceof SecureFileUploaderInMemory
+					|| uploader instanceof SecureFileUploaderHybrid;
+			Assert.assertEquals(buffered ? 1 : 0,
+					listener.getHistogram(UploadStageEnum.BUFFER, "image/png").getCount());
+		}
+	}
+
+	@Test
+	public void rejectedUploadMetricsTest() throws IOException {
+		final SecureFileUploader uploader = new SecureFileUploaderStored(configLoader);
+		final HistogramUploadMetricsListener listener = new HistogramUploadMetricsListener();
+		uploader.setMetricsListener(listener);
+		try {
+			uploader.upload(new FileInputStream("src/test/resources/files/executable.bat"), "real2.png",
+					"image/png");
+			Assert.fail("Upload not rejected");
+		} catch (SecureFileUploadException e) {
+			Assert.assertEquals(1, listener.getHistogram(UploadStageEnum.COPY, "image/png").getCount());
+			Assert.assertEquals(0, listener.getHistogram(UploadStageEnum.TOTAL, "image/png").getCount());
+		}
+	}
+
+	@Test
+	public void disabledMetricsTest() throws SecureFileUploadException, IOException {
+		final SecureFileUploader uploader = new SecureFileUploaderStored(configLoader);
+		final HistogramUploadMetricsListener listener = new HistogramUploadMetricsListener();
+		uploader.setMetricsListener(listener);
+		uploader.setMetricsListener(null);
+		uploader.upload(new FileInputStream("src/test/resources/files/real2.png"), "real2.png", "image/png");
+		Assert.assertTrue(listener.getContentTypes().isEmpty());
+	}
+
+	@Test
+	public void contentTypesLimitTest() {
+		final HistogramUploadMetricsListener listener = new HistogramUploadMetricsListener();
+		for (int i = 0; i < HistogramUploadMetricsListener.MAX_CONTENT_TYPES * 2; i++) {
+			listener.onStage(UploadStageEnum.REQUEST_CHECK, "application/x-test" + i, 1000, 0);
+		}
+		listener.onStage(UploadStageEnum.REQUEST_CHECK, null, 1000, 0);
+		Assert.assertEquals(HistogramUploadMetricsListener.MAX_CONTENT_TYPES + 1, listener.getContentTypes().size());
+		Assert.assertEquals(HistogramUploadMetricsListener.MAX_CONTENT_TYPES + 1, listener
+				.getHistogram(UploadStageEnum.REQUEST_CHECK, HistogramUploadMetricsListener.OTHER_CONTENT_TYPE)
+				.getCount());
+	}
+
+	@Test
+	public void performanceTest() throws SecureFileUploadException, IOException {
+		final SecureFileUploader uploader = new SecureFileUploaderStored(configLoader);
+		final int iterations = 200;
+		long startTime = System.currentTimeMillis();
+		for (int i = 0; i < iterations; i++) {
+			uploader.upload(new FileInputStream("src/test/resources/files/real2.png"), "real2.png", "image/png");
+		}
+		System.out.println("Disabled metrics impl took: " + (System.currentTimeMillis() - startTime) + " ms.");
+		final HistogramUploadMetricsListener listener = new HistogramUploadMetricsListener();
+		uploader.setMetricsListener(listener);
+		startTime = System.currentTimeMillis();
+		for (int i = 0; i < iterations; i++) {
+			uploader.upload(new FileInputStream("src/test/resources/files/real2.png"), "real2.png", "image/png");
+		}
+		System.out.println("Histogram metrics impl took: " + (System.currentTimeMillis() - startTime) + " ms.");
+		final LatencyHistogram total = listener.getHistogram(UploadStageEnum.TOTAL, "image/png");
+		Assert.assertEquals(iterations, total.getCount());
+		System.out.println("Upload p50: " + total.getValueAtPercentile(50) + " ns, p99: "
+				+ total.getValueAtPercentile(99) + " ns, p999: " + total.getValueAtPercentile(99.9) + " ns.");
+	}
+}
@@ -0,0 +1,129 @@
+package com.juanjolmm.security.test.impl.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.service.SecureFileUploaderHybrid;
+import com.juanjolmm.security.impl.service.SecureFileUploaderInMemory;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStreaming;
+import com.juanjolmm.security.test.impl.operator.DelegatingConfigurationLoader;
+
+/**
+ * Test class of the rejection reasons and counters of the uploaders.
+ *
+ * @author jlopez1
+ *
+ */
+public final class SecureFileUploaderRejectionTest {
+
+	private static final File STORAGE_FOLDER = new File("target/rejection-uploads");
+	private static final long MAX_FILE_SIZE = 100 * 1024;
+	private DelegatingConfigurationLoader configLoader;
+
+	@Before
+	public void init() {
+		FileUtils.deleteQuietly(STORAGE_FOLDER);
+		configLoader = new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return STORAGE_FOLDER.getPath();
+			}
+
+			@Override
+			public long getMaxFileSize() {
+				return MAX_FILE_SIZE;
+			}
+		};
+	}
+
+	@Test
+	public void rejectionReasonsTest() throws IOException {
+		final SecureFileUploader[] uploaders = { new SecureFileUploaderStored(configLoader),
+				new SecureFileUploaderInMemory(configLoader), new SecureFileUploaderStreaming(configLoader),
+				new SecureFileUploaderHybrid(configLoader) };
+		for (SecureFileUploader uploader : uploaders) {
+			final String name = uploader.getClass().getSimpleName();
+			assertRejected(name, RejectionReasonEnum.CONTENT_TYPE, uploader,
+					new FileInputStream("src/test/resources/files/txt.txt"), "txt.txt", "application/x-unknown");
+			assertRejected(name, RejectionReasonEnum.EXTENSION, uploader,
+					new FileInputStream("src/test/resources/files/txt.txt"), "txt.exe", "text/plain");
+			assertRejected(name, RejectionReasonEnum.HEADER_MISMATCH, uploader,
+					new FileInputStream("src/test/resources/files/executable.bat"), "real2.png", "image/png");
+			assertRejected(name, RejectionReasonEnum.SIZE, uploader,
+					new ByteArrayInputStream(getTextContent(MAX_FILE_SIZE * 2)), "big.txt", "text/plain");
+			assertRejected(name, RejectionReasonEnum.INVALID_REQUEST, uploader, null, "txt.txt", "text/plain");
+			for (RejectionReasonEnum reason : new RejectionReasonEnum[] { RejectionReasonEnum.CONTENT_TYPE,
+					RejectionReasonEnum.EXTENSION, RejectionReasonEnum.HEADER_MISMATCH, RejectionReasonEnum.SIZE,
+					RejectionReasonEnum.INVALID_REQUEST }) {
+				Assert.assertEquals(name + " " + reason, 1, uploader.getRejectionCount(reason));
+			}
+			Assert.assertEquals(name, 0, uploader.getRejectionCount(RejectionReasonEnum.IO));
+		}
+		Assert.assertFalse(containsFiles(STORAGE_FOLDER));
+	}
+
+	@Test
+	public void stacklessPolicyRejectionTest() {
+		final SecureFileUploadException policyException = new SecureFileUploadException(
+				RejectionReasonEnum.HEADER_MISMATCH);
+		Assert.assertEquals(0, policyException.getStackTrace().length);
+		Assert.assertEquals("File not allowed", policyException.getMessage());
+		final IOException cause = new IOException("Disk full");
+		final SecureFileUploadException errorException = new SecureFileUploadException(RejectionReasonEnum.IO, cause);
+		Assert.assertTrue(errorException.getStackTrace().length > 0);
+		Assert.assertSame(cause, errorException.getCause());
+		Assert.assertEquals(RejectionReasonEnum.OTHER, new SecureFileUploadException().getReason());
+	}
+
+	@Test
+	public void stacklessReasonsTest() {
+		for (RejectionReasonEnum reason : RejectionReasonEnum.values()) {
+			final SecureFileUploadException exception = new SecureFileUploadException(reason);
+			Assert.assertEquals(reason.toString(), reason.isPolicy(), exception.getStackTrace().length == 0);
+			Assert.assertEquals(reason, exception.getReason());
+		}
+	}
+
+	private static void assertRejected(final String name, final RejectionReasonEnum reason,
+			final SecureFileUploader uploader, final InputStream inputStream, final String fileName,
+			final String requestContentType) {
+		try {
+			uploader.upload(inputStream, fileName, requestContentType);
+			Assert.fail(name + " " + reason + " upload not rejected");
+		} catch (SecureFileUploadException e) {
+			Assert.assertEquals(name, reason, e.getReason());
+			Assert.assertEquals(name, 0, e.getStackTrace().length);
+		}
+	}
+
+	private static byte[] getTextContent(final long size) {
+		final byte[] content = new byte[(int) size];
+		Arrays.fill(content, (byte) 'a');
+		return content;
+	}
+
+	private static boolean containsFiles(final File folder) {
+		final File[] files = folder.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (file.isFile() || containsFiles(file)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
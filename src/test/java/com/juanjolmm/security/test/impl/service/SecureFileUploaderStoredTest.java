@@ -5,12 +5,18 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.juanjolmm.security.api.FileNameModeEnum;
 import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.exception.RejectionReasonEnum;
 import com.juanjolmm.security.exception.SecureFileUploadException;
 import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
+import com.juanjolmm.security.impl.util.FileNameValidator;
+import com.juanjolmm.security.test.impl.operator.DelegatingConfigurationLoader;
 
 /**
  * Test class of SecureFileUploaderStored.
@@ -50,6 +56,58 @@ public final class SecureFileUploaderStoredTest {
         System.out.println("Stored impl took: " + ((stopMilliSecs - startMilliSecs)) + " ms.");
 	}
 
+	@Test
+	public void rejectedFileNotPublishedTest() throws FileNotFoundException {
+		final File storageFolder = new File("target/staged-uploads");
+		FileUtils.deleteQuietly(storageFolder);
+		final SecureFileUploader stagedUploader = new SecureFileUploaderStored(new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return storageFolder.getPath();
+			}
+		});
+		try {
+			stagedUploader.upload(new FileInputStream("src/test/resources/files/fakeWord.doc"), "fakeWord.doc",
+					"application/msword");
+			Assert.fail("The file is not a word document.");
+		} catch (SecureFileUploadException e) {
+			Assert.assertTrue(stagedUploader.list().isEmpty());
+			Assert.assertEquals(0, new File("target/staged-uploads_staging").list().length);
+		}
+	}
+
+	@Test
+	public void deleteLongOriginalNameTest() throws SecureFileUploadException, FileNotFoundException {
+		final File storageFolder = new File("target/original-uploads");
+		FileUtils.deleteQuietly(storageFolder);
+		final SecureFileUploader originalUploader = new SecureFileUploaderStored(new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return storageFolder.getPath();
+			}
+
+			@Override
+			public FileNameModeEnum getFileNameMode() {
+				return FileNameModeEnum.ORIGINAL;
+			}
+		});
+		// The stored name adds the upload time to the 40 characters of the
+		// base name, so it is longer than the allowed uploaded names.
+		final File newFile = originalUploader.upload(new FileInputStream("src/test/resources/files/txt.txt"),
+				"abcdefghijabcdefghijabcdefghijabcdefghij.txt", "text/plain");
+		Assert.assertFalse(FileNameValidator.isValid(newFile.getName()));
+		originalUploader.delete(newFile.getName());
+		Assert.assertFalse(newFile.exists());
+		for (String fileName : new String[] { "", "..", "../" + newFile.getName(), "a\\b.txt" }) {
+			try {
+				originalUploader.delete(fileName);
+				Assert.fail("The file name is not rejected: " + fileName);
+			} catch (SecureFileUploadException e) {
+				Assert.assertEquals(RejectionReasonEnum.FILE_NAME, e.getReason());
+			}
+		}
+	}
+
 	@Test
 	public void uploadAndStoreFileTest() throws SecureFileUploadException, FileNotFoundException {
 		final String initialFileName = "real.png";
@@ -0,0 +1,145 @@
+package com.juanjolmm.security.test.impl.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.api.operator.ContentTypeDetector;
+import com.juanjolmm.security.api.service.SecureFileUploader;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.operator.TikaContentTypeDetector;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStreaming;
+
+/**
+ * Test class of SecureFileUploaderStreaming.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class SecureFileUploaderStreamingTest {
+
+	private SecureFileUploader fileUploader;
+
+	@Before
+	public void init() {
+		fileUploader = new SecureFileUploaderStreaming();
+	}
+	
+	@Test
+	public void wordUploadAndStoreFileTest() throws SecureFileUploadException, FileNotFoundException {
+		final String initialFileName = "word.doc";
+		final String requestContentType = "application/msword";
+		final InputStream inputStream = new FileInputStream("src/test/resources/files/word.doc");
+		long startMilliSecs = System.currentTimeMillis();
+		final File newFile = fileUploader.upload(inputStream, initialFileName, requestContentType);
+		long stopMilliSecs = System.currentTimeMillis();
+        System.out.println("Streaming impl took: " + ((stopMilliSecs - startMilliSecs)) + " ms.");
+
+	}
+	
+	@Test(expected = SecureFileUploadException.class)
+	public void fakeWordUploadAndStoreFileTest() throws SecureFileUploadException, FileNotFoundException {
+		final String initialFileName = "fakeWord.doc";
+		final String requestContentType = "application/msword";
+		final InputStream inputStream = new FileInputStream("src/test/resources/files/fakeWord.doc");
+		long startMilliSecs = System.currentTimeMillis();
+		final File newFile = fileUploader.upload(inputStream, initialFileName, requestContentType);
+		long stopMilliSecs = System.currentTimeMillis();
+        System.out.println("Streaming impl took: " + ((stopMilliSecs - startMilliSecs)) + " ms.");
+	}
+
+	@Test
+	public void uploadAndStoreFileTest() throws SecureFileUploadException, FileNotFoundException {
+		final String initialFileName = "real.png";
+		final String requestContentType = "image/png";
+		final InputStream inputStream = new FileInputStream("src/test/resources/files/real.png");
+		long startMilliSecs = System.currentTimeMillis();
+		final File newFile = fileUploader.upload(inputStream, initialFileName, requestContentType);
+		long stopMilliSecs = System.currentTimeMillis();
+        System.out.println("Streaming impl took: " + ((stopMilliSecs - startMilliSecs)) + " ms.");
+	}
+
+	@Test
+	public void validImageUploadAndStoreFileTest() throws SecureFileUploadException, FileNotFoundException {
+		final String initialFileName = "Tulips.jpg";
+		final String requestContentType = "image/jpeg";
+		final InputStream inputStream = new FileInputStream("src/test/resources/files/Tulips.jpg");
+		long startMilliSecs = System.currentTimeMillis();
+		final File newFile = fileUploader.upload(inputStream, initialFileName, requestContentType);
+		long stopMilliSecs = System.currentTimeMillis();
+        System.out.println("Streaming impl took: " + ((stopMilliSecs - startMilliSecs)) + " ms.");
+	}
+
+	@Test(expected = SecureFileUploadException.class)
+	public void notRealPNGTUploadAndStoreFileTest() throws SecureFileUploadException, FileNotFoundException {
+		final String initialFileName = "Tulips.png";
+		final String requestContentType = "image/png";
+		final InputStream inputStream = new FileInputStream("src/test/resources/files/TulisFakePNG.png");
+		long startMilliSecs = System.currentTimeMillis();
+		final File newFile = fileUploader.upload(inputStream, initialFileName, requestContentType);
+		long stopMilliSecs = System.currentTimeMillis();
+        System.out.println("Streaming impl took: " + ((stopMilliSecs - startMilliSecs)) + " ms.");
+	}
+
+	@Test(expected = SecureFileUploadException.class)
+	public void noEXTUploadAndStoreFileTest() throws SecureFileUploadException, FileNotFoundException {
+		final String initialFileName = "real2";
+		final String requestContentType = "image/png";
+		final InputStream inputStream = new FileInputStream("src/test/resources/files/real2.png");
+		long startMilliSecs = System.currentTimeMillis();
+		final File newFile = fileUploader.upload(inputStream, initialFileName, requestContentType);
+		long stopMilliSecs = System.currentTimeMillis();
+        System.out.println("Streaming impl took: " + ((stopMilliSecs - startMilliSecs)) + " ms.");
+	}
+
+	@Test
+	public void docxUploadAndStoreFileTest() throws SecureFileUploadException, FileNotFoundException {
+		final String initialFileName = "word2.docx";
+		final String requestContentType = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+		final InputStream inputStream = new FileInputStream("src/test/resources/files/word2.docx");
+		final File newFile = fileUploader.upload(inputStream, initialFileName, requestContentType);
+		Assert.assertEquals(new File("src/test/resources/files/word2.docx").length(), newFile.length());
+	}
+
+	@Test
+	public void sameResultAsStoredTest() throws IOException {
+		final SecureFileUploader storedUploader = new SecureFileUploaderStored();
+		final ContentTypeDetector detector = TikaContentTypeDetector.getDefault();
+		// The prefix must be detected as the whole file, so both uploaders
+		// accept and reject the same files.
+		for (File file : new File("src/test/resources/files").listFiles()) {
+			final String requestContentType = detector.detect(new FileInputStream(file));
+			Assert.assertEquals(file.getName(), upload(storedUploader, file, requestContentType),
+					upload(fileUploader, file, requestContentType));
+		}
+	}
+
+	private static String upload(final SecureFileUploader uploader, final File file, final String requestContentType)
+			throws IOException {
+		try {
+			return uploader.uploadFile(new FileInputStream(file), file.getName(), requestContentType).getContentType();
+		} catch (SecureFileUploadException e) {
+			return "Rejected " + e.getReason();
+		}
+	}
+
+	@Test
+	public void rejectedAfterPrefixTest() throws FileNotFoundException {
+		final CountingInputStream inputStream = new CountingInputStream(
+				new FileInputStream("src/test/resources/files/TulisFakePNG.png"));
+		try {
+			fileUploader.upload(inputStream, "Tulips.png", "image/png");
+			Assert.fail("Fake PNG should be rejected");
+		} catch (SecureFileUploadException e) {
+			Assert.assertTrue(inputStream.getByteCount() <= TikaContentTypeDetector.getMinLength());
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.juanjolmm.security.test.impl.service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.juanjolmm.security.api.ContentTypeWhiteList;
+import com.juanjolmm.security.api.service.FileMetadata;
+import com.juanjolmm.security.exception.SecureFileUploadException;
+import com.juanjolmm.security.impl.operator.SecureFileOperatorImpl;
+import com.juanjolmm.security.impl.service.SecureFileUploaderStored;
+import com.juanjolmm.security.impl.util.ValidationCache;
+import com.juanjolmm.security.test.impl.operator.DelegatingConfigurationLoader;
+
+/**
+ * Test class of the validations cached by get() and stored with the files.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class SecureFileUploaderValidationCacheTest {
+
+	private static final File STORAGE_FOLDER = new File("target/validation-cache-uploads");
+	private volatile ContentTypeWhiteList whiteList;
+	private DelegatingConfigurationLoader configLoader;
+
+	@Before
+	public void init() {
+		FileUtils.deleteQuietly(STORAGE_FOLDER);
+		configLoader = new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return STORAGE_FOLDER.getPath();
+			}
+
+			@Override
+			public ContentTypeWhiteList getWhiteList() {
+				return whiteList != null ? whiteList : super.getWhiteList();
+			}
+		};
+	}
+
+	@Test
+	public void cachedGetTest() throws SecureFileUploadException, IOException {
+		final SecureFileUploaderStored uploader = new SecureFileUploaderStored(configLoader);
+		final File file = uploader.upload(new FileInputStream("src/test/resources/files/txt.txt"), "txt.txt",
+				"text/plain");
+		final ValidationCache cache = uploader.getValidationCache();
+		Assert.assertNotNull(cache);
+		Assert.assertEquals(file.getAbsoluteFile(), uploader.get(file.getName()).getAbsoluteFile());
+		Assert.assertEquals(file.getAbsoluteFile(), uploader.get(file.getName()).getAbsoluteFile());
+		Assert.assertEquals(1, cache.getMissCount());
+		Assert.assertEquals(1, cache.getHitCount());
+
+		// A modified file is detected again.
+		FileUtils.writeStringToFile(file, "Another text content", "UTF-8", true);
+		Assert.assertTrue(file.setLastModified(file.lastModified() + 2000));
+		uploader.get(file.getName());
+		Assert.assertEquals(2, cache.getMissCount());
+		Assert.assertEquals(1, cache.getHitCount());
+	}
+
+	@Test
+	public void whiteListChangeTest() throws SecureFileUploadException, IOException {
+		final SecureFileUploaderStored uploader = new SecureFileUploaderStored(configLoader);
+		final File file = uploader.upload(new FileInputStream("src/test/resources/files/txt.txt"), "txt.txt",
+				"text/plain");
+		uploader.get(file.getName());
+		uploader.get(file.getName());
+		Assert.assertEquals(1, uploader.getValidationCache().getHitCount());
+
+		final Map<String, List<String>> contentTypes = new HashMap<String, List<String>>();
+		contentTypes.put("image/png", Arrays.asList("png"));
+		whiteList = new ContentTypeWhiteList(contentTypes);
+		try {
+			uploader.get(file.getName());
+			Assert.fail("The file is not allowed by the new white list.");
+		} catch (SecureFileUploadException e) {
+			Assert.assertEquals(2, uploader.getValidationCache().getMissCount());
+		}
+	}
+
+	@Test
+	public void disabledCacheTest() throws SecureFileUploadException, IOException {
+		final SecureFileUploaderStored uploader = new SecureFileUploaderStored(new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return STORAGE_FOLDER.getPath();
+			}
+
+			@Override
+			public int getValidationCacheSize() {
+				return 0;
+			}
+		});
+		final File file = uploader.upload(new FileInputStream("src/test/resources/files/txt.txt"), "txt.txt",
+				"text/plain");
+		Assert.assertNull(uploader.getValidationCache());
+		Assert.assertEquals(file.getAbsoluteFile(), uploader.get(file.getName()).getAbsoluteFile());
+	}
+
+	@Test
+	public void storedMetadataTest() throws SecureFileUploadException, IOException {
+		final SecureFileUploaderStored uploader = new SecureFileUploaderStored(new DelegatingConfigurationLoader() {
+			@Override
+			public String getStorageFolder() {
+				return STORAGE_FOLDER.getPath();
+			}
+
+			@Override
+			public int getValidationCacheSize() {
+				return 0;
+			}
+		});
+		final File file = uploader.upload(new FileInputStream("src/test/resources/files/txt.txt"), "txt.txt",
+				"text/plain");
+		final SecureFileOperatorImpl fileOperator = new SecureFileOperatorImpl(configLoader);
+		final FileMetadata metadata = fileOperator.getFileMetadata(file);
+		Assume.assumeNotNull(metadata);
+		Assert.assertEquals("text/plain", metadata.getContentType());
+		Assert.assertEquals(configLoader.getWhiteList().getVersion(), metadata.getWhiteListVersion());
+
+		// The stored content type is trusted while the file does not change.
+		fileOperator.setFileMetadata(file, "image/png", metadata.getWhiteListVersion(), null);
+		try {
+			uploader.get(file.getName());
+			Assert.fail("The stored content type does not match the extension.");
+		} catch (SecureFileUploadException e) {
+			Assert.assertEquals("image/png", fileOperator.getFileMetadata(file).getContentType());
+		}
+		Assert.assertTrue(file.setLastModified(file.lastModified() + 2000));
+		Assert.assertEquals(file.getAbsoluteFile(), uploader.get(file.getName()).getAbsoluteFile());
+		Assert.assertEquals("text/plain", fileOperator.getFileMetadata(file).getContentType());
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void notFoundTest() throws SecureFileUploadException, IOException {
+		new SecureFileUploaderStored(configLoader).get("notfound.txt");
+	}
+
+	@Test
+	public void repeatedGetTest() throws SecureFileUploadException, IOException {
+		final SecureFileUploaderStored uploader = new SecureFileUploaderStored(configLoader);
+		final File file = uploader.upload(new FileInputStream("src/test/resources/files/real2.png"), "real2.png",
+				"image/png");
+		final ValidationCache cache = uploader.getValidationCache();
+		final File uncachedFile = uploader.get(file.getName());
+		final int gets = 100;
+		for (int i = 0; i < gets; i++) {
+			Assert.assertEquals(uncachedFile, uploader.get(file.getName()));
+		}
+		Assert.assertEquals(1, cache.getMissCount());
+		Assert.assertEquals(gets, cache.getHitCount());
+		// The cached result is the content type detected by the first get.
+		Assert.assertEquals("image/png", cache.get(uncachedFile.getAbsolutePath(), uncachedFile.length(),
+				uncachedFile.lastModified(), configLoader.getWhiteList().getVersion()));
+	}
+}
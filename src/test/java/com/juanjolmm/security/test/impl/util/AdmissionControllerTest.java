@@ -0,0 +1,83 @@
+package com.juanjolmm.security.test.impl.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.juanjolmm.security.impl.util.AdmissionController;
+
+/**
+ * Test class of AdmissionController.
+ *
+ * @author jlopez1
+ *
+ */
+public final class AdmissionControllerTest {
+
+	@Test
+	public void concurrencyLimitTest() {
+		final AdmissionController controller = new AdmissionController(2, 0, 0);
+		Assert.assertTrue(controller.tryAcquire());
+		Assert.assertTrue(controller.tryAcquire());
+		Assert.assertEquals(2, controller.getActiveCount());
+		Assert.assertFalse(controller.tryAcquire());
+		Assert.assertEquals(1, controller.getRejectedCount());
+		controller.release();
+		Assert.assertTrue(controller.tryAcquire());
+		controller.release();
+		controller.release();
+		Assert.assertEquals(0, controller.getActiveCount());
+	}
+
+	@Test
+	public void queueTimeoutTest() {
+		final AdmissionController controller = new AdmissionController(1, 1, 50);
+		Assert.assertTrue(controller.tryAcquire());
+		final long startTime = System.currentTimeMillis();
+		Assert.assertFalse(controller.tryAcquire());
+		Assert.assertTrue(System.currentTimeMillis() - startTime >= 40);
+		Assert.assertEquals(0, controller.getQueuedCount());
+		Assert.assertEquals(1, controller.getRejectedCount());
+	}
+
+	@Test
+	public void queuedAdmissionTest() throws Exception {
+		final AdmissionController controller = new AdmissionController(1, 1, 10000);
+		Assert.assertTrue(controller.tryAcquire());
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final CountDownLatch started = new CountDownLatch(1);
+			final Future<Boolean> queued = executor.submit(() -> {
+				started.countDown();
+				return controller.tryAcquire();
+			});
+			started.await();
+			final long deadline = System.currentTimeMillis() + 10000;
+			while (controller.getQueuedCount() == 0 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(5);
+			}
+			Assert.assertEquals(1, controller.getQueuedCount());
+			// The queue is full, so new operations are rejected without
+			// waiting.
+			final long startTime = System.currentTimeMillis();
+			Assert.assertFalse(controller.tryAcquire());
+			Assert.assertTrue(System.currentTimeMillis() - startTime < 5000);
+			controller.release();
+			Assert.assertTrue(queued.get(10, TimeUnit.SECONDS));
+			Assert.assertEquals(1, controller.getActiveCount());
+			Assert.assertEquals(1, controller.getRejectedCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidLimitTest() {
+		new AdmissionController(0, 10, 1000);
+	}
+}
@@ -0,0 +1,65 @@
+package com.juanjolmm.security.test.impl.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.juanjolmm.security.impl.util.Checksums;
+
+/**
+ * Test class of Checksums.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class ChecksumsTest {
+
+	private static final byte[] CHECK_BYTES = "123456789".getBytes(StandardCharsets.US_ASCII);
+
+	@Test
+	public void knownValuesTest() {
+		final Checksums checksums = new Checksums(Arrays.asList(Checksums.CRC32, Checksums.SHA_256));
+		checksums.update(CHECK_BYTES, 0, 4);
+		checksums.update(CHECK_BYTES, 4, CHECK_BYTES.length - 4);
+		final Map<String, String> values = checksums.getValues();
+		Assert.assertEquals(Arrays.asList(Checksums.CRC32, Checksums.SHA_256), Arrays.asList(
+				values.keySet().toArray(new String[0])));
+		Assert.assertEquals("cbf43926", values.get(Checksums.CRC32));
+		Assert.assertEquals("15e2b0d3c33891ebb0f1ef609ec419420c20e320ce94c65fbc8c3312448eb225",
+				values.get(Checksums.SHA_256));
+	}
+
+	@Test
+	public void crc32cTest() {
+		Assume.assumeTrue(Checksums.isSupported(Checksums.CRC32C));
+		final Checksums checksums = new Checksums(Collections.singletonList(Checksums.CRC32C));
+		checksums.update(CHECK_BYTES, 0, CHECK_BYTES.length);
+		Assert.assertEquals("e3069283", checksums.getValues().get(Checksums.CRC32C));
+	}
+
+	@Test
+	public void supportedTest() {
+		Assert.assertTrue(Checksums.isSupported("SHA-512"));
+		Assert.assertFalse(Checksums.isSupported("NOT-AN-ALGORITHM"));
+		Assert.assertEquals(Arrays.asList(Checksums.SHA_256, Checksums.CRC32), Checksums
+				.getSupported(Arrays.asList(Checksums.SHA_256, "NOT-AN-ALGORITHM", Checksums.CRC32, Checksums.SHA_256)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unsupportedTest() {
+		new Checksums(Collections.singletonList("NOT-AN-ALGORITHM"));
+	}
+
+	@Test
+	public void emptyTest() {
+		final Checksums checksums = new Checksums(Collections.<String>emptyList());
+		checksums.update(CHECK_BYTES, 0, CHECK_BYTES.length);
+		Assert.assertTrue(checksums.isEmpty());
+		Assert.assertTrue(checksums.getValues().isEmpty());
+	}
+}
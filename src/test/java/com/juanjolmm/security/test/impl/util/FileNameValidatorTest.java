@@ -0,0 +1,122 @@
+package com.juanjolmm.security.test.impl.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.io.FilenameUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import com.juanjolmm.security.impl.util.FileNameValidator;
+
+/**
+ * Test class of FileNameValidator. The results are compared with the regular
+ * expressions previously used by SecureFileUtils.
+ *
+ * @author jlopez1
+ *
+ */
+public final class FileNameValidatorTest {
+
+	private static final String UTF8_FILE_NAME_REGEX = "(?u)[\\p{L}\\p{N}\\p{Zs}\\p{Pd}\\p{Pc}]{1,50}";
+	private static final String UTF8_FILE_EXTENSION_REGEX = "(?u)[\\p{L}\\p{N}]{1,4}";
+	private static final String[] FILE_NAME_PARTS = { "a", "Z", "ñ", "ß", "語", "ǅ", "ʰ", "7", "٣", "Ⅻ", "½", " ",
+			"\u00a0", "\u3000", "-", "\u2014", "_", "\u203f", ".", "/", "\\", ":", "*", "?", "\t", "\u0000", "\u00ad",
+			"\u0301", "😀", "𝐀", "𝟙", "\ud800", "\udc00", "%", "$" };
+	private static final List<String> FILE_NAMES = Arrays.asList("initialName.txt", "file.TXT", "file.docx",
+			"file.jpeg", "file.tar.gz", "file", "file.", ".txt", "..txt", "file..txt", "file.t-t", "file.t t",
+			"file.12345", "file.1234", "wwwwwwwwwwwwwwwwwwwwwwwwwwwwww.1111", "path/to/file.txt", "C:\\path\\file.txt",
+			"path.dir/file", "path.dir\\file", "/file.txt", "file/.txt", "名前.テキスト", "наименование файла.пдф",
+			"file name_with-dash.png", "file\u2014name.png", "file\u0000.txt", "file.t\u0000t", "pa\u0000th/file.txt",
+			"😀😀😀.😀😀😀😀", "😀😀😀.😀😀😀😀😀", "file.𝐀", "file\ud800.txt", "file.\udc00", "a.b.c.d.e", "");
+
+	@Test
+	public void equivalenceTest() {
+		final List<String> fileNames = new ArrayList<String>(FILE_NAMES);
+		fileNames.add(repeat("n", 50) + ".txt");
+		fileNames.add(repeat("n", 51) + ".txt");
+		fileNames.add(repeat("😀", 50) + ".txt");
+		fileNames.add(repeat("😀", 51) + ".txt");
+		final Random random = new Random(20170101L);
+		for (int i = 0; i < 100000; i++) {
+			final StringBuilder fileName = new StringBuilder();
+			final int parts = random.nextInt(12);
+			for (int j = 0; j < parts; j++) {
+				fileName.append(FILE_NAME_PARTS[random.nextInt(FILE_NAME_PARTS.length)]);
+			}
+			fileNames.add(fileName.toString());
+		}
+		for (final String fileName : fileNames) {
+			assertEquivalent(fileName);
+		}
+	}
+
+	private static void assertEquivalent(final String fileName) {
+		if (fileName.indexOf('\u0000') >= 0) {
+			// FilenameUtils throws IllegalArgumentException for null bytes
+			Assert.assertEquals(fileName, FileNameValidator.INVALID, FileNameValidator.validateExtension(fileName));
+			Assert.assertFalse(fileName, FileNameValidator.isValid(fileName));
+			return;
+		}
+		final String extension = FilenameUtils.getExtension(fileName);
+		final boolean validExtension = extension.matches(UTF8_FILE_EXTENSION_REGEX);
+		final String baseName = FilenameUtils.getBaseName(fileName);
+		final boolean validName = validExtension && baseName.matches(UTF8_FILE_NAME_REGEX);
+
+		final long extensionValidation = FileNameValidator.validateExtension(fileName);
+		Assert.assertEquals(fileName, validExtension, extensionValidation != FileNameValidator.INVALID);
+		if (validExtension) {
+			Assert.assertEquals(fileName, extension, FileNameValidator.getExtension(fileName, extensionValidation));
+		}
+		final long validation = FileNameValidator.validate(fileName);
+		Assert.assertEquals(fileName, validName, validation != FileNameValidator.INVALID);
+		Assert.assertEquals(fileName, validName, FileNameValidator.isValid(fileName));
+		if (validName) {
+			Assert.assertEquals(fileName, baseName, FileNameValidator.getBaseName(fileName, validation));
+			Assert.assertEquals(fileName, extension, FileNameValidator.getExtension(fileName, validation));
+		}
+	}
+
+	@Test
+	public void nullFileNameTest() {
+		Assert.assertFalse(FileNameValidator.isValid(null));
+		Assert.assertEquals(FileNameValidator.INVALID, FileNameValidator.validateExtension(null));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidValidationTest() {
+		FileNameValidator.getExtension("file", FileNameValidator.validate("file"));
+	}
+
+	@Test
+	public void allocationFreeValidationTest() {
+		final java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+		final com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		final long threadId = Thread.currentThread().getId();
+		final String fileName = "path/to/наименование файла_2017-01.docx";
+		boolean valid = true;
+		for (int i = 0; i < 20000; i++) {
+			valid &= FileNameValidator.isValid(fileName);
+		}
+		final long before = allocationBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < 20000; i++) {
+			valid &= FileNameValidator.isValid(fileName);
+		}
+		final long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+		Assert.assertTrue(valid);
+		Assert.assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+	}
+
+	private static String repeat(final String value, final int times) {
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < times; i++) {
+			builder.append(value);
+		}
+		return builder.toString();
+	}
+}
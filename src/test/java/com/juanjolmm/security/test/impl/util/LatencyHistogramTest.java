@@ -0,0 +1,76 @@
+package com.juanjolmm.security.test.impl.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.juanjolmm.security.impl.util.LatencyHistogram;
+
+/**
+ * Test class of LatencyHistogram.
+ *
+ * @author jlopez1
+ *
+ */
+public final class LatencyHistogramTest {
+
+	@Test
+	public void percentilesTest() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 100000; value++) {
+			histogram.record(value, 10);
+		}
+		Assert.assertEquals(100000, histogram.getCount());
+		Assert.assertEquals(1000000, histogram.getTotalBytes());
+		Assert.assertEquals(100000L * 100001 / 2, histogram.getTotalNanos());
+		assertPercentile(50000, histogram.getValueAtPercentile(50));
+		assertPercentile(99000, histogram.getValueAtPercentile(99));
+		assertPercentile(99900, histogram.getValueAtPercentile(99.9));
+		assertPercentile(100000, histogram.getValueAtPercentile(100));
+		Assert.assertEquals(1, histogram.getValueAtPercentile(0));
+	}
+
+	@Test
+	public void extremeValuesTest() {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+		histogram.record(-5, 0);
+		Assert.assertEquals(0, histogram.getValueAtPercentile(100));
+		histogram.record(Long.MAX_VALUE, 0);
+		Assert.assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void concurrentRecordTest() throws InterruptedException, ExecutionException {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		final ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			final List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int i = 0; i < 8; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < 100000; j++) {
+						histogram.record(1000, 1);
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		Assert.assertEquals(800000, histogram.getCount());
+		assertPercentile(1000, histogram.getValueAtPercentile(50));
+	}
+
+	private static void assertPercentile(final long expected, final long actual) {
+		Assert.assertTrue("Expected " + expected + " but was " + actual,
+				actual >= expected && actual <= expected * 1.125);
+	}
+}
@@ -0,0 +1,41 @@
+package com.juanjolmm.security.test.impl.util;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.juanjolmm.security.impl.operator.UlidFileNameGenerator;
+import com.juanjolmm.security.impl.util.StorageShards;
+
+/**
+ * Test class of StorageShards.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class StorageShardsTest {
+
+	@Test
+	public void getShardPathTest() {
+		Assert.assertEquals("", StorageShards.getShardPath("file.txt", 0));
+		Assert.assertTrue(StorageShards.getShardPath("file.txt", 1).matches("[0-9a-f]{2}"));
+		Assert.assertTrue(StorageShards.getShardPath("file.txt", 2).matches("[0-9a-f]{2}/[0-9a-f]{2}"));
+		Assert.assertTrue(StorageShards.getShardPath("file.txt", 9).matches("([0-9a-f]{2}/){3}[0-9a-f]{2}"));
+		Assert.assertEquals(StorageShards.getShardPath("file.txt", 2), StorageShards.getShardPath("file.txt", 2));
+		Assert.assertTrue(StorageShards.getShardPath("file.txt", 2)
+				.startsWith(StorageShards.getShardPath("file.txt", 1)));
+	}
+
+	@Test
+	public void distributionTest() {
+		final Set<String> shards = new HashSet<String>();
+		final long timestamp = System.currentTimeMillis();
+		for (int i = 0; i < 10000; i++) {
+			// Names created in the same millisecond share the time prefix.
+			shards.add(StorageShards.getShardPath(UlidFileNameGenerator.generateUlid(timestamp) + ".txt", 1));
+		}
+		Assert.assertEquals(256, shards.size());
+	}
+}
@@ -0,0 +1,61 @@
+package com.juanjolmm.security.test.impl.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.juanjolmm.security.impl.util.ThresholdBuffer;
+
+/**
+ * Test class of ThresholdBuffer.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class ThresholdBufferTest {
+
+	@Test
+	public void inMemoryBufferTest() throws IOException {
+		final byte[] content = randomBytes(1000);
+		try (ThresholdBuffer buffer = ThresholdBuffer.read(new ByteArrayInputStream(content), 1024, 4096)) {
+			Assert.assertTrue(buffer.isInMemory());
+			Assert.assertEquals(content.length, buffer.size());
+			Assert.assertArrayEquals(content, IOUtils.toByteArray(buffer.newInputStream()));
+			Assert.assertArrayEquals(content, IOUtils.toByteArray(buffer.newInputStream()));
+		}
+	}
+
+	@Test
+	public void exactThresholdBufferTest() throws IOException {
+		final byte[] content = randomBytes(1024);
+		try (ThresholdBuffer buffer = ThresholdBuffer.read(new ByteArrayInputStream(content), 1024, 4096)) {
+			Assert.assertTrue(buffer.isInMemory());
+			Assert.assertArrayEquals(content, IOUtils.toByteArray(buffer.newInputStream()));
+		}
+	}
+
+	@Test
+	public void spilledBufferTest() throws IOException {
+		final byte[] content = randomBytes(3000);
+		try (ThresholdBuffer buffer = ThresholdBuffer.read(new ByteArrayInputStream(content), 1024, 4096)) {
+			Assert.assertFalse(buffer.isInMemory());
+			Assert.assertEquals(content.length, buffer.size());
+			Assert.assertArrayEquals(content, IOUtils.toByteArray(buffer.newInputStream()));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void maxSizeBufferTest() throws IOException {
+		ThresholdBuffer.read(new ByteArrayInputStream(randomBytes(5000)), 1024, 4096);
+	}
+
+	private byte[] randomBytes(final int size) {
+		final byte[] bytes = new byte[size];
+		new Random(size).nextBytes(bytes);
+		return bytes;
+	}
+}
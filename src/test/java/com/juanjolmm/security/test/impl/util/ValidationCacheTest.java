@@ -0,0 +1,70 @@
+package com.juanjolmm.security.test.impl.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.juanjolmm.security.impl.util.ValidationCache;
+
+/**
+ * Test class of ValidationCache.
+ * 
+ * @author jlopez1
+ *
+ */
+public final class ValidationCacheTest {
+
+	@Test
+	public void hitAndMissTest() {
+		final ValidationCache cache = new ValidationCache(100);
+		Assert.assertNull(cache.get("/files/a.txt", 10, 1000, "v1"));
+		cache.put("/files/a.txt", 10, 1000, "v1", "text/plain");
+		Assert.assertEquals("text/plain", cache.get("/files/a.txt", 10, 1000, "v1"));
+		Assert.assertEquals(1, cache.getHitCount());
+		Assert.assertEquals(1, cache.getMissCount());
+		Assert.assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void changedFileTest() {
+		final ValidationCache cache = new ValidationCache(100);
+		cache.put("/files/a.txt", 10, 1000, "v1", "text/plain");
+		Assert.assertNull(cache.get("/files/a.txt", 11, 1000, "v1"));
+		cache.put("/files/a.txt", 10, 1000, "v1", "text/plain");
+		Assert.assertNull(cache.get("/files/a.txt", 10, 1001, "v1"));
+		Assert.assertEquals(0, cache.size());
+		Assert.assertEquals(2, cache.getMissCount());
+	}
+
+	@Test
+	public void whiteListChangeTest() {
+		final ValidationCache cache = new ValidationCache(100);
+		cache.put("/files/a.txt", 10, 1000, "v1", "text/plain");
+		cache.put("/files/b.png", 20, 1000, "v1", "image/png");
+		Assert.assertNull(cache.get("/files/a.txt", 10, 1000, "v2"));
+		Assert.assertEquals(1, cache.size());
+		Assert.assertNull(cache.get("/files/b.png", 20, 1000, "v2"));
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void boundedSizeTest() {
+		final ValidationCache cache = new ValidationCache(1000);
+		for (int i = 0; i < 10000; i++) {
+			cache.put("/files/" + i + ".txt", i, 1000, "v1", "text/plain");
+		}
+		Assert.assertTrue(cache.size() <= 1000 + 16);
+		Assert.assertEquals("text/plain", cache.get("/files/9999.txt", 9999, 1000, "v1"));
+		Assert.assertNull(cache.get("/files/0.txt", 0, 1000, "v1"));
+	}
+
+	@Test
+	public void invalidateTest() {
+		final ValidationCache cache = new ValidationCache(100);
+		cache.put("/files/a.txt", 10, 1000, "v1", "text/plain");
+		cache.invalidate("/files/a.txt");
+		Assert.assertNull(cache.get("/files/a.txt", 10, 1000, "v1"));
+		cache.put("/files/a.txt", 10, 1000, "v1", "text/plain");
+		cache.clear();
+		Assert.assertEquals(0, cache.size());
+	}
+}